@@ -0,0 +1,126 @@
+package it.l_soft.wows.ga;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.l_soft.wows.indicators.Indicator;
+import it.l_soft.wows.indicators.IndicatorGraph;
+
+/**
+ * yhat of a whole population for one bar, three ways:
+ * - listPerLocus: every locus goes through indicators.get(i).getNormalizedValue(), the gene loci
+ *   are one int[] per gene (the layout before the per-bar snapshot);
+ * - snapshotPerGene: the normalized values are copied once into a double[] that the same int[]
+ *   per gene loops index;
+ * - snapshotMatrix: the same snapshot read by PopulationMatrix.predict over the locus-major loci.
+ *
+ * The catalog is the default indicatorsToInstantiate, so the interface calls see as many
+ * receiver classes as in production.
+ *
+ *   mvn -Pjmh package && java -jar target/benchmarks.jar IndicatorSnapshotBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndicatorSnapshotBenchmark {
+
+    private static final String CATALOG =
+        "EMA(5,CLOSE); EMA(12,CLOSE); EMA(26,CLOSE); SMA(5,CLOSE); SMA(10,CLOSE); SMA(20,CLOSE); " +
+        "WMA(10,CLOSE); KAMA(10,2,30,CLOSE); RSI(14,CLOSE); RSI(7,CLOSE); ROC(12,CLOSE); ROC(25,CLOSE); " +
+        "StochasticK(14); StochasticD(14,3); MACD(12,26,9,CLOSE); Bollinger(20,2,CLOSE); " +
+        "Donchian(20); Donchian(55); Keltner(20,20,2.0,CLOSE); ATR(14); OBV(); Aroon(25); " +
+        "WilliamsR(14); CCI(20); CMO(14,CLOSE); MFI(14); AwesomeOscillator(5,34); UlcerIndex(14); " +
+        "MassIndex(9,25); TRIX(15,CLOSE); CoppockCurve(14,11,10,CLOSE); DPO(20,CLOSE)";
+    private static final double TEMPERATURE = 1.0;
+
+    @Param({ "200", "2000", "20000" })
+    public int populationSize;
+
+    @Param({ "10" })
+    public int geneSize;
+
+    private List<Indicator> indicators;
+    private double[] normalized;
+    private int[][] genes;
+    private PopulationMatrix matrix;
+    private double[] yhat;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(1);
+        indicators = IndicatorGraph.build(CATALOG).getCatalog();
+        for (Indicator indicator : indicators) {
+            indicator.setNormalizedValue(rnd.nextDouble() * 100 - 50);
+        }
+        normalized = new double[indicators.size()];
+
+        genes = new int[populationSize][geneSize];
+        matrix = new PopulationMatrix(populationSize, geneSize);
+        for (int g = 0; g < populationSize; g++) {
+            for (int l = 0; l < geneSize; l++) {
+                genes[g][l] = rnd.nextInt(indicators.size());
+                matrix.setLocus(g, l, genes[g][l]);
+            }
+        }
+        yhat = new double[populationSize];
+    }
+
+    @Benchmark
+    public double[] listPerLocus() {
+        for (int g = 0; g < genes.length; g++) {
+            int[] loci = genes[g];
+            double z = 0.0;
+            for (int i : loci) {
+                z += indicators.get(i).getNormalizedValue() / 50.0;
+            }
+            z /= Math.max(1, loci.length);
+            yhat[g] = Math.tanh(z / TEMPERATURE);
+        }
+        return yhat;
+    }
+
+    @Benchmark
+    public double[] snapshotPerGene() {
+        snapshot();
+        for (int g = 0; g < genes.length; g++) {
+            int[] loci = genes[g];
+            double z = 0.0;
+            for (int i : loci) {
+                z += normalized[i];
+            }
+            z /= Math.max(1, loci.length);
+            yhat[g] = Math.tanh(z / TEMPERATURE);
+        }
+        return yhat;
+    }
+
+    @Benchmark
+    public PopulationMatrix snapshotMatrix() {
+        snapshot();
+        matrix.predict(normalized, TEMPERATURE, 0, populationSize);
+        return matrix;
+    }
+
+    // what GAEngine.snapshotIndicators does once per bar
+    private void snapshot() {
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] = indicators.get(i).getNormalizedValue() / 50.0;
+        }
+    }
+}
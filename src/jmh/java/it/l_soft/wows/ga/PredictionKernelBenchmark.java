@@ -0,0 +1,91 @@
+package it.l_soft.wows.ga;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * yhat of a whole population for one bar, scalar against the Vector API kernel:
+ * - scalar: PopulationMatrix.predict, sums and tanh in scalar loops;
+ * - vectorized: PopulationMatrix.predictVectorized, SIMD gathered sums then the same scalar tanh;
+ * - vectorSumsOnly: the SIMD sums alone, to show what the scalar tanh leaves on the table.
+ *
+ * Needs the kernel in the jar and the module in the forked JVM (added below):
+ *
+ *   mvn -Pjmh,vector package && java -jar target/benchmarks.jar PredictionKernelBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PredictionKernelBenchmark {
+
+    private static final double TEMPERATURE = 1.0;
+    private static final int CATALOG = 100;
+
+    @Param({ "2000", "20000" })
+    public int populationSize;
+
+    @Param({ "10" })
+    public int geneSize;
+
+    private PopulationMatrix matrix;
+    private PopulationMatrix.VectorKernel kernel;
+    private double[] normalized;
+    private int[] loci;
+    private double[] z;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        if (!PopulationMatrix.isVectorKernelAvailable()) {
+            throw new IllegalStateException("vector kernel not available, build with -Pjmh,vector");
+        }
+        kernel = (PopulationMatrix.VectorKernel) Class.forName(PopulationMatrix.class.getPackageName() + ".VectorPredictionKernel")
+                                                      .getDeclaredConstructor().newInstance();
+        Random rnd = new Random(7);
+        normalized = new double[CATALOG];
+        for (int i = 0; i < CATALOG; i++) normalized[i] = rnd.nextDouble() * 2 - 1;
+
+        matrix = new PopulationMatrix(populationSize, geneSize);
+        loci = new int[populationSize * geneSize];
+        for (int row = 0; row < populationSize; row++) {
+            for (int l = 0; l < geneSize; l++) {
+                int locus = rnd.nextInt(CATALOG);
+                matrix.setLocus(row, l, locus);
+                loci[l * populationSize + row] = locus;
+            }
+        }
+        z = new double[populationSize];
+    }
+
+    @Benchmark
+    public double scalar() {
+        matrix.predict(normalized, TEMPERATURE, 0, populationSize);
+        return matrix.getYhat(populationSize - 1);
+    }
+
+    @Benchmark
+    public double vectorized() {
+        matrix.predictVectorized(normalized, TEMPERATURE, 0, populationSize);
+        return matrix.getYhat(populationSize - 1);
+    }
+
+    @Benchmark
+    public double vectorSumsOnly() {
+        kernel.sums(normalized, loci, populationSize, geneSize, z, 0, populationSize);
+        return z[populationSize - 1];
+    }
+}
@@ -0,0 +1,100 @@
+package it.l_soft.wows.indicators.bands;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.MarketBar;
+
+/**
+ * Cost of one Donchian bar: the RollingExtrema implementation against the previous one, which
+ * rescanned a window of boxed highs and lows with a stream on every bar.
+ *
+ *   mvn -Pjmh package && java -jar target/benchmarks.jar DonchianBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DonchianBenchmark {
+
+    private static final int BARS = 1 << 16;   // power of two, cycled with a mask
+
+    @Param({ "20", "55" })
+    public int period;
+
+    private Bar[] bars;
+    private int next;
+    private Donchian donchian;
+    private RescanDonchian rescan;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(1);
+        bars = new Bar[BARS];
+        double price = 100;
+        for (int t = 0; t < BARS; t++) {
+            price *= 1 + 0.002 * rnd.nextGaussian();
+            double high = price * (1 + 0.001 * rnd.nextDouble());
+            double low = price * (1 - 0.001 * rnd.nextDouble());
+            bars[t] = new MarketBar(t, 0, price, high, low, price, 1000);
+        }
+        donchian = new Donchian(period);
+        rescan = new RescanDonchian(period);
+        // past the warm-up, the rescan only costs O(period) once the window is full
+        for (int t = 0; t < period; t++) {
+            donchian.add(bars[t]);
+            rescan.add(bars[t]);
+        }
+        next = period;
+    }
+
+    @Benchmark
+    public double rollingExtrema() {
+        return donchian.add(bars[next++ & (BARS - 1)]);
+    }
+
+    @Benchmark
+    public double streamRescan() {
+        return rescan.add(bars[next++ & (BARS - 1)]);
+    }
+
+    /** The Donchian as it was before RollingExtrema. */
+    private static final class RescanDonchian {
+        private final int period;
+        private final Deque<Double> highs = new ArrayDeque<>();
+        private final Deque<Double> lows = new ArrayDeque<>();
+        private int barsSeen = 0;
+
+        RescanDonchian(int period) {
+            this.period = period;
+        }
+
+        double add(Bar bar) {
+            if (highs.size() == period) highs.removeFirst();
+            if (lows.size() == period) lows.removeFirst();
+            highs.addLast(bar.getHigh());
+            lows.addLast(bar.getLow());
+            if (++barsSeen < period) return Double.NaN;
+            double upper = highs.stream().mapToDouble(Double::doubleValue).max().orElse(Double.NaN);
+            double lower = lows.stream().mapToDouble(Double::doubleValue).min().orElse(Double.NaN);
+            return (upper + lower) / 2.0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package it.l_soft.wows.utils;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The RingBuffer as it was before the lock-free rewrite, reduced to what RingBufferBenchmark
+ * calls: a ReentrantLock around every publish/poll and signalAll() on every publish.
+ */
+final class LockingRingBuffer<T> {
+
+    private final Object[] buffer;
+    private final int capacity;
+    private long cursor = -1L;
+    private long nextSequenceToPublish = 0L;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    LockingRingBuffer(int capacity) {
+        this.capacity = capacity;
+        this.buffer = new Object[capacity];
+    }
+
+    long publish(T value) {
+        lock.lock();
+        try {
+            long seq = nextSequenceToPublish++;
+            buffer[(int) (seq % capacity)] = value;
+            cursor = seq;
+            notEmpty.signalAll();
+            return seq;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    ConsumerHandle createConsumer() {
+        lock.lock();
+        try {
+            return new ConsumerHandle(cursor + 1);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    final class ConsumerHandle {
+        private long nextSequence;
+
+        private ConsumerHandle(long startSequence) {
+            this.nextSequence = startSequence;
+        }
+
+        RingBuffer.ValueWithSequence<T> poll() throws RingBuffer.MissedItemsException {
+            lock.lock();
+            try {
+                long availableSeq = cursor;
+                if (availableSeq < nextSequence) {
+                    return null;
+                }
+                long distance = availableSeq - nextSequence;
+                if (distance >= capacity) {
+                    throw new RingBuffer.MissedItemsException(nextSequence, availableSeq, distance - capacity + 1);
+                }
+                @SuppressWarnings("unchecked")
+                T value = (T) buffer[(int) (nextSequence % capacity)];
+                return new RingBuffer.ValueWithSequence<>(nextSequence++, value);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package it.l_soft.wows.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.l_soft.wows.utils.RingBuffer.MissedItemsException;
+
+/**
+ * Lock-free RingBuffer against the previous ReentrantLock one (LockingRingBuffer).
+ *
+ * - *PublishPoll: one thread publishes an item and reads it back, as BarPipeline does with
+ *   barSeries and a gene with its scores on every bar.
+ * - *Producer / *Consumer groups: one thread publishes while another polls, the cross-thread
+ *   case (read it on a box with at least two free cores).
+ *
+ *   mvn -Pjmh package && java -jar target/benchmarks.jar RingBufferBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingBufferBenchmark {
+
+    private static final int CAPACITY = 1024;
+    private static final Object ITEM = new Object();
+
+    @State(Scope.Group)
+    public static class Buffers {
+        RingBuffer<Object> lockFree;
+        RingBuffer<Object>.ConsumerHandle lockFreeReader;
+        LockingRingBuffer<Object> locking;
+        LockingRingBuffer<Object>.ConsumerHandle lockingReader;
+
+        @Setup
+        public void setUp() {
+            lockFree = new RingBuffer<>(CAPACITY);
+            lockFreeReader = lockFree.createConsumer();
+            locking = new LockingRingBuffer<>(CAPACITY);
+            lockingReader = locking.createConsumer();
+        }
+    }
+
+    // ---- single thread ----
+
+    @Benchmark
+    @Group("lockFreePublishPoll")
+    public Object lockFreePublishPoll(Buffers b) throws MissedItemsException {
+        b.lockFree.publish(ITEM);
+        return b.lockFreeReader.poll();
+    }
+
+    @Benchmark
+    @Group("lockFreePublishPollValue")
+    public Object lockFreePublishPollValue(Buffers b) throws MissedItemsException {
+        b.lockFree.publish(ITEM);
+        return b.lockFreeReader.pollValue();
+    }
+
+    @Benchmark
+    @Group("lockingPublishPoll")
+    public Object lockingPublishPoll(Buffers b) throws MissedItemsException {
+        b.locking.publish(ITEM);
+        return b.lockingReader.poll();
+    }
+
+    // ---- one producer, one consumer ----
+
+    @Benchmark
+    @Group("lockFreeCrossThread")
+    @GroupThreads(1)
+    public long lockFreeProducer(Buffers b) {
+        return b.lockFree.publish(ITEM);
+    }
+
+    @Benchmark
+    @Group("lockFreeCrossThread")
+    @GroupThreads(1)
+    public Object lockFreeConsumer(Buffers b) {
+        try {
+            return b.lockFreeReader.pollValue();
+        }
+        catch (MissedItemsException e) {
+            // the producer lapped the consumer: skip ahead, as a lagging reader would
+            b.lockFreeReader = b.lockFree.createConsumer();
+            return null;
+        }
+    }
+
+    @Benchmark
+    @Group("lockingCrossThread")
+    @GroupThreads(1)
+    public long lockingProducer(Buffers b) {
+        return b.locking.publish(ITEM);
+    }
+
+    @Benchmark
+    @Group("lockingCrossThread")
+    @GroupThreads(1)
+    public Object lockingConsumer(Buffers b) {
+        try {
+            return b.lockingReader.poll();
+        }
+        catch (MissedItemsException e) {
+            b.lockingReader = b.locking.createConsumer();
+            return null;
+        }
+    }
+}
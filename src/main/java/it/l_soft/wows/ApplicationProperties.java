@@ -10,6 +10,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import it.l_soft.wows.comms.Price;
+import it.l_soft.wows.ga.EvolutionScheduler;
+import it.l_soft.wows.utils.AsyncLineWriter;
+import it.l_soft.wows.utils.FlushPolicy;
 
 
 public class ApplicationProperties {
@@ -21,11 +24,19 @@ public class ApplicationProperties {
 	private int port;
 	private String host;
 	private long intraMessagePause;
+	private boolean binaryBars = false;
 	private String CSVFilePath;
 	private String geneEvolutionFilePath;
 	private String CSVPreamble;
+	private FlushPolicy CSVFlushPolicy = FlushPolicy.EVERY_LINE;
+	private FlushPolicy geneEvolutionFlushPolicy = FlushPolicy.EVERY_LINE;
+	private boolean fsyncOnRotate = false;
 	private String geneEvalDumpPath;
 	private String geneEvalDumpName;
+	private int geneEvalDumpQueueSize = 8192;
+	private int geneEvalDumpBatchSize = 256;
+	private long geneEvalDumpFlushMillis = 1000;
+	private AsyncLineWriter.OverflowPolicy geneEvalDumpOverflow = AsyncLineWriter.OverflowPolicy.DROP;
 	private boolean consoleOut;
 	private long shutdownGracePeriod;
 	private String indicatorsToInstantiate;
@@ -46,6 +57,8 @@ public class ApplicationProperties {
     private double macdToAtrScale = 1.0;       // scale factor for MACD hist vs ATR
     private Price defaultPrice = Price.CLOSE;  // for trend comparators, etc.
     private int validScoreHistoryLength = 100; // number of backward bars to consider for ranking
+    private String evolutionCadence = "bar";   // see EvolutionScheduler
+    private boolean evolutionInBackground = false; // build the next generation off the bar thread
     
     private double predictionTemperature = 0.8; // tau for tanh smoothing
     private double volNormK = 1.25;             // scaling factor for volatility normalization
@@ -57,6 +70,9 @@ public class ApplicationProperties {
     
     private double waitOfScoreInRanking = .65;
     private double waitOfWinRateInRanking = .35;
+
+    private int evalThreads = 1;                // workers scoring the population, 1 = sequential
+    private boolean evalVectorKernel = false;   // SIMD yhat kernel, needs jdk.incubator.vector
     		
 //	private int SMACrossing_ShortWindow = 50;
 //	private int SMACrossing_LongWindow = 200;
@@ -181,6 +197,12 @@ public class ApplicationProperties {
 	        	host = properties.getProperty(variable).trim();
 	        }
 
+			variable = "binaryBars";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	binaryBars = Boolean.parseBoolean(properties.getProperty(variable).trim());
+	        }
+
 			variable = "intraMessagePause";
 			intraMessagePause = 1000;
 	        if (properties.getProperty(variable) != null)
@@ -208,6 +230,24 @@ public class ApplicationProperties {
 	        	CSVPreamble = properties.getProperty(variable).trim();
 	        }
 	        
+			variable = "CSVFlushPolicy";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	CSVFlushPolicy = FlushPolicy.parse(properties.getProperty(variable));
+	        }
+	        
+			variable = "geneEvolutionFlushPolicy";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	geneEvolutionFlushPolicy = FlushPolicy.parse(properties.getProperty(variable));
+	        }
+	        
+			variable = "fsyncOnRotate";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	fsyncOnRotate = Boolean.parseBoolean(properties.getProperty(variable).trim());
+	        }
+	        
 			variable = "geneEvalDumpPath";
 	        if (properties.getProperty(variable) != null)
 	        {
@@ -220,6 +260,30 @@ public class ApplicationProperties {
 	        	geneEvalDumpName = properties.getProperty(variable).trim();
 	        }
 
+	        variable = "geneEvalDumpQueueSize";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	geneEvalDumpQueueSize = Integer.parseInt(properties.getProperty(variable).trim());
+	        }
+
+	        variable = "geneEvalDumpBatchSize";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	geneEvalDumpBatchSize = Integer.parseInt(properties.getProperty(variable).trim());
+	        }
+
+	        variable = "geneEvalDumpFlushMillis";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	geneEvalDumpFlushMillis = Long.parseLong(properties.getProperty(variable).trim());
+	        }
+
+	        variable = "geneEvalDumpOverflow";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	geneEvalDumpOverflow = AsyncLineWriter.OverflowPolicy.valueOf(properties.getProperty(variable).trim().toUpperCase());
+	        }
+
 	        variable = "consoleOut";
 	        if (properties.getProperty(variable) != null)
 	        {
@@ -323,6 +387,17 @@ public class ApplicationProperties {
 	        {
 	        	validScoreHistoryLength = Integer.parseInt(properties.getProperty(variable).trim());
 	        }
+	    	variable = "evolutionCadence";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	// parsed here only to reject a bad spec at startup, each GAEngine keeps its own scheduler
+	        	evolutionCadence = EvolutionScheduler.parse(properties.getProperty(variable)).toString();
+	        }
+	    	variable = "evolutionInBackground";
+	        if (properties.getProperty(variable) != null)
+	        {
+	        	evolutionInBackground = Boolean.parseBoolean(properties.getProperty(variable).trim());
+	        }
 	        
             variable = "predictionTemperature";
             if (properties.getProperty(variable) != null) {
@@ -353,6 +428,16 @@ public class ApplicationProperties {
             if (properties.getProperty(variable) != null) {
             	setWaitOfWinRateInRanking(Double.parseDouble(properties.getProperty(variable).trim()));
             }
+
+            variable = "evalThreads";
+            if (properties.getProperty(variable) != null) {
+            	evalThreads = Integer.parseInt(properties.getProperty(variable).trim());
+            }
+
+            variable = "evalVectorKernel";
+            if (properties.getProperty(variable) != null) {
+            	evalVectorKernel = Boolean.parseBoolean(properties.getProperty(variable).trim());
+            }
 //	        variable = "SMACrossing_ShortWindow";
 //	        if (properties.getProperty(variable) != null)
 //	        {
@@ -546,7 +631,7 @@ public class ApplicationProperties {
 	        }
 	        
     	}
-    	catch(NumberFormatException e)
+    	catch(IllegalArgumentException e)
     	{
     		log.error("The format for the variable '" + variable + "' is incorrect (" +
     					 properties.getProperty("sessionExpireTime") + ")", e);
@@ -568,6 +653,10 @@ public class ApplicationProperties {
 		return host;
 	}
 
+	public boolean isBinaryBars() {
+		return binaryBars;
+	}
+
 	public long getIntraMessagePause() {
 		return intraMessagePause;
 	}
@@ -588,6 +677,18 @@ public class ApplicationProperties {
 		return CSVPreamble;
 	}
 
+	public FlushPolicy getCSVFlushPolicy() {
+		return CSVFlushPolicy;
+	}
+
+	public FlushPolicy getGeneEvolutionFlushPolicy() {
+		return geneEvolutionFlushPolicy;
+	}
+
+	public boolean isFsyncOnRotate() {
+		return fsyncOnRotate;
+	}
+
 	public long getShutdownGracePeriod() {
 		return shutdownGracePeriod;
 	}
@@ -655,6 +756,18 @@ public class ApplicationProperties {
 	public int getValidScoreHistoryLength() {
 		return validScoreHistoryLength;
 	}
+
+	public String getEvolutionCadence() {
+		return evolutionCadence;
+	}
+
+	public boolean isEvolutionInBackground() {
+		return evolutionInBackground;
+	}
+
+	public void setEvolutionInBackground(boolean evolutionInBackground) {
+		this.evolutionInBackground = evolutionInBackground;
+	}
 	
     public double getPredictionTemperature() {
         return predictionTemperature;
@@ -704,6 +817,14 @@ public class ApplicationProperties {
 		this.waitOfWinRateInRanking = waitOfWinRateInRanking;
 	}
 
+	public int getEvalThreads() {
+		return evalThreads;
+	}
+
+	public boolean isEvalVectorKernel() {
+		return evalVectorKernel;
+	}
+
 	public String getGeneEvolutionFilePath() {
 		return geneEvolutionFilePath;
 	}
@@ -716,9 +837,29 @@ public class ApplicationProperties {
 		return geneEvalDumpPath;
 	}
 
+	public void setGeneEvalDumpPath(String geneEvalDumpPath) {
+		this.geneEvalDumpPath = geneEvalDumpPath;
+	}
+
 	public String getGeneEvalDumpName() {
 		return geneEvalDumpName;
 	}
+
+	public int getGeneEvalDumpQueueSize() {
+		return geneEvalDumpQueueSize;
+	}
+
+	public int getGeneEvalDumpBatchSize() {
+		return geneEvalDumpBatchSize;
+	}
+
+	public long getGeneEvalDumpFlushMillis() {
+		return geneEvalDumpFlushMillis;
+	}
+
+	public AsyncLineWriter.OverflowPolicy getGeneEvalDumpOverflow() {
+		return geneEvalDumpOverflow;
+	}
     
     
 //	public int getSMACrossing_ShortWindow() {
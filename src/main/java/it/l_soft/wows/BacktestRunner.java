@@ -0,0 +1,150 @@
+package it.l_soft.wows;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.FrameEncoder;
+import it.l_soft.wows.comms.MarketBar;
+import it.l_soft.wows.dataHandlers.BarArchive;
+import it.l_soft.wows.dataHandlers.BarPipeline;
+import it.l_soft.wows.dataHandlers.BarSource;
+import it.l_soft.wows.indicators.IndicatorGraph;
+
+/**
+ * Offline replay of recorded bars through the same pipeline the live feed uses
+ * (indicators -> evalPopulation -> CSV -> evolve), as fast as the CPU allows.
+ *
+ * Usage:
+ *   BacktestRunner [-p properties] file...                   replay the files in order
+ *   BacktestRunner [-p properties] -convert out.bin file...  rewrite the bars as binary frames
+ *   BacktestRunner [-p properties] -archive dir file...      rewrite the bars as a BarArchive
+ *
+ * BarArchive directories are mapped (see BarArchive), files ending in .csv or .txt are read as
+ * text (see CsvBarSource), anything else as a recording of trading station frames. Converting
+ * CSV history once makes the later runs skip the text parsing; an archive is also replayed
+ * without creating a MarketBar per bar.
+ */
+public class BacktestRunner {
+	private static final Logger log = Logger.getLogger(BacktestRunner.class);
+	private static final long PROGRESS_EVERY = 100_000;
+
+	public static void main(String[] args) throws IOException {
+		String propertiesPath = null;
+		Path convertTo = null;
+		Path archiveTo = null;
+		List<Path> files = new ArrayList<Path>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-p") && i + 1 < args.length) {
+				propertiesPath = args[++i];
+			}
+			else if (args[i].equals("-convert") && i + 1 < args.length) {
+				convertTo = Paths.get(args[++i]);
+			}
+			else if (args[i].equals("-archive") && i + 1 < args.length) {
+				archiveTo = Paths.get(args[++i]);
+			}
+			else {
+				files.add(Paths.get(args[i]));
+			}
+		}
+		if (files.isEmpty()) {
+			System.err.println("Usage: BacktestRunner [-p properties] [-convert out.bin | -archive dir] file...");
+			System.exit(-1);
+		}
+		ApplicationProperties props = ApplicationProperties.getInstance(propertiesPath);
+
+		if (convertTo != null) {
+			convert(files, convertTo);
+			return;
+		}
+		if (archiveTo != null) {
+			archive(files, archiveTo);
+			return;
+		}
+
+        IndicatorGraph indicators = IndicatorGraph.build(props.getIndicatorsToInstantiate());
+
+		BarPipeline pipeline = new BarPipeline(indicators);
+		long start = System.nanoTime();
+		long bars = 0;
+		try {
+			for (Path file : files) {
+				log.info("Replaying " + file);
+				try (BarSource source = BarSource.open(file)) {
+					Bar bar;
+					while ((bar = source.next()) != null) {
+						pipeline.onBar(bar, System.nanoTime());
+						if (++bars % PROGRESS_EVERY == 0) {
+							log.info(bars + " bars, " + rate(bars, start) + " bars/s");
+						}
+					}
+				}
+			}
+		}
+		finally {
+			pipeline.close();
+		}
+		report("Backtest", bars, start);
+		System.out.println(pipeline.getBarToPrediction().summary());
+		System.out.println(pipeline.getBarToEvolved().summary());
+	}
+
+	private static void convert(List<Path> files, Path out) throws IOException {
+		FrameEncoder encoder = new FrameEncoder(256);
+		long start = System.nanoTime();
+		long bars = 0;
+		try (FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+													StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Path file : files) {
+				try (BarSource source = BarSource.open(file)) {
+					Bar bar;
+					while ((bar = source.next()) != null) {
+						if (bar instanceof MarketBar) ((MarketBar) bar).setBarNumber(bars);
+						bars++;
+						FrameEncoder.writeFully(channel, encoder.binaryBar(bar, bar.getTimestamp()));
+					}
+				}
+			}
+		}
+		report("Converted to " + out + ":", bars, start);
+	}
+
+	private static void archive(List<Path> files, Path directory) throws IOException {
+		long start = System.nanoTime();
+		long bars;
+		try (BarArchive.Writer writer = new BarArchive.Writer(directory)) {
+			for (Path file : files) {
+				try (BarSource source = BarSource.open(file)) {
+					Bar bar;
+					while ((bar = source.next()) != null) {
+						writer.append(bar);
+					}
+				}
+			}
+			bars = writer.getWritten();
+		}
+		report("Archived to " + directory + ":", bars, start);
+	}
+
+	private static void report(String what, long bars, long start) {
+		double seconds = (System.nanoTime() - start) / 1e9;
+		String line = what + " " + bars + " bars in " + String.format(java.util.Locale.US, "%.3f", seconds) +
+					  " s, " + rate(bars, start) + " bars/s";
+		log.info(line);
+		System.out.println(line);
+	}
+
+	private static long rate(long bars, long start) {
+		double seconds = (System.nanoTime() - start) / 1e9;
+		return (seconds > 0 ? Math.round(bars / seconds) : 0);
+	}
+}
@@ -3,9 +3,7 @@ package it.l_soft.wows;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 import org.apache.log4j.Appender;
 import org.apache.log4j.ConsoleAppender;
@@ -13,8 +11,7 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 import it.l_soft.wows.comms.TradingStationInterface;
-import it.l_soft.wows.indicators.Indicator;
-import it.l_soft.wows.indicators.IndicatorFactory;
+import it.l_soft.wows.indicators.IndicatorGraph;
 
 public class Wows {
 	public static void main(String[] args) throws InterruptedException, IOException {
@@ -37,17 +34,10 @@ public class Wows {
 		System.out.println("Effective level: " + log.getEffectiveLevel());
 		System.out.println("Working directory: " + new java.io.File(".").getAbsolutePath());
 
-        List<Indicator> indicators = new ArrayList<Indicator>();
-        for(String token: props.getIndicatorsToInstantiate().split(";"))
-        {
-            token = token.trim();
-            if (token.isEmpty()) continue;
-
-            indicators.add(IndicatorFactory.createFromToken(token));
-        }
+        IndicatorGraph indicators = IndicatorGraph.build(props.getIndicatorsToInstantiate());
 
 		tsi = new TradingStationInterface(indicators);
-		tsi.run();
+		tsi.start();
 		
 		long now = 0;
 		log.trace("Now spawinig the child thread");
@@ -7,4 +7,6 @@ public interface Bar {
     double getLow();
     double getClose();
     long getVolume();
+    /** Epoch millis of the bar; synthetic bars built inside the indicators have none. */
+    default long getTimestamp() { return 0; }
 }
@@ -0,0 +1,59 @@
+package it.l_soft.wows.comms;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed layout binary encoding of a MarketBar, sent under topic 'C' instead of the JSON body of
+ * topic 'B'. The bar timestamp travels in the frame header.
+ *
+ *   | open | high | low | close (doubles) | volume (long) | barNumber (long) |   48 bytes, big endian
+ *
+ * Negotiation: after connecting, the client sends a HELLO frame whose body lists the bar topics
+ * it accepts, in order of preference (e.g. "CB"). A server that knows about HELLO answers with a
+ * HELLO carrying the topic it is going to use; one that does not keeps sending 'B', which the
+ * client still understands.
+ */
+public final class BinaryBarCodec {
+    public static final char TOPIC = 'C';
+    public static final char JSON_TOPIC = 'B';
+    public static final char HELLO_TOPIC = 'H';
+    public static final int BODY_LENGTH = 4 * Double.BYTES + 2 * Long.BYTES;
+
+    private static final int OPEN = 0;
+    private static final int HIGH = OPEN + Double.BYTES;
+    private static final int LOW = HIGH + Double.BYTES;
+    private static final int CLOSE = LOW + Double.BYTES;
+    private static final int VOLUME = CLOSE + Double.BYTES;
+    private static final int BAR_NUMBER = VOLUME + Long.BYTES;
+
+    private BinaryBarCodec() {}
+
+    /** Append the 48 bytes body of 'bar' at the buffer position. */
+    public static void encode(Bar bar, ByteBuffer out) {
+        out.putDouble(bar.getOpen())
+           .putDouble(bar.getHigh())
+           .putDouble(bar.getLow())
+           .putDouble(bar.getClose())
+           .putLong(bar.getVolume())
+           .putLong(bar.getBarNumber());
+    }
+
+    /**
+     * Fill 'into' from the body starting at absolute index 'index' of 'in' (position untouched).
+     *
+     * @return 'into'
+     */
+    public static MarketBar decode(ByteBuffer in, int index, int length, MarketBar into) throws IOException {
+        if (length != BODY_LENGTH) {
+            throw new IOException("Binary bar body must be " + BODY_LENGTH + " bytes, got " + length);
+        }
+        into.setOpen(in.getDouble(index + OPEN));
+        into.setHigh(in.getDouble(index + HIGH));
+        into.setLow(in.getDouble(index + LOW));
+        into.setClose(in.getDouble(index + CLOSE));
+        into.setVolume(in.getLong(index + VOLUME));
+        into.setBarNumber(in.getLong(index + BAR_NUMBER));
+        return into;
+    }
+}
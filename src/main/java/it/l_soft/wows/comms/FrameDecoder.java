@@ -0,0 +1,124 @@
+package it.l_soft.wows.comms;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Incremental decoder for the trading station frames:
+ *
+ *   | topic (1 byte) | timestamp (8 bytes, big endian) | length (4 bytes, big endian) | body (length bytes) |
+ *
+ * - fill() appends whatever the channel has into a reusable direct buffer; frames split across
+ *   reads are kept until complete.
+ * - next() parses the header in place and exposes topic, timestamp and body of the next complete
+ *   frame; the body stays valid until the following fill().
+ * - The buffer grows (doubling) when a frame does not fit, so long bodies are never truncated.
+ */
+public final class FrameDecoder {
+    public static final int HEADER_LENGTH = 1 + Long.BYTES + Integer.BYTES;
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    // kept in read mode between calls: [position, limit) holds the bytes not consumed yet
+    private ByteBuffer buffer;
+    private byte[] body = new byte[0];
+
+    private char topic;
+    private long timestamp;
+    private int bodyOffset;
+    private int bodyLength;
+
+    public FrameDecoder(int initialCapacity) {
+        buffer = ByteBuffer.allocateDirect(Math.max(initialCapacity, HEADER_LENGTH));
+        buffer.limit(0);
+    }
+
+    /**
+     * Read from the channel whatever is available (or block, for a blocking channel).
+     *
+     * @return the number of bytes read, 0 if none, -1 at end of stream.
+     */
+    public int fill(ReadableByteChannel channel) throws IOException {
+        ensureRoomForPendingFrame();
+        buffer.compact();
+        try {
+            return channel.read(buffer);
+        }
+        finally {
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Parse the next frame if it is completely buffered.
+     *
+     * @return false when more bytes are needed.
+     */
+    public boolean next() {
+        final int pos = buffer.position();
+        if (buffer.remaining() < HEADER_LENGTH) return false;
+
+        final int length = buffer.getInt(pos + 1 + Long.BYTES);
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IllegalStateException("Invalid frame length " + length);
+        }
+        if (buffer.remaining() < HEADER_LENGTH + length) return false;
+
+        topic = (char) (buffer.get(pos) & 0xFF);
+        timestamp = buffer.getLong(pos + 1);
+        bodyOffset = pos + HEADER_LENGTH;
+        bodyLength = length;
+        buffer.position(bodyOffset + length);
+        return true;
+    }
+
+    public char topic() { return topic; }
+    public long timestamp() { return timestamp; }
+    public int bodyLength() { return bodyLength; }
+
+    /**
+     * The decode buffer and the absolute index of the current body in it, to read binary bodies
+     * in place (absolute gets only). Valid until the following fill().
+     */
+    public ByteBuffer buffer() { return buffer; }
+    public int bodyOffset() { return bodyOffset; }
+
+    /**
+     * Body of the current frame copied into a reusable array (valid up to bodyLength()).
+     * The array is overwritten by the next call.
+     */
+    public byte[] bodyBytes() {
+        if (body.length < bodyLength) {
+            body = new byte[Integer.highestOneBit(Math.max(bodyLength, 64) - 1) << 1];
+        }
+        buffer.get(bodyOffset, body, 0, bodyLength);
+        return body;
+    }
+
+    /** Drop anything buffered, e.g. after a reconnection. */
+    public void clear() {
+        buffer.clear();
+        buffer.limit(0);
+        bodyLength = 0;
+    }
+
+    // Make sure the frame at the head of the buffer fits once compacted, growing if needed.
+    private void ensureRoomForPendingFrame() {
+        int needed = HEADER_LENGTH;
+        if (buffer.remaining() >= HEADER_LENGTH) {
+            int length = buffer.getInt(buffer.position() + 1 + Long.BYTES);
+            if (length < 0 || length > MAX_FRAME_LENGTH) {
+                throw new IllegalStateException("Invalid frame length " + length);
+            }
+            needed += length;
+        }
+        if (needed <= buffer.capacity()) return;
+
+        int capacity = buffer.capacity();
+        while (capacity < needed) capacity <<= 1;
+        ByteBuffer bigger = ByteBuffer.allocateDirect(capacity);
+        bigger.put(buffer);
+        bigger.flip();
+        buffer = bigger;
+    }
+}
@@ -0,0 +1,56 @@
+package it.l_soft.wows.comms;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds trading station frames (see FrameDecoder for the layout) into a reusable buffer.
+ *
+ * Every method returns the same buffer, flipped and ready to be written; its content is valid
+ * until the next call. Not thread-safe.
+ */
+public final class FrameEncoder {
+    private ByteBuffer buffer;
+
+    public FrameEncoder(int initialCapacity) {
+        buffer = ByteBuffer.allocate(Math.max(initialCapacity, FrameDecoder.HEADER_LENGTH + BinaryBarCodec.BODY_LENGTH));
+    }
+
+    /** Frame with an arbitrary body (e.g. the JSON of topics 'A' and 'B'). */
+    public ByteBuffer frame(char topic, long timestamp, byte[] body, int offset, int length) {
+        header(topic, timestamp, length);
+        buffer.put(body, offset, length);
+        return buffer.flip();
+    }
+
+    /** Topic 'C' frame for the bar. */
+    public ByteBuffer binaryBar(Bar bar, long timestamp) {
+        header(BinaryBarCodec.TOPIC, timestamp, BinaryBarCodec.BODY_LENGTH);
+        BinaryBarCodec.encode(bar, buffer);
+        return buffer.flip();
+    }
+
+    /** HELLO frame listing the accepted bar topics, most preferred first. */
+    public ByteBuffer hello(String topics, long timestamp) {
+        byte[] body = topics.getBytes(StandardCharsets.US_ASCII);
+        return frame(BinaryBarCodec.HELLO_TOPIC, timestamp, body, 0, body.length);
+    }
+
+    /** Write the whole buffer, also on a non-blocking channel. */
+    public static void writeFully(WritableByteChannel channel, ByteBuffer frame) throws IOException {
+        while (frame.hasRemaining()) {
+            if (channel.write(frame) == 0) Thread.onSpinWait();
+        }
+    }
+
+    private void header(char topic, long timestamp, int bodyLength) {
+        final int needed = FrameDecoder.HEADER_LENGTH + bodyLength;
+        if (buffer.capacity() < needed) {
+            buffer = ByteBuffer.allocate(Integer.highestOneBit(needed - 1) << 1);
+        }
+        buffer.clear();
+        buffer.put((byte) topic).putLong(timestamp).putInt(bodyLength);
+    }
+}
@@ -0,0 +1,79 @@
+package it.l_soft.wows.comms;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+
+import it.l_soft.wows.utils.JSONWrapper;
+
+/**
+ * Decoder for the MarketBar JSON body, reading straight from the frame bytes.
+ *
+ * - Jackson's streaming JsonParser over the bytes, with its fast double parser: no String for
+ *   the body and no reflective binding, yet it accepts the same input
+ *   MAPPER.readValue(json, MarketBar.class) does for these fields: numbers or numeric strings,
+ *   unknown fields skipped, null leaves the field untouched.
+ * - The caller owns the MarketBar to fill, so a reusable instance can be passed when the bar
+ *   is not retained after the call.
+ */
+public final class MarketBarParser {
+    private final JsonFactory factory = JSONWrapper.MAPPER.getFactory().rebuild()
+            .enable(StreamReadFeature.USE_FAST_DOUBLE_PARSER)
+            .build();
+
+    /**
+     * Fill 'into' with the fields found in buf[offset, offset + length).
+     *
+     * @return 'into'
+     */
+    public MarketBar parse(byte[] buf, int offset, int length, MarketBar into) throws IOException {
+        try (JsonParser p = factory.createParser(buf, offset, length)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("MarketBar body is not a JSON object");
+            }
+            String field;
+            while ((field = p.nextFieldName()) != null) {
+                JsonToken value = p.nextToken();
+                if (value == JsonToken.VALUE_NULL) continue;
+                switch (field) {
+                    case "open":      into.setOpen(asDouble(p, value)); break;
+                    case "high":      into.setHigh(asDouble(p, value)); break;
+                    case "low":       into.setLow(asDouble(p, value)); break;
+                    case "close":     into.setClose(asDouble(p, value)); break;
+                    case "volume":    into.setVolume(asLong(p, value)); break;
+                    case "barNumber": into.setBarNumber(asLong(p, value)); break;
+                    case "timestamp": into.setTimestamp(asLong(p, value)); break;
+                    case "topic":     into.setTopic(p.getValueAsString()); break;
+                    default:          p.skipChildren(); break;
+                }
+            }
+        }
+        return into;
+    }
+
+    private static double asDouble(JsonParser p, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_FLOAT || value == JsonToken.VALUE_NUMBER_INT) {
+            return p.getDoubleValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            return Double.parseDouble(p.getText().trim());
+        }
+        throw new IOException("Unexpected " + value + " for MarketBar field " + p.currentName());
+    }
+
+    private static long asLong(JsonParser p, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return p.getLongValue();
+        }
+        if (value == JsonToken.VALUE_NUMBER_FLOAT) {
+            return (long) p.getDoubleValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            return Long.parseLong(p.getText().trim());
+        }
+        throw new IOException("Unexpected " + value + " for MarketBar field " + p.currentName());
+    }
+}
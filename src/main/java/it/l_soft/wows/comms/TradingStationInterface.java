@@ -2,119 +2,127 @@ package it.l_soft.wows.comms;
 
 import java.io.*;
 import java.net.*;
-import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import com.fasterxml.jackson.databind.ObjectReader;
+
 import it.l_soft.wows.ApplicationProperties;
-import it.l_soft.wows.ga.GAEngine;
-import it.l_soft.wows.ga.Gene.ScoreHolder;
-import it.l_soft.wows.indicators.Indicator;
-import it.l_soft.wows.indicators.volatility.ATR;
+import it.l_soft.wows.dataHandlers.BarPipeline;
+import it.l_soft.wows.indicators.IndicatorGraph;
 import it.l_soft.wows.utils.JSONWrapper;
-import it.l_soft.wows.utils.RingBuffer;
-import it.l_soft.wows.utils.RingBuffer.MissedItemsException;
-import it.l_soft.wows.utils.TextFileHandler;
-import it.l_soft.wows.utils.Utilities;
 
 public class TradingStationInterface extends Thread {
     private final Logger log = Logger.getLogger(this.getClass());
     ApplicationProperties props = ApplicationProperties.getInstance();
-    long barNumber = 0;
-
-    InputStream input;
-    Socket socket = null;
-    List<Indicator> indicators;
-    GAEngine ga;
-    RingBuffer<MarketBar> barSeries = new RingBuffer<MarketBar>(props.getBarsInMemory());
-    RingBuffer<MarketBar>.ConsumerHandle barsReader = barSeries.createConsumer();
-    MarketBar prevBar = null;
-    MarketBar currBar = null;
-    ATR atrRef = null;
-    TextFileHandler csv;
-    boolean shutdown = false;
-
-    public TradingStationInterface(List<Indicator> indicators) {
-        this.indicators = indicators;
-        ga = new GAEngine(indicators);
-
-        // Resolve ATR reference safely (no index assumptions)
-        for (Indicator ind : indicators) {
-            if (ind instanceof it.l_soft.wows.indicators.volatility.ATR) {
-                atrRef = (it.l_soft.wows.indicators.volatility.ATR) ind;
-                break;
-            }
-        }
-        if (atrRef == null) {
-            log.warn("ATR not found in indicators list. Vol-normalized scoring will use raw returns.");
-        }
 
-        // Prepare CSV
-        try {
-			csv = new TextFileHandler(props.getCSVFilePath(), props.getCSVPreamble(), "csv");
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-        // Write CSV header lazily (we need GA population for columns)
-        writeCsvHeaderIfNeeded(props.getVolNormK());
+    SocketChannel channel = null;
+    Selector selector = null;
+    FrameDecoder decoder = new FrameDecoder(4096);
+    FrameEncoder encoder = new FrameEncoder(256);
+    MarketBarParser barParser = new MarketBarParser();
+    ObjectReader tradeReader = JSONWrapper.MAPPER.readerFor(TradeMessage.class);
+    // System.nanoTime() of the read that completed the frame being handled
+    long frameReceivedAt = 0;
+    BarPipeline pipeline;
+    volatile boolean shutdown = false;
+
+    public TradingStationInterface(IndicatorGraph indicators) {
+        pipeline = new BarPipeline(indicators);
     }
 
     public TradingStationInterface() { }
 
-    public void shutdown() { shutdown = true; }
+    public void shutdown() {
+        shutdown = true;
+        // get the reader out of select()
+        Selector s = selector;
+        if (s != null) s.wakeup();
+    }
 
     public void closeSocket() {
         try {
-            if (socket != null) socket.close();
+            if (selector != null) selector.close();
+            if (channel != null) channel.close();
         } catch (IOException e) {
             log.error("Error closing socket", e);
         }
-        csv.close();
+        pipeline.close();
     }
 
+    /**
+     * Next complete message from the socket, waiting on the selector until one is available.
+     *
+     * @return null on shutdown (requested, interrupted or connection closed).
+     */
     public Message readMessageFromSocket() {
-        Message message = new Message();
-        int len = 0;
-        byte[] byteArray = new byte[4096];
+        Message message;
 
         try {
-            log.trace("read msg from inputStream");
-            Arrays.fill(byteArray, (byte)0);
-            input.read(byteArray, 0, 1);
-            message.setTopic(Character.toString((char) byteArray[0]));
-            log.trace("Message topic is '" + message.getTopic() + "'");
-
-            input.read(byteArray, 0, Long.BYTES);
-            message.setTimestamp(ByteBuffer.wrap(byteArray).getLong());
-            log.trace("Message timestamp is '" + message.getTimestamp() + "'");
-
-            Arrays.fill(byteArray, (byte)0);
-            input.read(byteArray, 0, 4);
-            len = ByteBuffer.wrap(byteArray).getInt();
-            log.trace("Going to receive " + len + " bytes");
-
-            Arrays.fill(byteArray, (byte)0);
-            input.read(byteArray, 0, len);
-            String jsonString = new String(byteArray, 0, len, StandardCharsets.UTF_8);
-            log.trace("Received json object '" + jsonString + "'");
+            while (!decoder.next()) {
+                if (shutdown) return null;
+                selector.select();
+                selector.selectedKeys().clear();
+                if (Thread.interrupted()) {
+                    log.warn("Interrupted while waiting for data");
+                    shutdown = true;
+                    return null;
+                }
+                int read = decoder.fill(channel);
+                if (read < 0) {
+                    log.warn("Connection closed by the trading station");
+                    shutdown = true;
+                    return null;
+                }
+                if (read > 0) frameReceivedAt = System.nanoTime();
+            }
+            final char topic = decoder.topic();
+            final int length = decoder.bodyLength();
+            // the binary bars are read in place, the other bodies are handed over as bytes
+            final byte[] body = (topic == BinaryBarCodec.TOPIC ? null : decoder.bodyBytes());
+            if (log.isTraceEnabled()) {
+                log.trace("Message topic is '" + topic + "', timestamp is '" + 
+                          decoder.timestamp() + "', " + length + " bytes");
+                if (body != null) {
+                    log.trace("Received json object '" + new String(body, 0, length, StandardCharsets.UTF_8) + "'");
+                }
+            }
 
-            switch(message.getTopic()) {
-                case "A":
-                    message = (TradeMessage) JSONWrapper.MAPPER.readValue(jsonString, TradeMessage.class);
+            // parse straight from the frame bytes, no intermediate String
+            switch(topic) {
+                case 'A':
+                    message = tradeReader.readValue(body, 0, length);
                     break;
-                case "B":
-                    message = (MarketBar) JSONWrapper.MAPPER.readValue(jsonString, MarketBar.class);
+                case 'B':
+                    // a new instance per bar: barSeries keeps a reference to it
+                    message = barParser.parse(body, 0, length, new MarketBar());
+                    break;
+                case BinaryBarCodec.TOPIC:
+                    message = BinaryBarCodec.decode(decoder.buffer(), decoder.bodyOffset(), length, new MarketBar());
+                    message.setTimestamp(decoder.timestamp());
+                    break;
+                case BinaryBarCodec.HELLO_TOPIC:
+                    log.info("Trading station is sending bars as topic '" +
+                             new String(body, 0, length, StandardCharsets.US_ASCII) + "'");
+                    message = new Message(Character.toString(BinaryBarCodec.HELLO_TOPIC));
+                    message.setTimestamp(decoder.timestamp());
+                    break;
+                default:
+                    message = new Message(Character.toString(topic));
+                    message.setTimestamp(decoder.timestamp());
                     break;
             }
-            log.trace("json received converted into JAVA Object");
+            log.trace("message body converted into JAVA Object");
         } catch(Exception e) {
             log.error("Exception raised ", e);
             log.error("Check the socket status to close our side and return null", e);
-            try { if (socket != null && !socket.isClosed()) socket.close(); } catch (IOException ignored) {}
+            try { if (channel != null && channel.isOpen()) channel.close(); } catch (IOException ignored) {}
+            shutdown = true;
             return null;
         }
         return message;
@@ -125,79 +133,14 @@ public class TradingStationInterface extends Thread {
         TradeMessage trade;
 
         while (!shutdown) {
-            try {
-                if (input.available() > 0) {
-                    message = this.readMessageFromSocket();
-                } else {
-                    message = null;
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            if (message == null) {
-                Utilities.pause(100);
-                continue;
-            }
+            message = this.readMessageFromSocket();
+            if (message == null) continue;
 
             log.trace("Received message: topic '" + message.getTopic() + "', timestamp: " + message.getTimestamp());
             switch(message.getTopic()) {
                 case "B":
                     log.trace("The message is a market bar.");
-                    currBar = (MarketBar) message;
-                    currBar.setBarNumber(barNumber);
-					prevBar = null;
-                    try {
-						if (barSeries.getLength() > 0)
-							prevBar = barsReader.poll().getValue();
-					} 
-                    catch (MissedItemsException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
-                    log.debug("New bar received: BarNumber " + barNumber +
-                              " Close " + currBar.getClose() +
-                              " Prev " + (prevBar != null ? prevBar.getClose() : "N/A"));
-                    
-                    barSeries.publish(currBar);
-                    
-                    // --- 1) Update indicators (ensure ATR is updated first for scaling) ---
-                    if (atrRef != null) {
-                        atrRef.add(currBar);
-                        atrRef.normalizeAndStore(currBar, atrRef, props);
-                    }
-                    for (Indicator indicator : indicators) {
-                        if (indicator == atrRef) continue;
-                        indicator.add(currBar);
-                        indicator.normalizeAndStore(currBar, atrRef, props);
-                        log.trace("Indicator: " + indicator.getClass().getSimpleName() +
-                                  ", normalizedValue: " + indicator.getNormalizedValue());
-                    }
-                    
-                    if (currBar.getBarNumber() == 0)
-                    {
-                    	barNumber++;
-                    	// nothing could be done on the very first bar
-                    	break;
-                    }
-                    
-                    // -- 2) calculate normalized values for the market move
-                    double ret = (currBar.getClose() - prevBar.getClose()) / prevBar.getClose();
-                    double atrAbs = (atrRef != null) ? atrRef.value() : Double.NaN;
-                    double atrPct = (!Double.isNaN(atrAbs) && prevBar.getClose() != 0.0) ? (atrAbs / prevBar.getClose()) : 0.0;
-                    double denom = Math.max(1e-9, props.getVolNormK() * Math.max(1e-9, atrPct));
-                    double marketMoveNorm = Math.max(-1.0, Math.min(1.0, ret / denom));                    
-                    
-                    // --- 3) For each gene: build composite yhat in [-1,1] and eval prediction
-                    ga.evalPopulation(indicators, currBar, prevBar, denom);
-	                                        
-                    // --- 5) Append one CSV line for this bar ---
-                    if (prevBar != null)
-                    {
-	                    appendCsvLine(barNumber, prevBar, ret, atrAbs, atrPct, props.getVolNormK(), marketMoveNorm);
-                    }
-                    ga.evolve(); // re-enable when you decide the cadence
-
-                    barNumber++;
+                    pipeline.onBar((MarketBar) message, frameReceivedAt);
                     break;
 
                 case "T":
@@ -209,91 +152,21 @@ public class TradingStationInterface extends Thread {
         }
     }
     
-    private void writeCsvHeaderIfNeeded(double K_VOL) {
-        if (csv == null) return;
-        try {
-            StringBuilder sb = new StringBuilder();
-            // Core bar fields
-            sb.append("barNumber,timestamp,open,high,low,close,ret,atrAbs,atrPct,K_VOL,moveNorm");
-            // For each gene, add columns
-            sb.append(",").append("name");
-            sb.append(",").append("ts");
-            sb.append(",").append("predicted");
-            sb.append(",").append("dir");
-            sb.append(",").append("#win");
-            sb.append(",").append("#Lwin");
-            sb.append(",").append("TLong");
-            sb.append(",").append("#Swin");
-            sb.append(",").append("TShort");
-            sb.append(",").append("score");
-            csv.write(sb.toString(), true);
-        } 
-        catch (Exception e) {
-            log.error("Error writing CSV header", e);
-        }
-    }
-
-    private void appendCsvLine(long barNo, MarketBar bar, double ret, double atrAbs,
-                               double atrPct, double K_VOL, double moveNorm) {
-        if (csv == null) return;
-        try {
-            StringBuilder sb = new StringBuilder(1024);
-            // Base bar fields
-            sb.append(barNo).append(',')
-              .append(bar.getTimestamp()).append(',')
-              .append(fmt(bar.getOpen())).append(',')
-              .append(fmt(bar.getHigh())).append(',')
-              .append(fmt(bar.getLow())).append(',')
-              .append(fmt(bar.getClose())).append(',')
-              .append(fmt(ret)).append(',')
-              .append(fmt(atrAbs)).append(',')
-              .append(fmt(atrPct)).append(',')
-              .append(fmt(K_VOL)).append(',')
-              .append(fmt(moveNorm));
-
-	    	ScoreHolder prediction;
-			prediction = null;
-			if ((prevBar.getBarNumber() > 0) && 
-				(ga.getArbitrator().getReader().getContentAsList().size() > 0))
-			{
-				prediction = (ScoreHolder) ga.getArbitrator().getReader().getContentAsList().getLast();
-                sb.append(',').append(prediction.name);
-                sb.append(',').append(fmt(prediction.timestamp));
-                sb.append(',').append(fmt(prediction.predictedMarketPrice));
-                sb.append(',').append(fmt(prediction.direction));
-			}
-			else
-			{
-				sb.append(",,0,0,0");
-			}
-            sb.append(',').append(fmt(ga.getArbitrator().getWinAccumulator()));
-            sb.append(',').append(fmt(ga.getArbitrator().getLongWin()));
-            sb.append(',').append(fmt(ga.getArbitrator().getTotalLong()));
-            sb.append(',').append(fmt(ga.getArbitrator().getShortWin()));
-            sb.append(',').append(fmt(ga.getArbitrator().getTotalShort()));
-            sb.append(',').append(fmt(ga.getArbitrator().getTotalScore()));
-
-            csv.write(sb.toString(), true);
-        } 
-        catch (IOException e) {
-            log.error("Error writing CSV line", e);
-        }
-    }
-
-    private static String fmt(double d) {
-        if (Double.isNaN(d) || Double.isInfinite(d)) return "";
-        // compact, enough for plotting
-        return String.format(java.util.Locale.US, "%.6f", d);
-    }
-
     public void run() {
         try {
-            socket = new Socket(props.getHost(), props.getPort());
-            input = socket.getInputStream();
+            channel = SocketChannel.open(new InetSocketAddress(props.getHost(), props.getPort()));
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+            if (props.isBinaryBars()) {
+                // negotiate the binary bars, JSON as second choice
+                FrameEncoder.writeFully(channel, encoder.hello("" + BinaryBarCodec.TOPIC + BinaryBarCodec.JSON_TOPIC,
+                                                               System.currentTimeMillis()));
+            }
             log.trace("Connected to server, going to receive messages");
             handleIncomingMessages();
-        } catch (UnknownHostException ex) {
-            log.error("Server not found: " + ex.getMessage());
+        } catch (UnresolvedAddressException ex) {
+            log.error("Server not found: " + props.getHost());
             System.exit(-1);
         } catch (IOException ex) {
             log.error("I/O error: " + ex.getMessage());
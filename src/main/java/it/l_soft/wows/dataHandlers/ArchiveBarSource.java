@@ -0,0 +1,29 @@
+package it.l_soft.wows.dataHandlers;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import it.l_soft.wows.comms.Bar;
+
+/**
+ * Bars from a BarArchive, in index order. The bars are views on the mapped columns, so
+ * nothing is copied and no MarketBar is created.
+ */
+public class ArchiveBarSource implements BarSource {
+    private final BarArchive archive;
+    private int next = 0;
+
+    public ArchiveBarSource(Path directory) throws IOException {
+        this.archive = BarArchive.open(directory);
+    }
+
+    @Override
+    public Bar next() {
+        return (next < archive.size() ? archive.get(next++) : null);
+    }
+
+    @Override
+    public void close() {
+        archive.close();
+    }
+}
@@ -0,0 +1,209 @@
+package it.l_soft.wows.dataHandlers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import it.l_soft.wows.comms.Bar;
+
+/**
+ * Columnar, memory-mapped store of historical bars.
+ *
+ * An archive is a directory with one fixed-width little-endian file per column:
+ *   timestamp.i64  open.f64  high.f64  low.f64  close.f64  volume.i64
+ * Bar i lives at byte offset i * 8 of every column; the bar number is the index.
+ *
+ * - open() maps the columns read-only: nothing is loaded up front, the OS pages the data in
+ *   as it is touched and can drop it again, so the heap cost does not grow with the history.
+ * - get(i) hands out a two-field Bar view reading straight from the mapped columns, asList()
+ *   wraps those in a List<Bar> (e.g. for IndicatorContextBuilder) without copying any bar.
+ * - Writer appends bars to a new archive.
+ *
+ * A column file is mapped as a single buffer, so an archive holds at most MAX_BARS bars.
+ * The mappings live until garbage collected, close() does not release them.
+ */
+public final class BarArchive implements Closeable {
+    public static final String[] COLUMNS = { "timestamp.i64", "open.f64", "high.f64", "low.f64", "close.f64", "volume.i64" };
+    public static final int MAX_BARS = Integer.MAX_VALUE / Long.BYTES;
+
+    private static final int TIMESTAMP = 0, OPEN = 1, HIGH = 2, LOW = 3, CLOSE = 4, VOLUME = 5;
+
+    private final Path directory;
+    private final int size;
+    private final ByteBuffer timestamp, open, high, low, close, volume;
+
+    private BarArchive(Path directory, int size, ByteBuffer[] columns) {
+        this.directory = directory;
+        this.size = size;
+        this.timestamp = columns[TIMESTAMP];
+        this.open = columns[OPEN];
+        this.high = columns[HIGH];
+        this.low = columns[LOW];
+        this.close = columns[CLOSE];
+        this.volume = columns[VOLUME];
+    }
+
+    /** True if 'path' is a directory holding the archive columns. */
+    public static boolean isArchive(Path path) {
+        if (!Files.isDirectory(path)) return false;
+        for (String column : COLUMNS) {
+            if (!Files.isRegularFile(path.resolve(column))) return false;
+        }
+        return true;
+    }
+
+    public static BarArchive open(Path directory) throws IOException {
+        ByteBuffer[] columns = new ByteBuffer[COLUMNS.length];
+        long bytes = -1;
+        for (int c = 0; c < COLUMNS.length; c++) {
+            Path file = directory.resolve(COLUMNS[c]);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long length = channel.size();
+                if (bytes >= 0 && length != bytes) {
+                    throw new IOException(file + " has " + length + " bytes, the other columns " + bytes);
+                }
+                if (length % Long.BYTES != 0 || length / Long.BYTES > MAX_BARS) {
+                    throw new IOException(file + ": invalid column length " + length);
+                }
+                bytes = length;
+                // the mapping stays valid after the channel is closed
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                columns[c] = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return new BarArchive(directory, (int) (bytes / Long.BYTES), columns);
+    }
+
+    public int size() { return size; }
+    public Path getDirectory() { return directory; }
+
+    public long getTimestamp(int i) { return timestamp.getLong(i << 3); }
+    public double getOpen(int i) { return open.getDouble(i << 3); }
+    public double getHigh(int i) { return high.getDouble(i << 3); }
+    public double getLow(int i) { return low.getDouble(i << 3); }
+    public double getClose(int i) { return close.getDouble(i << 3); }
+    public long getVolume(int i) { return volume.getLong(i << 3); }
+
+    /** View of bar i; reads go to the mapped columns. */
+    public Bar get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        return new BarView(this, i);
+    }
+
+    /** The whole archive as a read-only random access list of views. */
+    public List<Bar> asList() {
+        return new ArchiveList();
+    }
+
+    /**
+     * Does not unmap anything: Java has no supported way to release a MappedByteBuffer, so the
+     * columns stay mapped (and the files open, as far as the OS is concerned) until this archive
+     * and every Bar it handed out are garbage collected. Those bars stay readable after close().
+     * Kept so that ArchiveBarSource can close it like any other BarSource.
+     */
+    @Override
+    public void close() {
+    }
+
+    private final class ArchiveList extends AbstractList<Bar> implements RandomAccess {
+        @Override
+        public Bar get(int index) {
+            return BarArchive.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /** Flyweight over one row of the columns. */
+    static final class BarView implements Bar {
+        private final BarArchive archive;
+        private final int index;
+
+        BarView(BarArchive archive, int index) {
+            this.archive = archive;
+            this.index = index;
+        }
+
+        @Override public long getBarNumber() { return index; }
+        @Override public long getTimestamp() { return archive.getTimestamp(index); }
+        @Override public double getOpen() { return archive.getOpen(index); }
+        @Override public double getHigh() { return archive.getHigh(index); }
+        @Override public double getLow() { return archive.getLow(index); }
+        @Override public double getClose() { return archive.getClose(index); }
+        @Override public long getVolume() { return archive.getVolume(index); }
+    }
+
+    /**
+     * Appends bars to a new archive (existing column files are replaced), buffering every
+     * column in memory up to 'bufferBars' bars before writing it out.
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel[] channels = new FileChannel[COLUMNS.length];
+        private final ByteBuffer[] buffers = new ByteBuffer[COLUMNS.length];
+        private long written = 0;
+
+        public Writer(Path directory, int bufferBars) throws IOException {
+            Files.createDirectories(directory);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                channels[c] = FileChannel.open(directory.resolve(COLUMNS[c]), StandardOpenOption.CREATE,
+                                               StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                buffers[c] = ByteBuffer.allocateDirect(Math.max(1, bufferBars) * Long.BYTES)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        public Writer(Path directory) throws IOException {
+            this(directory, 8192);
+        }
+
+        public void append(Bar bar) throws IOException {
+            if (written >= MAX_BARS) throw new IOException("Archive full (" + MAX_BARS + " bars)");
+            if (!buffers[0].hasRemaining()) flush();
+            buffers[TIMESTAMP].putLong(bar.getTimestamp());
+            buffers[OPEN].putDouble(bar.getOpen());
+            buffers[HIGH].putDouble(bar.getHigh());
+            buffers[LOW].putDouble(bar.getLow());
+            buffers[CLOSE].putDouble(bar.getClose());
+            buffers[VOLUME].putLong(bar.getVolume());
+            written++;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            }
+            finally {
+                for (FileChannel channel : channels) {
+                    channel.close();
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            for (int c = 0; c < COLUMNS.length; c++) {
+                ByteBuffer b = buffers[c].flip();
+                while (b.hasRemaining()) {
+                    channels[c].write(b);
+                }
+                b.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package it.l_soft.wows.dataHandlers;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import it.l_soft.wows.ApplicationProperties;
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.ga.GAEngine;
+import it.l_soft.wows.ga.ScoreHistory;
+import it.l_soft.wows.indicators.Indicator;
+import it.l_soft.wows.indicators.IndicatorGraph;
+import it.l_soft.wows.indicators.volatility.ATR;
+import it.l_soft.wows.utils.LatencyHistogram;
+import it.l_soft.wows.utils.RingBuffer;
+import it.l_soft.wows.utils.RingBuffer.MissedItemsException;
+import it.l_soft.wows.utils.TextFileHandler;
+
+/**
+ * What happens to every bar, whatever its source (live feed or backtest file):
+ *   indicators update -> market move normalization -> GAEngine.evalPopulation -> CSV line -> evolve
+ *   (on the evolutionCadence)
+ *
+ * Bars are numbered here, in arrival order, starting from 0: every source's bar (MarketBar,
+ * archive view, ...) goes through the pipeline as a NumberedBar carrying that number, so the
+ * GA and the CSV see the same numbering whatever the source did with its own.
+ */
+public class BarPipeline {
+    private final Logger log = Logger.getLogger(this.getClass());
+    ApplicationProperties props = ApplicationProperties.getInstance();
+    long barNumber = 0;
+
+    IndicatorGraph graph;
+    List<Indicator> indicators;     // the graph catalog
+    GAEngine ga;
+    RingBuffer<Bar> barSeries = new RingBuffer<Bar>(props.getBarsInMemory());
+    RingBuffer<Bar>.ConsumerHandle barsReader = barSeries.createConsumer();
+    Bar prevBar = null;
+    Bar currBar = null;
+    ATR atrRef = null;
+    TextFileHandler csv;
+    LatencyHistogram barToPrediction = new LatencyHistogram("bar to prediction");
+    LatencyHistogram barToEvolved = new LatencyHistogram("bar to evolved population");
+
+    public BarPipeline(IndicatorGraph graph) {
+        this.graph = graph;
+        this.indicators = graph.getCatalog();
+        ga = new GAEngine(indicators);
+        log.info("Indicators: " + indicators.size() + " configured, " + graph.size() + " computed per bar");
+
+        // Resolve ATR reference safely (no index assumptions)
+        for (Indicator ind : indicators) {
+            if (ind instanceof ATR) {
+                atrRef = (ATR) ind;
+                break;
+            }
+        }
+        if (atrRef == null) {
+            log.warn("ATR not found in indicators list. Vol-normalized scoring will use raw returns.");
+        }
+
+        // Prepare CSV
+        try {
+			csv = new TextFileHandler(props.getCSVFilePath(), props.getCSVPreamble(), "csv");
+			csv.setFlushPolicy(props.getCSVFlushPolicy());
+			csv.setFsyncOnRotate(props.isFsyncOnRotate());
+		} catch (Exception e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+        // Write CSV header lazily (we need GA population for columns)
+        writeCsvHeaderIfNeeded(props.getVolNormK());
+    }
+
+    /**
+     * Run one bar through the whole pipeline.
+     *
+     * @param receivedAt System.nanoTime() when the bar became available, for the latency histograms
+     */
+    public void onBar(Bar bar, long receivedAt) {
+        currBar = new NumberedBar(bar, barNumber);
+		prevBar = null;
+        try {
+			if (barSeries.getLength() > 0)
+				prevBar = barsReader.pollValue();
+		}
+        catch (MissedItemsException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+        if (log.isDebugEnabled()) {
+            log.debug("New bar received: BarNumber " + barNumber +
+                      " Close " + currBar.getClose() +
+                      " Prev " + (prevBar != null ? prevBar.getClose() : "N/A"));
+        }
+
+        barSeries.publish(currBar);
+
+        // --- 1) Update indicators, each shared one once, then normalize (ATR is updated by then) ---
+        graph.update(currBar);
+        for (Indicator indicator : indicators) {
+            indicator.normalizeAndStore(currBar, atrRef, props);
+            if (log.isTraceEnabled()) {
+                log.trace("Indicator: " + indicator.getClass().getSimpleName() +
+                          ", normalizedValue: " + indicator.getNormalizedValue());
+            }
+        }
+
+        if (prevBar == null)
+        {
+        	barNumber++;
+        	// nothing could be done on the very first bar
+        	return;
+        }
+
+        // -- 2) calculate normalized values for the market move
+        double ret = (currBar.getClose() - prevBar.getClose()) / prevBar.getClose();
+        double atrAbs = (atrRef != null) ? atrRef.value() : Double.NaN;
+        double atrPct = (!Double.isNaN(atrAbs) && prevBar.getClose() != 0.0) ? (atrAbs / prevBar.getClose()) : 0.0;
+        double denom = Math.max(1e-9, props.getVolNormK() * Math.max(1e-9, atrPct));
+        double marketMoveNorm = Math.max(-1.0, Math.min(1.0, ret / denom));
+
+        // --- 3) For each gene: build composite yhat in [-1,1] and eval prediction
+        ga.evalPopulation(indicators, currBar, prevBar, denom);
+
+        // --- 5) Append one CSV line for this bar ---
+        if (prevBar != null)
+        {
+            appendCsvLine(barNumber, prevBar, ret, atrAbs, atrPct, props.getVolNormK(), marketMoveNorm);
+        }
+        barToPrediction.recordSince(receivedAt);
+        ga.evolveIfDue();
+        barToEvolved.recordSince(receivedAt);
+
+        barNumber++;
+    }
+
+    /** Log the latency summaries, close the CSV and release the GA resources. */
+    public void close() {
+        log.info(barToPrediction.summary());
+        log.info(barToEvolved.summary());
+        if (csv != null) csv.close();
+        ga.cleanUpOnExit();
+    }
+
+    public long getBarsProcessed() {
+        return barNumber;
+    }
+
+    public GAEngine getGA() {
+        return ga;
+    }
+
+    public LatencyHistogram getBarToPrediction() {
+        return barToPrediction;
+    }
+
+    public LatencyHistogram getBarToEvolved() {
+        return barToEvolved;
+    }
+
+    private void writeCsvHeaderIfNeeded(double K_VOL) {
+        if (csv == null) return;
+        try {
+            StringBuilder sb = new StringBuilder();
+            // Core bar fields
+            sb.append("barNumber,timestamp,open,high,low,close,ret,atrAbs,atrPct,K_VOL,moveNorm");
+            // For each gene, add columns
+            sb.append(",").append("name");
+            sb.append(",").append("ts");
+            sb.append(",").append("predicted");
+            sb.append(",").append("dir");
+            sb.append(",").append("#win");
+            sb.append(",").append("#Lwin");
+            sb.append(",").append("TLong");
+            sb.append(",").append("#Swin");
+            sb.append(",").append("TShort");
+            sb.append(",").append("score");
+            csv.write(sb.toString(), true);
+        }
+        catch (Exception e) {
+            log.error("Error writing CSV header", e);
+        }
+    }
+
+    private void appendCsvLine(long barNo, Bar bar, double ret, double atrAbs,
+                               double atrPct, double K_VOL, double moveNorm) {
+        if (csv == null) return;
+        try {
+            StringBuilder sb = new StringBuilder(1024);
+            // Base bar fields
+            sb.append(barNo).append(',')
+              .append(bar.getTimestamp()).append(',')
+              .append(fmt(bar.getOpen())).append(',')
+              .append(fmt(bar.getHigh())).append(',')
+              .append(fmt(bar.getLow())).append(',')
+              .append(fmt(bar.getClose())).append(',')
+              .append(fmt(ret)).append(',')
+              .append(fmt(atrAbs)).append(',')
+              .append(fmt(atrPct)).append(',')
+              .append(fmt(K_VOL)).append(',')
+              .append(fmt(moveNorm));
+
+	    	ScoreHistory predictions = ga.getArbitrator().getScores();
+			// prevBar number is barNo - 1
+			if ((barNo > 1) && 
+				(predictions.size() > 0))
+			{
+				long last = predictions.last();
+                sb.append(',').append(predictions.getName(last));
+                sb.append(',').append(fmt(predictions.getTimestamp(last)));
+                sb.append(',').append(fmt(predictions.getPredictedPrice(last)));
+                sb.append(',').append(fmt(predictions.getDirection(last)));
+			}
+			else
+			{
+				sb.append(",,0,0,0");
+			}
+            sb.append(',').append(fmt(ga.getArbitrator().getWinAccumulator()));
+            sb.append(',').append(fmt(ga.getArbitrator().getLongWin()));
+            sb.append(',').append(fmt(ga.getArbitrator().getTotalLong()));
+            sb.append(',').append(fmt(ga.getArbitrator().getShortWin()));
+            sb.append(',').append(fmt(ga.getArbitrator().getTotalShort()));
+            sb.append(',').append(fmt(ga.getArbitrator().getTotalScore()));
+
+            csv.write(sb.toString(), true);
+        } 
+        catch (IOException e) {
+            log.error("Error writing CSV line", e);
+        }
+    }
+
+    /** A source bar seen with its pipeline number. */
+    private static final class NumberedBar implements Bar {
+        private final Bar bar;
+        private final long barNumber;
+
+        NumberedBar(Bar bar, long barNumber) {
+            this.bar = bar;
+            this.barNumber = barNumber;
+        }
+
+        @Override public long getBarNumber() { return barNumber; }
+        @Override public long getTimestamp() { return bar.getTimestamp(); }
+        @Override public double getOpen() { return bar.getOpen(); }
+        @Override public double getHigh() { return bar.getHigh(); }
+        @Override public double getLow() { return bar.getLow(); }
+        @Override public double getClose() { return bar.getClose(); }
+        @Override public long getVolume() { return bar.getVolume(); }
+    }
+
+    private static String fmt(double d) {
+        if (Double.isNaN(d) || Double.isInfinite(d)) return "";
+        // compact, enough for plotting
+        return String.format(java.util.Locale.US, "%.6f", d);
+    }
+}
+
@@ -0,0 +1,33 @@
+package it.l_soft.wows.dataHandlers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import it.l_soft.wows.comms.Bar;
+
+/**
+ * Sequential reader of recorded bars, oldest first.
+ */
+public interface BarSource extends Closeable {
+
+    /**
+     * @return the next bar (a distinct instance per bar, the pipeline keeps it), or null at the end.
+     */
+    Bar next() throws IOException;
+
+    /**
+     * Pick the reader from the path: a BarArchive directory, *.csv (and *.txt) as text, anything
+     * else as a recording of trading station frames (topics B and C).
+     */
+    static BarSource open(Path file) throws IOException {
+        if (BarArchive.isArchive(file)) {
+            return new ArchiveBarSource(file);
+        }
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".csv") || name.endsWith(".txt")) {
+            return new CsvBarSource(file);
+        }
+        return new FrameFileBarSource(file);
+    }
+}
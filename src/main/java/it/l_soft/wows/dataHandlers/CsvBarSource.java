@@ -0,0 +1,165 @@
+package it.l_soft.wows.dataHandlers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import it.l_soft.wows.comms.MarketBar;
+
+/**
+ * Bars from a text file, one per line, ',' ';' or tab separated.
+ *
+ * - With a header line the columns are found by name (case insensitive): timestamp (or time,
+ *   datetime, date), open, high, low, close, volume. A separate "date" and "time" pair is
+ *   joined.
+ * - Without a header the layout is timestamp,open,high,low,close[,volume].
+ * - Timestamps are epoch milliseconds (or seconds, when too small to be milliseconds), or a
+ *   local date time like 2020-01-31 09:30[:00[.000]] (also with 'T', '/' or '.' separators,
+ *   or compact 20200131 093000) in the default time zone.
+ */
+public class CsvBarSource implements BarSource {
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss][.SSS]");
+    private static final long MIN_EPOCH_MILLIS = 100_000_000_000L;
+
+    private final BufferedReader reader;
+    private final Path file;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private String pending;
+    private long lineNumber = 0;
+
+    private int timestampCol = 0, timeCol = -1;
+    private int openCol = 1, highCol = 2, lowCol = 3, closeCol = 4, volumeCol = 5;
+
+    public CsvBarSource(Path file) throws IOException {
+        this.file = file;
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        readHeader();
+    }
+
+    @Override
+    public MarketBar next() throws IOException {
+        String line;
+        if (pending != null) {
+            line = pending;
+            pending = null;
+        } else {
+            line = nextLine();
+        }
+        if (line == null) return null;
+
+        String[] f = split(line);
+        try {
+            String when = f[timestampCol].trim();
+            if (timeCol >= 0) when = when + " " + f[timeCol].trim();
+            long timestamp = parseTimestamp(when);
+            long volume = (volumeCol >= 0 && volumeCol < f.length && !f[volumeCol].isBlank())
+                          ? (long) Double.parseDouble(f[volumeCol].trim()) : 0;
+            MarketBar bar = new MarketBar(0, timestamp,
+                                          Double.parseDouble(f[openCol].trim()),
+                                          Double.parseDouble(f[highCol].trim()),
+                                          Double.parseDouble(f[lowCol].trim()),
+                                          Double.parseDouble(f[closeCol].trim()),
+                                          volume);
+            bar.setTimestamp(timestamp);
+            return bar;
+        }
+        catch (NumberFormatException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException(file + ":" + lineNumber + ": cannot parse '" + line + "'", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        String first = nextLine();
+        if (first == null) return;
+        String[] f = split(first);
+        boolean header = false;
+        for (String s : f) {
+            // MetaStock style names are in angle brackets, e.g. <DATE>
+            String t = s.trim().replace("<", "");
+            if (!t.isEmpty() && Character.isLetter(t.charAt(0))) {
+                header = true;
+                break;
+            }
+        }
+        if (!header) {
+            pending = first;
+            return;
+        }
+
+        timestampCol = openCol = highCol = lowCol = closeCol = volumeCol = timeCol = -1;
+        int dateCol = -1;
+        for (int i = 0; i < f.length; i++) {
+            switch (f[i].trim().toLowerCase().replace("<", "").replace(">", "")) {
+                case "timestamp": case "datetime": case "date time": timestampCol = i; break;
+                case "date": dateCol = i; break;
+                case "time": timeCol = i; break;
+                case "open": case "o": openCol = i; break;
+                case "high": case "h": highCol = i; break;
+                case "low": case "l": lowCol = i; break;
+                case "close": case "c": case "last": closeCol = i; break;
+                case "volume": case "vol": case "v": volumeCol = i; break;
+                default: break;
+            }
+        }
+        if (timestampCol < 0) {
+            // "date" alone or "date" + "time", or only "time" holding the whole timestamp
+            timestampCol = (dateCol >= 0 ? dateCol : timeCol);
+            if (dateCol < 0) timeCol = -1;
+        } else {
+            timeCol = -1;
+        }
+        if (timestampCol < 0 || openCol < 0 || highCol < 0 || lowCol < 0 || closeCol < 0) {
+            throw new IOException(file + ": header must name timestamp (or date/time), open, high, low and close");
+        }
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (!line.isBlank() && !line.startsWith("#")) return line;
+        }
+        return null;
+    }
+
+    private static String[] split(String line) {
+        return line.split("[,;\t]", -1);
+    }
+
+    private long parseTimestamp(String s) {
+        if (!s.isEmpty() && s.chars().allMatch(Character::isDigit) && s.length() != 8) {
+            long v = Long.parseLong(s);
+            return (v < MIN_EPOCH_MILLIS ? v * 1000 : v);
+        }
+        return LocalDateTime.parse(normalizeDateTime(s), DATE_TIME).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    // Bring the accepted variants to "yyyy-MM-dd HH:mm[:ss][.SSS]"
+    private static String normalizeDateTime(String s) {
+        String t = s.replace('T', ' ').trim();
+        int space = t.indexOf(' ');
+        String date = (space < 0 ? t : t.substring(0, space));
+        String time = (space < 0 ? "00:00" : t.substring(space + 1).trim());
+
+        date = date.replace('/', '-').replace('.', '-');
+        if (date.length() == 8 && date.indexOf('-') < 0) {
+            date = date.substring(0, 4) + "-" + date.substring(4, 6) + "-" + date.substring(6);
+        }
+        if (time.indexOf(':') < 0 && (time.length() == 4 || time.length() == 6)) {
+            time = time.substring(0, 2) + ":" + time.substring(2, 4) +
+                   (time.length() == 6 ? ":" + time.substring(4) : "");
+        }
+        return date + " " + time;
+    }
+}
@@ -0,0 +1,58 @@
+package it.l_soft.wows.dataHandlers;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import it.l_soft.wows.comms.BinaryBarCodec;
+import it.l_soft.wows.comms.FrameDecoder;
+import it.l_soft.wows.comms.MarketBar;
+import it.l_soft.wows.comms.MarketBarParser;
+
+/**
+ * Bars from a file holding trading station frames back to back, exactly as they come on the
+ * socket: binary bars (topic C) and JSON bars (topic B). Other topics are skipped.
+ */
+public class FrameFileBarSource implements BarSource {
+    private final FileChannel channel;
+    private final FrameDecoder decoder = new FrameDecoder(1 << 16);
+    private final MarketBarParser parser = new MarketBarParser();
+    private final Path file;
+
+    public FrameFileBarSource(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    @Override
+    public MarketBar next() throws IOException {
+        while (true) {
+            while (!decoder.next()) {
+                if (decoder.fill(channel) < 0) {
+                    if (decoder.buffer().hasRemaining()) {
+                        throw new IOException(file + " ends with a truncated frame");
+                    }
+                    return null;
+                }
+            }
+            switch (decoder.topic()) {
+                case BinaryBarCodec.TOPIC: {
+                    MarketBar bar = BinaryBarCodec.decode(decoder.buffer(), decoder.bodyOffset(),
+                                                          decoder.bodyLength(), new MarketBar());
+                    bar.setTimestamp(decoder.timestamp());
+                    return bar;
+                }
+                case BinaryBarCodec.JSON_TOPIC:
+                    return parser.parse(decoder.bodyBytes(), 0, decoder.bodyLength(), new MarketBar());
+                default:
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
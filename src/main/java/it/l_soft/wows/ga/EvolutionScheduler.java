@@ -0,0 +1,125 @@
+package it.l_soft.wows.ga;
+
+/**
+ * Decides on which bars GAEngine evolves the population.
+ *
+ * Spec syntax (package.properties, evolutionCadence):
+ *   bar            evolve after every bar (default, the historical behavior)
+ *   bars:N         evolve every N bars
+ *   millis:T       evolve on the first bar at least T ms after the previous evolution
+ *   stagnation:N   evolve once the best fitness did not improve for N bars in a row
+ *
+ * A scheduler keeps the state of its own cadence, so every GAEngine parses its own instance.
+ * Only the bar thread calls it.
+ */
+public final class EvolutionScheduler {
+	public enum Mode { EVERY_BAR, EVERY_N_BARS, INTERVAL, STAGNATION }
+
+	private final Mode mode;
+	private final long threshold;	// bars for EVERY_N_BARS and STAGNATION, milliseconds for INTERVAL
+
+	private long barsSinceEvolution = 0;
+	private long lastEvolutionMillis;
+	private double bestFitness = Double.NEGATIVE_INFINITY;
+	private long barsWithoutImprovement = 0;
+
+	private EvolutionScheduler(Mode mode, long threshold) {
+		this.mode = mode;
+		this.threshold = threshold;
+		this.lastEvolutionMillis = System.currentTimeMillis();
+	}
+
+	public static EvolutionScheduler everyBar() {
+		return new EvolutionScheduler(Mode.EVERY_BAR, 1);
+	}
+
+	public static EvolutionScheduler everyBars(int n) {
+		if (n <= 0) throw new IllegalArgumentException("bars must be > 0");
+		return (n == 1 ? everyBar() : new EvolutionScheduler(Mode.EVERY_N_BARS, n));
+	}
+
+	public static EvolutionScheduler everyMillis(long millis) {
+		if (millis <= 0) throw new IllegalArgumentException("millis must be > 0");
+		return new EvolutionScheduler(Mode.INTERVAL, millis);
+	}
+
+	public static EvolutionScheduler onStagnation(int bars) {
+		if (bars <= 0) throw new IllegalArgumentException("stagnation bars must be > 0");
+		return new EvolutionScheduler(Mode.STAGNATION, bars);
+	}
+
+	public static EvolutionScheduler parse(String spec) {
+		String s = spec.trim().toLowerCase();
+		int colon = s.indexOf(':');
+		String kind = (colon < 0 ? s : s.substring(0, colon).trim());
+		String arg = (colon < 0 ? null : s.substring(colon + 1).trim());
+		switch (kind) {
+			case "bar":
+				if (arg == null) return everyBar();
+				break;
+			case "bars":
+				if (arg != null) return everyBars(Integer.parseInt(arg));
+				break;
+			case "millis":
+				if (arg != null) return everyMillis(Long.parseLong(arg));
+				break;
+			case "stagnation":
+				if (arg != null) return onStagnation(Integer.parseInt(arg));
+				break;
+		}
+		throw new IllegalArgumentException("Invalid evolution cadence: " + spec +
+										   " (expected bar, bars:N, millis:T or stagnation:N)");
+	}
+
+	/**
+	 * Account for one evaluated bar.
+	 *
+	 * @param bestFitness fitness of the best ranked gene on this bar
+	 * @return true if the population should evolve now; the caller then calls evolved()
+	 */
+	public boolean isDue(long nowMillis, double bestFitness) {
+		barsSinceEvolution++;
+		switch (mode) {
+			case EVERY_N_BARS:
+				return barsSinceEvolution >= threshold;
+			case INTERVAL:
+				return nowMillis - lastEvolutionMillis >= threshold;
+			case STAGNATION:
+				if (bestFitness > this.bestFitness) {
+					this.bestFitness = bestFitness;
+					barsWithoutImprovement = 0;
+				} else {
+					barsWithoutImprovement++;
+				}
+				return barsWithoutImprovement >= threshold;
+			default:
+				return true;
+		}
+	}
+
+	/** Restart the cadence after an evolution. */
+	public void evolved(long nowMillis) {
+		barsSinceEvolution = 0;
+		lastEvolutionMillis = nowMillis;
+		bestFitness = Double.NEGATIVE_INFINITY;
+		barsWithoutImprovement = 0;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public long getThreshold() {
+		return threshold;
+	}
+
+	@Override
+	public String toString() {
+		switch (mode) {
+			case EVERY_N_BARS:	return "bars:" + threshold;
+			case INTERVAL:		return "millis:" + threshold;
+			case STAGNATION:	return "stagnation:" + threshold;
+			default:			return "bar";
+		}
+	}
+}
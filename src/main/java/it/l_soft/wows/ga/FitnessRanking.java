@@ -0,0 +1,122 @@
+package it.l_soft.wows.ga;
+
+/**
+ * Orders population rows by a precomputed fitness key without boxing: the rows are sorted in an
+ * int[] comparing keys[row] directly.
+ *
+ * - rank() sorts all the rows.
+ * - top() only puts the best k rows, sorted, in front: a quickselect moves them there in linear
+ *   time and only those k are sorted; the other rows follow in no particular order.
+ *
+ * Order: higher key first (Double.compare semantics, so NaN ranks above everything), equal keys
+ * by ascending row. That is a total order, hence the result does not depend on the algorithm
+ * and is the same the stable boxed sort gave.
+ */
+public final class FitnessRanking {
+    private static final int INSERTION_SORT_THRESHOLD = 24;
+
+    private FitnessRanking() {
+    }
+
+    /**
+     * Rank rows [0, n) by keys, best first.
+     *
+     * @param out reused when it has length n, otherwise a new array is returned
+     */
+    public static int[] rank(double[] keys, int n, int[] out) {
+        int[] rows = (out != null && out.length == n) ? out : new int[n];
+        for (int i = 0; i < n; i++) rows[i] = i;
+        sort(keys, rows, 0, n - 1);
+        return rows;
+    }
+
+    /**
+     * Move the best k rows of [0, n), best first, to the front of the returned array.
+     *
+     * @param out reused when it has length n, otherwise a new array is returned
+     */
+    public static int[] top(double[] keys, int n, int k, int[] out) {
+        int[] rows = (out != null && out.length == n) ? out : new int[n];
+        for (int i = 0; i < n; i++) rows[i] = i;
+        if (k >= n) {
+            sort(keys, rows, 0, n - 1);
+        } else if (k > 0) {
+            select(keys, rows, 0, n - 1, k - 1);
+            sort(keys, rows, 0, k - 1);
+        }
+        return rows;
+    }
+
+    /** True if row a ranks before row b. */
+    static boolean before(double[] keys, int a, int b) {
+        int c = Double.compare(keys[a], keys[b]);
+        return (c > 0) || (c == 0 && a < b);
+    }
+
+    // Quicksort on rows[lo..hi] (inclusive), median of three pivot, insertion sort on short ranges
+    private static void sort(double[] keys, int[] rows, int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            int mid = (lo + hi) >>> 1;
+            if (before(keys, rows[mid], rows[lo])) swap(rows, lo, mid);
+            if (before(keys, rows[hi], rows[lo])) swap(rows, lo, hi);
+            if (before(keys, rows[hi], rows[mid])) swap(rows, mid, hi);
+            int pivot = rows[mid];
+
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (before(keys, rows[i], pivot)) i++;
+                while (before(keys, pivot, rows[j])) j--;
+                if (i <= j) swap(rows, i++, j--);
+            }
+            // recurse on the smaller side, loop on the larger one
+            if (j - lo < hi - i) {
+                sort(keys, rows, lo, j);
+                lo = i;
+            } else {
+                sort(keys, rows, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= lo && before(keys, row, rows[j])) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    // Quickselect: reorder rows[lo..hi] so that position 'nth' holds the row it would hold once
+    // sorted, with only better rows before it
+    private static void select(double[] keys, int[] rows, int lo, int hi, int nth) {
+        while (hi > lo) {
+            int mid = (lo + hi) >>> 1;
+            if (before(keys, rows[mid], rows[lo])) swap(rows, lo, mid);
+            if (before(keys, rows[hi], rows[lo])) swap(rows, lo, hi);
+            if (before(keys, rows[hi], rows[mid])) swap(rows, mid, hi);
+            int pivot = rows[mid];
+
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (before(keys, rows[i], pivot)) i++;
+                while (before(keys, pivot, rows[j])) j--;
+                if (i <= j) swap(rows, i++, j--);
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void swap(int[] rows, int i, int j) {
+        int t = rows[i];
+        rows[i] = rows[j];
+        rows[j] = t;
+    }
+}
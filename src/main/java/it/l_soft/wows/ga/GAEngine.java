@@ -1,15 +1,20 @@
 package it.l_soft.wows.ga;
 
 import it.l_soft.wows.ApplicationProperties;
-import it.l_soft.wows.comms.MarketBar;
-import it.l_soft.wows.ga.Gene.ScoreHolder;
+import it.l_soft.wows.comms.Bar;
 import it.l_soft.wows.indicators.Indicator;
-import it.l_soft.wows.indicators.volatility.ATR;
+import it.l_soft.wows.utils.AsyncLineWriter;
 import it.l_soft.wows.utils.TextFileHandler;
-import it.l_soft.wows.utils.RingBuffer.MissedItemsException;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
 import org.apache.log4j.Logger;
 
@@ -17,22 +22,56 @@ public final class GAEngine {
 	private final Logger log = Logger.getLogger(this.getClass());
 	ApplicationProperties props = ApplicationProperties.getInstance();
     private final List<Indicator> catalog; // all available indicator *prototypes* (NOT shared state!)
-    private final List<Gene> population = new ArrayList<>();
+    private PopulationMatrix population;
     private TextFileHandler outGeneEvolution;
+    private AsyncLineWriter arbitratorDump = null;
     private Gene arbitrator = null;
-    private List<Gene> rank;
+    private int[] rank;                    // population rows, the first rankedRows best first
+    private int rankedRows = 0;
+    private double[] fitness = new double[0]; // ranking key per population row
 
-    // Shared ATR for normalization scaling
-    private final ATR atrScale;
+    // When evolve() runs
+    private final EvolutionScheduler evolutionScheduler;
+
+    // Background evolution: null when evolving on the bar thread. The next generation is built
+    // by the executor and handed over through nextGeneration, evalPopulation swaps it in
+    private final ExecutorService evolutionExecutor;
+    private final AtomicReference<Generation> nextGeneration = new AtomicReference<Generation>();
+    private Future<?> evolution = null;
+
+    // Workers for the population evaluation, null when running sequentially
+    private final ForkJoinPool evalPool;
+
+    // Compute yhat through the Vector API kernel (needs --add-modules jdk.incubator.vector)
+    private final boolean vectorKernel;
+
+    // Per bar snapshot of the catalog normalized values, already scaled to [-1,1]
+    private double[] normalized = new double[0];
 
     // For horizon scoring, keep a ring of past closes (or compute pct when horizon fulfilled)
 //  private final Deque<Double> closeRing = new ArrayDeque<>();
 
     public GAEngine(List<Indicator> indicatorCatalog) {
         this.catalog = indicatorCatalog;
-        this.atrScale = new ATR(props.getAtrPeriodForScaling());
+        this.evolutionScheduler = EvolutionScheduler.parse(props.getEvolutionCadence());
+        this.evalPool = (props.getEvalThreads() > 1) ? new ForkJoinPool(props.getEvalThreads()) : null;
+        this.evolutionExecutor = props.isEvolutionInBackground()
+        		? Executors.newSingleThreadExecutor(r -> {
+        			Thread t = new Thread(r, "evolution");
+        			t.setDaemon(true);
+        			return t;
+        		  })
+        		: null;
+        if (props.isEvalVectorKernel() && !PopulationMatrix.isVectorKernelAvailable())
+        {
+        	log.warn("evalVectorKernel requested but the vector kernel is not available (build with -Pvector, run with " +
+        			 "--add-modules jdk.incubator.vector). Using the scalar kernel");
+        }
+        this.vectorKernel = props.isEvalVectorKernel() && PopulationMatrix.isVectorKernelAvailable();
         try {
 			this.outGeneEvolution = new TextFileHandler(props.getGeneEvolutionFilePath(), "GE", "txt");
+			this.outGeneEvolution.setFlushPolicy(props.getGeneEvolutionFlushPolicy());
+			this.outGeneEvolution.setFsyncOnRotate(props.isFsyncOnRotate());
 		} catch (Exception e) {
 			// TODO Auto-generated catch block
 			this.outGeneEvolution = null;
@@ -49,9 +88,15 @@ public final class GAEngine {
         	temp = new TextFileHandler(props.getGeneEvalDumpPath(), 
 									   props.getGeneEvalDumpName() + "_" + "arbi", 
 									   "csv", false, false);
+			temp.setFsyncOnRotate(props.isFsyncOnRotate());
 			temp.write("Gene,Indicators,BarsSurvived,MktTS,MktBar#,MktDir,Direction (M-P)," +
 						"PrevClose,CurrClose,PredMktPrice,PredMove,Denom,NextPredScore", true);
-			temp.close();
+			// the arbitrator rows are appended by a background writer, kept open for the whole run
+			arbitratorDump = new AsyncLineWriter(temp, "arbitratorDump",
+												 props.getGeneEvalDumpQueueSize(),
+												 props.getGeneEvalDumpBatchSize(),
+												 props.getGeneEvalDumpFlushMillis(),
+												 props.getGeneEvalDumpOverflow());
 		} catch (Exception e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -59,159 +104,332 @@ public final class GAEngine {
     }
 
     private void initPopulation() {
-        population.clear();
-        for (int i = 0; i < props.getPopulationSize(); i++) {
-            population.add(randomGene());
+        population = new PopulationMatrix(props.getPopulationSize(), props.getGeneSize(),
+        								  Math.max(0, props.getValidScoreHistoryLength()));
+        for (int row = 0; row < population.size(); row++) {
+            randomGene(population, row);
         }
     }
 
-    private Gene randomGene() {
-    	String geneIndicators = "";
+    private void randomGene(PopulationMatrix m, int row) {
         ThreadLocalRandom r = ThreadLocalRandom.current();
-        int[] indIdx = new int[props.getGeneSize()];
-        double[] weigths = new double[props.getGeneSize()];
-        
-        for (int i = 0; i < props.getGeneSize(); i++) {
+        for (int i = 0; i < m.getGeneSize(); i++) {
         	// use the n-th indicator in the indicators list
         	// theoretically an indicator could appear more than once in a gene
-        	indIdx[i] = r.nextInt(catalog.size());
-        	weigths[i] = 1;
-        	geneIndicators += catalog.get(indIdx[i]).getName() + " ";
+        	m.setLocus(row, i, r.nextInt(catalog.size()));
+        }
+        m.setName(row, geneName(m, row));
+    }
+
+    private String geneName(PopulationMatrix m, int row) {
+    	StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < m.getGeneSize(); i++) {
+        	sb.append(catalog.get(m.getLocus(row, i)).getName()).append(' ');
         }
-        Gene g = new Gene(geneIndicators, indIdx, weigths);
-        return g;
+        return sb.toString();
     }
  
-    private void geneEvalMaths(Gene g, List<Indicator> indicators, MarketBar currBar, 
-			   MarketBar prevBar, double denom, String name)
+    private void geneEvalMaths(Gene g, double[] normalized, Bar currBar, 
+			   Bar prevBar, double denom, String name)
     {
         double z = 0.0;
         for (int i : g.getIndicatorIndices()) {
-            // each indicator normalized to [-50,50] → divide by 50 → [-1,1]
-            z += indicators.get(i).getNormalizedValue() / 50.0;
+            z += normalized[i];
         }
         z /= Math.max(1, g.getIndicatorIndices().length); // average
         double yhat = Math.tanh(z / props.getPredictionTemperature());
-		try {
-			g.evaluateScorePrediction(currBar, prevBar,
-									  (int)(Math.signum(currBar.getClose() - prevBar.getClose())),
-									  yhat,
-									  denom, 
-									  name);
-		} catch (MissedItemsException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+		g.evaluateScorePrediction(currBar, prevBar,
+								  (int)(Math.signum(currBar.getClose() - prevBar.getClose())),
+								  yhat,
+								  denom, 
+								  name);
         log.trace(String.format("[BAR %d][GENE %s] z=%.4f yhat=%.4f", 
 				currBar.getBarNumber(), g.getName(), z, yhat));
     }
     
-    public void evalPopulation(List<Indicator> indicators, MarketBar currBar, 
-    						   MarketBar prevBar, double denom)
+    /**
+     * Copy the normalized value of every catalog entry into a flat array, so that the genes
+     * index it directly instead of going through the Indicator interface for each locus.
+     * Must be called once all the indicators went through normalizeAndStore for the bar.
+     */
+    private void snapshotIndicators(List<Indicator> indicators)
     {
+    	if (normalized.length != indicators.size())
+    	{
+    		normalized = new double[indicators.size()];
+    	}
+    	for (int i = 0; i < normalized.length; i++)
+    	{
+    		// each indicator normalized to [-50,50] → divide by 50 → [-1,1]
+    		normalized[i] = indicators.get(i).getNormalizedValue() / 50.0;
+    	}
+    }
+    
+    public void evalPopulation(List<Indicator> indicators, Bar currBar, 
+    						   Bar prevBar, double denom)
+    {
+    	// bar boundary: pick up the generation the background evolution completed, if any
+    	Generation generation = nextGeneration.getAndSet(null);
+    	if (generation != null)
+    	{
+    		adopt(generation);
+    	}
+
+    	snapshotIndicators(indicators);
+    	final double[] normalized = this.normalized;
+    	final double temperature = props.getPredictionTemperature();
+    	final PopulationMatrix population = this.population;
+    	final boolean vectorKernel = this.vectorKernel;
+
     	// do the evaluation math on each gene
-    	int i = 0;
-    	for (Gene g : population) 
-        {
-        	geneEvalMaths(g, indicators, currBar, prevBar, denom, "gene" + i++);
-        }
+    	if (evalPool == null)
+    	{
+    		population.evaluate(normalized, temperature, currBar, prevBar, denom, 0, population.size(), vectorKernel);
+    	}
+    	else
+    	{
+    		// every row range is handed to exactly one worker and the indicators are read only,
+    		// so the per gene state stays confined and the outcome matches the sequential loop.
+    		// join() gives the bar thread visibility on all the updates before ranking
+    		final int chunk = Math.max(64, population.size() / (evalPool.getParallelism() * 4));
+    		final int chunks = (population.size() + chunk - 1) / chunk;
+    		evalPool.submit(() -> 
+    			IntStream.range(0, chunks).parallel()
+    					 .forEach(c -> population.evaluate(normalized, temperature, currBar, prevBar, denom,
+    							 						   c * chunk, Math.min(population.size(), (c + 1) * chunk),
+    							 						   vectorKernel))
+    		).join();
+    	}
+    	if (log.isTraceEnabled())
+    	{
+    		for (int row = 0; row < population.size(); row++)
+    		{
+    	        log.trace(String.format("[BAR %d][GENE %s] yhat=%.4f", 
+    					currBar.getBarNumber(), population.getName(row), population.getYhat(row)));
+    		}
+    	}
     	
     	// do the math on the predictor
     	if (arbitrator != null)
     	{
-    		geneEvalMaths(arbitrator, indicators, currBar, prevBar, denom, "arbitrator");
+    		geneEvalMaths(arbitrator, normalized, currBar, prevBar, denom, "arbitrator");
     	}
     	else
     	{
     		arbitrator = new Gene("arbitrator", null, null);
+    		arbitrator.setDumpSink(arbitratorDump);
     	}
 
-    	// rank the population after evaluating their score
-    	rank = ranked();
+    	// rank the population after evaluating their score; evolve() only looks at the elites
+    	// and the crossover band, the full ordering is only needed for the trace dump
+    	if (log.isTraceEnabled())
+    	{
+    		rank = ranked();
+    		for (int i = 0; i < rank.length; i++)
+    		{
+    	        log.trace(String.format("[BAR %d][RANK %d] %s fitness=%.6f", 
+    					currBar.getBarNumber(), i, population.getName(rank[i]), fitness[rank[i]]));
+    		}
+    	}
+    	else
+    	{
+    		rank = rankedTop(rowsToRank(population.size()));
+    	}
 
     	// Set the new prediction for predictor
-    	Gene firstInRank = rank.getFirst(); 
-    	ScoreHolder firstInRankScore;
-    	@SuppressWarnings("unchecked")
-		List<ScoreHolder> scoresAsList = firstInRank.getReader().getContentAsList();
-    	if ((scoresAsList != null) && (scoresAsList.size() > 0))
+    	int firstInRank = rank[0]; 
+        arbitrator.setName(population.getName(firstInRank));
+        arbitrator.copyIndicatorIndices(population, firstInRank);
+    	if (population.hasPrediction(firstInRank))
     	{
-    		firstInRankScore = scoresAsList.getLast();
+	        arbitrator.getScores().add(arbitrator.getName(),
+	        						   population.getPredictionTimestamp(firstInRank),
+	        						   population.getPredictionBarNumber(firstInRank),
+	        						   population.getPredictedMarketPrice(firstInRank),
+	        						   population.getDirection(firstInRank));
     	}
     	else
     	{
-    		firstInRankScore = arbitrator.new ScoreHolder();
-    		firstInRankScore.timestamp = 0;
-    		firstInRankScore.direction = 0;
-    		firstInRankScore.predictedMarketPrice = 0;
+	        arbitrator.getScores().add(arbitrator.getName(), 0, 0, 0, 0);
     	}
-        
-        ScoreHolder newPrediction = arbitrator.new ScoreHolder();
-        
-        arbitrator.setName(firstInRank.getName());
-        arbitrator.setIndicatorIndices(firstInRank.getIndicatorIndices());
-        newPrediction.name = arbitrator.getName();
-        newPrediction.timestamp = firstInRankScore.timestamp;
-        newPrediction.direction = firstInRankScore.direction;
-        newPrediction.predictedMarketPrice = firstInRankScore.predictedMarketPrice;
-        arbitrator.getScores().publish(newPrediction);
     }
     
-    public List<Gene> ranked() {
-        final double TOTAL_WEIGHT = props.getWaitOfScoreInRanking();
-        final double WINRATE_WEIGHT = props.getWaitOfWinRateInRanking();
-        return population.stream()
-                .sorted(Comparator.comparingDouble((Gene g) -> {
-                    double totalScore = g.getTotalScore() / g.getTotalBarsSurviving();
-                    double winRate = g.getWinRate() / g.getTotalBarsSurviving();
-                    return totalScore * TOTAL_WEIGHT + winRate * WINRATE_WEIGHT;
-                }).reversed())
-                .toList();
+    /**
+     * Population rows sorted by fitness, best first (ties keep the row order).
+     * The keys come from the rolling window sums (see PopulationMatrix.fitness), the returned
+     * array is reused from bar to bar.
+     */
+    public int[] ranked() {
+        final PopulationMatrix m = population;
+        if (fitness.length != m.size())
+        {
+        	fitness = new double[m.size()];
+        }
+        m.fitness(props.getWaitOfScoreInRanking(), props.getWaitOfWinRateInRanking(), fitness, 0, m.size());
+        rank = FitnessRanking.rank(fitness, m.size(), rank);
+        rankedRows = m.size();
+        return rank;
+    }
+
+    /**
+     * Population rows with the best k in front, best first; the order of the others is undefined.
+     * Same keys and tie break as ranked().
+     */
+    public int[] rankedTop(int k) {
+        final PopulationMatrix m = population;
+        if (fitness.length != m.size())
+        {
+        	fitness = new double[m.size()];
+        }
+        m.fitness(props.getWaitOfScoreInRanking(), props.getWaitOfWinRateInRanking(), fitness, 0, m.size());
+        rank = FitnessRanking.top(fitness, m.size(), k, rank);
+        rankedRows = Math.min(Math.max(k, 0), m.size());
+        return rank;
+    }
+
+    /** Rows evolve() reads in rank order: the elites, the crossover band and its last partner. */
+    private int rowsToRank(int n) {
+        int keep = (int) Math.round(n * props.getElitePct());
+        int cross= (int) Math.round(n * props.getCrossoverPct());
+        return Math.max(1, Math.min(n, keep + cross + 1));
     }
 
 
+    /**
+     * Evolve if the configured cadence (evolutionCadence) says so. Call once per bar after
+     * evalPopulation().
+     * With evolutionInBackground the next generation is only started here, from the ranking of
+     * this bar, and replaces the population at the beginning of a later evalPopulation(); while
+     * one is being built the cadence is not reset, so it fires again once that one is adopted.
+     *
+     * @return true if the population evolved (or, in background, an evolution was started).
+     */
+    public boolean evolveIfDue() {
+    	if (rank == null || rankedRows == 0)
+    	{
+    		return false;
+    	}
+    	if ((evolutionExecutor != null) &&
+    		((nextGeneration.get() != null) || (evolution != null && !evolution.isDone())))
+    	{
+    		return false;
+    	}
+    	long now = System.currentTimeMillis();
+    	if (!evolutionScheduler.isDue(now, fitness[rank[0]]))
+    	{
+    		return false;
+    	}
+    	if (evolutionExecutor == null)
+    	{
+    		evolve();
+    	}
+    	else
+    	{
+    		evolveInBackground();
+    	}
+    	evolutionScheduler.evolved(now);
+    	return true;
+    }
+
     /** Selection: top keep, middle crossover, bottom replaced. */
     public void evolve() {
-        int n = rank.size();
-        int keep = (int) Math.round(n * props.getElitePct());
+        population = breed(population, rank, rankedRows, true).population;
+        writeGeneration(population);
+    }
+
+    /**
+     * Build the next generation on the evolution thread. Only the ranking is copied here: the
+     * genomes of the current population are not modified by the evaluation, so the worker reads
+     * them in place, and the elites' counters are copied when the generation is adopted.
+     */
+    private void evolveInBackground() {
+    	final PopulationMatrix source = population;
+    	final int[] ranking = Arrays.copyOf(rank, rankedRows);
+    	evolution = evolutionExecutor.submit(() -> {
+    		try {
+    			Generation generation = breed(source, ranking, ranking.length, false);
+    			writeGeneration(generation.population);
+    			nextGeneration.set(generation);
+    		}
+    		catch(Exception e)
+    		{
+    			log.error("Background evolution failed", e);
+    		}
+    	});
+    }
+
+    /**
+     * Next generation of 'current' from its ranking (the first 'ranked' rows best first).
+     *
+     * @param withCounters copy the elites' counters too, otherwise only their genome
+     */
+    private Generation breed(PopulationMatrix current, int[] rank, int ranked, boolean withCounters) {
+        int n = current.size();
+        int keep = Math.min(ranked, (int) Math.round(n * props.getElitePct()));
         int cross= (int) Math.round(n * props.getCrossoverPct());
 
-        List<Gene> next = new ArrayList<Gene>(n);
+        PopulationMatrix next = new PopulationMatrix(n, current.getGeneSize(), current.getWindow());
+        int[] eliteSource = new int[Math.min(keep, n)];
+        int row = 0;
 
-        // 1) Elites
-        for (int i = 0; i < keep; i++) {
-            next.add(rank.get(i));
+        // 1) Elites keep their genome and their counters
+        for (int i = 0; i < keep && row < n; i++) {
+        	eliteSource[row] = rank[i];
+        	if (withCounters)
+        	{
+        		current.copyRowTo(rank[i], next, row++);
+        	}
+        	else
+        	{
+        		current.copyGenomeTo(rank[i], next, row++);
+        	}
         }
 
         ThreadLocalRandom rnd = ThreadLocalRandom.current();
 
-        // 2) Crossover (produce 'crossed' children)
+        // 2) Crossover (produce 'crossed' children from the middle of the ranking)
         for (int i = keep; i < keep + cross; i += 2) {
-        	if (i + 1 > population.size()) break;
-        	Gene a = population.get(i);
-        	Gene b = population.get(i + 1);
-        	crossover(i, rnd);
-            next.add(a);
-            next.add(b);
+        	if (i + 1 >= ranked || row + 1 >= n) break;
+        	crossover(current, rank[i], rank[i + 1], next, row, rnd);
+        	row += 2;
         }
 
         // 3) Replacement (random new)
-        while (next.size() < n) {
-            next.add(randomGene());
+        while (row < n) {
+            randomGene(next, row++);
         }
+        return new Generation(current, next, eliteSource);
+    }
 
-        population.clear();
-        population.addAll(next);
-        // Reset horizon buffer so we don’t mix pre/post evolution windows
-        atrScale.reset();
+    /** Make a generation built in background the current population (bar thread). */
+    private void adopt(Generation generation) {
+    	if (generation.source != population)
+    	{
+    		log.warn("Discarding a background generation built from a replaced population");
+    		return;
+    	}
+    	// the elites kept scoring while the generation was built: bring their counters up to date
+    	for (int row = 0; row < generation.eliteSource.length; row++)
+    	{
+    		population.copyRowTo(generation.eliteSource[row], generation.population, row);
+    	}
+    	population = generation.population;
+    	rankedRows = 0;
+    }
+
+    private void writeGeneration(PopulationMatrix generation) {
+    	if (outGeneEvolution == null)
+    	{
+    		return;
+    	}
         try {
-        	String sep = "";
-	        for(Gene g : population)
+        	StringBuilder sb = new StringBuilder();
+	        for(int i = 0; i < generation.size(); i++)
 	        {
-		        outGeneEvolution.write(sep + g.getName(), false);
-		        sep = ",";
+	        	if (i > 0) sb.append(',');
+	        	sb.append(generation.getName(i));
 	        }
-	        outGeneEvolution.write("", true);
+	        outGeneEvolution.write(sb.toString(), true);
         }
         catch(Exception e)
         {
@@ -219,42 +437,94 @@ public final class GAEngine {
         }
     }
 
-    private void crossover(int geneAIdx, ThreadLocalRandom rnd) {
-    	Gene a = population.get(geneAIdx);
-        Gene b = population.get(geneAIdx + 1);
-    	for (int i = 0; i < props.getGeneSize(); i++) {
+    /** Write the children of rows a and b of 'current' at rows dst and dst+1 of 'next'. */
+    private void crossover(PopulationMatrix current, int a, int b, PopulationMatrix next, int dst,
+    					   ThreadLocalRandom rnd) {
+    	for (int i = 0; i < next.getGeneSize(); i++) {
+    		int locusA = current.getLocus(a, i);
+    		int locusB = current.getLocus(b, i);
             if (rnd.nextInt(2) == 1)
             {
-            	int k = a.getIndicatorIndices()[i];
-            	a.getIndicatorIndices()[i] = b.getIndicatorIndices()[i];
-            	b.getIndicatorIndices()[i] = k;
+            	int k = locusA;
+            	locusA = locusB;
+            	locusB = k;
             }
+            next.setLocus(dst, i, locusA);
+            next.setLocus(dst + 1, i, locusB);
         }
-        String geneNameA = "";
-        String geneNameB = "";
-        for (int i = 0; i < props.getGeneSize(); i++) {
-            geneNameA += catalog.get(a.getIndicatorIndices()[i]).getName() + " ";
-            geneNameB += catalog.get(b.getIndicatorIndices()[i]).getName() + " ";
-        }
-        a.setName(geneNameA);
-        a.resetIndicators();
-        b.setName(geneNameB);
-        b.resetIndicators();
+        next.setName(dst, geneName(next, dst));
+        next.setName(dst + 1, geneName(next, dst + 1));
     }    
     
-    public List<Gene> getPopulation() {
+    public PopulationMatrix getPopulation() {
     	return population;
     }
     
     public void cleanUpOnExit() {
-    	outGeneEvolution.close();
+    	if (evalPool != null)
+    	{
+    		evalPool.shutdown();
+    	}
+    	// let a running evolution finish its GE line before the file is closed
+    	boolean evolutionStopped = true;
+    	if (evolutionExecutor != null)
+    	{
+    		evolutionExecutor.shutdown();
+    		try {
+    			if (!evolutionExecutor.awaitTermination(5, TimeUnit.SECONDS))
+    			{
+    				log.warn("Background evolution still running after 5 s, interrupting it");
+    				evolutionExecutor.shutdownNow();
+    				evolutionStopped = evolutionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    			}
+    		}
+    		catch (InterruptedException e) {
+    			evolutionExecutor.shutdownNow();
+    			evolutionStopped = evolutionExecutor.isTerminated();
+    			Thread.currentThread().interrupt();
+    		}
+    	}
+    	if (arbitratorDump != null)
+    	{
+    		arbitratorDump.close();
+    	}
+    	if (outGeneEvolution != null)
+    	{
+    		if (evolutionStopped)
+    		{
+    			outGeneEvolution.close();
+    		}
+    		else
+    		{
+    			// the evolution thread may still write its line: leave the file to the JVM exit
+    			log.error("Background evolution did not stop, gene evolution file left open");
+    		}
+    	}
     }
 
-	public List<Gene>getRank() {
+	/** Population rows of the last ranking; only the first getRankedRows() are in fitness order. */
+	public int[] getRank() {
 		return rank;
 	}
+
+	public int getRankedRows() {
+		return rankedRows;
+	}
 	
 	public Gene getArbitrator() {
 		return arbitrator;
 	}
+
+	/** A generation built off the bar thread, with the rows its elites come from. */
+	private static final class Generation {
+		final PopulationMatrix source;
+		final PopulationMatrix population;
+		final int[] eliteSource;	// population row -> source row, elites only
+
+		Generation(PopulationMatrix source, PopulationMatrix population, int[] eliteSource) {
+			this.source = source;
+			this.population = population;
+			this.eliteSource = eliteSource;
+		}
+	}
 }
@@ -1,28 +1,14 @@
 package it.l_soft.wows.ga;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
 import org.apache.log4j.Logger;
 
 import it.l_soft.wows.ApplicationProperties;
-import it.l_soft.wows.comms.MarketBar;
+import it.l_soft.wows.comms.Bar;
 import it.l_soft.wows.indicators.IndicatorContext;
-import it.l_soft.wows.utils.RingBuffer;
-import it.l_soft.wows.utils.RingBuffer.ConsumerHandle;
-import it.l_soft.wows.utils.RingBuffer.MissedItemsException;
-import it.l_soft.wows.utils.TextFileHandler;
+import it.l_soft.wows.utils.CsvFormatter;
+import it.l_soft.wows.utils.AsyncLineWriter;
 
 public final class Gene implements GeneInterface {
-	public class ScoreHolder {
-		public String name = "";
-		public long timestamp = 0;
-		public double score = 0;
-		public double predictedMarketPrice = 0;
-		public boolean successful = false;
-		public int direction = 0;
-		public long barNumber = 0;
-	}
     private static final double SIGNAL_MAX_ABS = 50.0;
 
 	private final Logger log = Logger.getLogger(this.getClass());
@@ -38,60 +24,38 @@ public final class Gene implements GeneInterface {
     private int	totalLong = 0;
     private int totalShort = 0;
     private long totalBarsSurviving = 0;
-    private RingBuffer<ScoreHolder> scores;
-    private RingBuffer<ScoreHolder>.ConsumerHandle scoresReader;
+    private final ScoreHistory scores;     // issued predictions and their outcome
     
-    private ScoreHolder prediction;
+    private AsyncLineWriter dumpSink = null;   // evaluation rows go here when set
 
     public Gene(String name, int[] indicatorIndices, double[] weights) {
         this.name = name;
         this.indicatorIndices = indicatorIndices;
         this.weights = weights;
-        this.scores = new RingBuffer<Gene.ScoreHolder>(50);
-        scoresReader = scores.createConsumer();
+        int length = props.getValidScoreHistoryLength();
+        this.scores = new ScoreHistory(length > 0 ? length : 50);
     }
         
-    public void evaluateScorePrediction(MarketBar currBar, MarketBar prevBar,
+    public void evaluateScorePrediction(Bar currBar, Bar prevBar,
     		int marketDirection,
     		double predictedMoveNorm,
     		double denom,
     		String name)
-    				throws MissedItemsException
     {
-    	StringBuilder sb = new StringBuilder();
-		SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss.sss");
+    	// the row text only goes to the arbitrator dump, don't build it otherwise
+    	final boolean dump = (dumpSink != null) && (name.compareTo("arbitrator") == 0);
     	totalBarsSurviving++;
 
-    	if (scores.getLength() > 0) {
-    		try {
-        		prediction = scoresReader.poll().getValue();
-    		}
-    		catch(MissedItemsException e)
-    		{
-    			log.error("Gene " + name + ", error " + e.getMessage() + " on poll", e);
-    		}
+    	if (scores.hasPending()) {
+    		long pending = scores.oldestPending();
+    		int direction = scores.getDirection(pending);
+    		double predictedMarketPrice = scores.getPredictedPrice(pending);
 
-    		// if we have at least one prediction, the last should be referred to the current bar
-			sb.append(String.format("%s,%s,%d,",
-    								name, this.name, totalBarsSurviving));
-			sb.append(String.format("%s,%d,%d,%s - %s,",
-									sdf.format(new Date(currBar.getTimestamp())), currBar.getBarNumber(),
-									marketDirection,
-				    				(marketDirection >= 0 ? "LONG" : "SHORT"), 
-									(prediction.direction >= 0 ? "LONG" : "SHORT")
-								   ));
-			
-    		sb.append(String.format("%.4f,%.4f,%.4f,%.4f,%d,%.4f,",
-				    				prevBar.getClose(), currBar.getClose(), prediction.predictedMarketPrice,
-									predictedMoveNorm,
-									(predictedMoveNorm >= 0. ? 1 : -1),
-									denom));
-
-    		int agreeOnDirection = marketDirection * prediction.direction;
-    		double distance = Math.abs(prediction.predictedMarketPrice - currBar.getClose());
+    		int agreeOnDirection = marketDirection * direction;
+    		double distance = Math.abs(predictedMarketPrice - currBar.getClose());
     		
     		if (agreeOnDirection >= 0) {
-    			if (prediction.direction > 0)
+    			if (direction > 0)
     			{
     				totalLong++;
     				longWin++;
@@ -101,10 +65,9 @@ public final class Gene implements GeneInterface {
     				totalShort++;
     				shortWin++;
     			}
-    			prediction.successful = true;
     		} 
     		else {
-    			if (prediction.direction > 0)
+    			if (direction > 0)
     			{
     				totalLong++;
     			}
@@ -112,52 +75,45 @@ public final class Gene implements GeneInterface {
     			{
     				totalShort++;
     			}
-    			prediction.successful = false;
     		}
 
 //    		prediction.score = Math.max(bar.getClose() * .05, denom / (distance + 1e-9)); // optional epsilon for safety
-    		prediction.score = Math.min(currBar.getClose() * .05, 1 / (distance + 1e-9)) * // optional epsilon for safety
-    						   agreeOnDirection; 
-        	prediction.timestamp = currBar.getTimestamp();
-    		totalScore += prediction.score;
+    		double score = Math.min(currBar.getClose() * .05, 1 / (distance + 1e-9)) * // optional epsilon for safety
+    					   agreeOnDirection; 
+    		scores.resolveNext(score, agreeOnDirection >= 0, currBar.getTimestamp());
+    		totalScore += score;
     		totalWin += agreeOnDirection;
     		
-    		sb.append(String.format("%.4f,", prediction.score));
-    		if (name.compareTo("arbitrator") == 0)
+    		if (dump)
     		{
-    			try {
-		        	TextFileHandler temp = new TextFileHandler(props.getGeneEvalDumpPath(), 
-		        											   props.getGeneEvalDumpName() + "_" + name.substring(0, 4), 
-		        											   "csv", false, true);
-					temp.write(sb.toString(), true);
-					temp.close();
-				} catch (Exception e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+    			// if we have at least one prediction, the last should be referred to the current bar
+    			StringBuilder sb = CsvFormatter.rowBuffer();
+    			sb.append(name).append(',').append(this.name).append(',').append(totalBarsSurviving).append(',');
+    			CsvFormatter.appendTime(sb, currBar.getTimestamp()).append(',');
+    			sb.append(currBar.getBarNumber()).append(',')
+    			  .append(marketDirection).append(',')
+    			  .append(marketDirection >= 0 ? "LONG" : "SHORT").append(" - ")
+    			  .append(direction >= 0 ? "LONG" : "SHORT").append(',');
+    			CsvFormatter.appendFixed(sb, prevBar.getClose(), 4).append(',');
+    			CsvFormatter.appendFixed(sb, currBar.getClose(), 4).append(',');
+    			CsvFormatter.appendFixed(sb, predictedMarketPrice, 4).append(',');
+    			CsvFormatter.appendFixed(sb, predictedMoveNorm, 4).append(',');
+    			sb.append(predictedMoveNorm >= 0. ? 1 : -1).append(',');
+    			CsvFormatter.appendFixed(sb, denom, 4).append(',');
+    			CsvFormatter.appendFixed(sb, score, 4).append(',');
+    			dumpSink.offer(sb.toString());
     		}
     	}
 
     	if (name.compareTo("arbitrator") != 0)
     	{
-        	prediction = new ScoreHolder();
-        	prediction.name = name;
-        	prediction.timestamp = currBar.getTimestamp();
-        	prediction.barNumber = currBar.getBarNumber() + 1;
-
         	// convert from normalized prediction back to real return
         	double predictedReturn = predictedMoveNorm * denom; // e.g. +/- 1 * 0.01 = +/-1%
-        	prediction.predictedMarketPrice = currBar.getClose() * (1.0 + predictedReturn);
-        	prediction.direction = (Math.signum(predictedMoveNorm) >= 0) ? 1 : -1;
-    		this.scores.publish(prediction);
+        	scores.add(name, currBar.getTimestamp(), currBar.getBarNumber() + 1,
+        			   currBar.getClose() * (1.0 + predictedReturn),
+        			   (Math.signum(predictedMoveNorm) >= 0) ? 1 : -1);
     	}
     }
-
-
-	public ScoreHolder getPrediction(long barNum) 
-			throws MissedItemsException {
-		return scoresReader.get(barNum).getValue();
-	}
 	
     /** Raw gene signal as weighted sum of normalized indicators, clamped to [-50, 50]. */
     @Override
@@ -170,16 +126,16 @@ public final class Gene implements GeneInterface {
         return clamp50(sum);
     }
 
-    public RingBuffer<ScoreHolder> getScores()
+    /** Sink receiving the evaluation rows (arbitrator only), null to disable the dump. */
+    public void setDumpSink(AsyncLineWriter dumpSink) {
+    	this.dumpSink = dumpSink;
+    }
+
+    public ScoreHistory getScores()
     {
     	return scores;
     }
     
-    @SuppressWarnings("rawtypes")
-	public ConsumerHandle getReader() {
-    	return scoresReader;
-    }
-    
     /**
      * Prediction of normalized market move, on the SAME SCALE as marketMoveNorm: [-1, 1].
      * This is what you compare against marketMoveNorm.
@@ -211,8 +167,7 @@ public final class Gene implements GeneInterface {
         totalLong = 0;
         totalShort = 0;
         totalBarsSurviving = 0;
-        scores = new RingBuffer<Gene.ScoreHolder>(50);
-        scoresReader = scores.createConsumer();
+        scores.clear();
     }
 
     public String getName() {
@@ -231,6 +186,17 @@ public final class Gene implements GeneInterface {
         this.indicatorIndices = indicatorIndices;
     }
 
+    /**
+     * Take the genome of a population row into the indices array this gene owns, allocated
+     * again only if the gene size changes (e.g. the arbitrator following the best row every bar).
+     */
+    public void copyIndicatorIndices(PopulationMatrix population, int row) {
+        if (indicatorIndices == null || indicatorIndices.length != population.getGeneSize()) {
+            indicatorIndices = new int[population.getGeneSize()];
+        }
+        population.copyLociTo(row, indicatorIndices);
+    }
+
     public double[] getWeights() {
         return weights;
     }
@@ -245,16 +211,18 @@ public final class Gene implements GeneInterface {
 
 	public long getScoreTimestamp()
 	{
-		return prediction.timestamp;
+		long seq = scores.lastResolved();
+		return (seq < 0 ? 0 : scores.getTimestamp(seq));
 	}
 	
 	public boolean getScoreSuccessful()
 	{
-		return prediction.successful;
+		long seq = scores.lastResolved();
+		return (seq >= 0) && scores.isSuccessful(seq);
 	}
 
 	public boolean canPredict() {
-		return scores.getLength() > props.getGenesWarmUpBars();
+		return scores.size() > props.getGenesWarmUpBars();
 	}
 
 	public int getLongWin() {
@@ -0,0 +1,402 @@
+package it.l_soft.wows.ga;
+
+import it.l_soft.wows.comms.Bar;
+
+/**
+ * Structure-of-arrays store for the whole GA population.
+ *
+ * - Every gene is a row; the loci of all the genes live in one contiguous int[] laid out
+ *   locus-major (loci[locus * size + row]), so the "sum the loci" loop walks memory linearly
+ *   and runs across many genes at once.
+ * - Counters and the pending prediction are kept in primitive column arrays.
+ * - evaluate() is the "score all genes for this bar" kernel; it works on a [from, to) range of
+ *   rows so that disjoint ranges can be handed to different workers.
+ * - With a ranking window, every row also keeps the scores of its last 'window' predictions in
+ *   a row-major ring (windowScores[row * window + slot]) with their running sums, updated in O(1)
+ *   per bar and recomputed each time the row ring wraps. fitness() ranks on those instead of
+ *   the lifetime counters.
+ *
+ * The scoring rules are the same as Gene.evaluateScorePrediction for a non-arbitrator gene.
+ */
+public final class PopulationMatrix {
+
+    // null unless built with -Pvector and run with --add-modules jdk.incubator.vector
+    private static final VectorKernel VECTOR_KERNEL = loadVectorKernel();
+
+    /** Composite sums of rows [from, to) into z, see VectorPredictionKernel. */
+    interface VectorKernel {
+        void sums(double[] normalized, int[] loci, int size, int geneSize, double[] z, int from, int to);
+    }
+
+    private final int size;
+    private final int geneSize;
+
+    // Genome
+    private final int[] loci;           // [locus * size + row]
+    private final String[] names;
+
+    // Counters
+    private final double[] totalScore;
+    private final int[] totalWin;
+    private final int[] longWin;
+    private final int[] shortWin;
+    private final int[] totalLong;
+    private final int[] totalShort;
+    private final long[] barsSurviving;
+
+    // Pending prediction (the one issued on the previous bar)
+    private final boolean[] hasPrediction;
+    private final long[] predTimestamp;
+    private final long[] predBarNumber;
+    private final double[] predictedPrice;
+    private final int[] direction;
+    private final double[] lastScore;
+
+    // Ranking window, empty arrays when window == 0
+    private final int window;
+    private final double[] windowScores;    // [row * window + slot]
+    private final byte[] windowAgree;       // [row * window + slot], direction agreement -1/0/1
+    private final int[] windowHead;         // next slot to write
+    private final int[] windowFill;         // predictions held, <= window
+    private final double[] windowScoreSum;
+    private final int[] windowAgreeSum;
+
+    // Per bar outputs
+    private final double[] yhat;
+
+    /** Population ranked on the lifetime counters. */
+    public PopulationMatrix(int size, int geneSize) {
+        this(size, geneSize, 0);
+    }
+
+    /**
+     * @param window number of the last scored predictions the ranking looks at, 0 for the whole
+     *               life of the gene
+     */
+    public PopulationMatrix(int size, int geneSize, int window) {
+        if (size <= 0 || geneSize <= 0) throw new IllegalArgumentException("size and geneSize must be > 0");
+        if (window < 0) throw new IllegalArgumentException("window must be >= 0");
+        this.size = size;
+        this.geneSize = geneSize;
+        this.window = window;
+        this.windowScores = new double[size * window];
+        this.windowAgree = new byte[size * window];
+        this.windowHead = new int[window > 0 ? size : 0];
+        this.windowFill = new int[window > 0 ? size : 0];
+        this.windowScoreSum = new double[window > 0 ? size : 0];
+        this.windowAgreeSum = new int[window > 0 ? size : 0];
+        this.loci = new int[size * geneSize];
+        this.names = new String[size];
+        this.totalScore = new double[size];
+        this.totalWin = new int[size];
+        this.longWin = new int[size];
+        this.shortWin = new int[size];
+        this.totalLong = new int[size];
+        this.totalShort = new int[size];
+        this.barsSurviving = new long[size];
+        this.hasPrediction = new boolean[size];
+        this.predTimestamp = new long[size];
+        this.predBarNumber = new long[size];
+        this.predictedPrice = new double[size];
+        this.direction = new int[size];
+        this.lastScore = new double[size];
+        this.yhat = new double[size];
+    }
+
+    // =============== Kernel ===============
+
+    /**
+     * Composite prediction for rows [from, to):
+     *   z    = average of the normalized values at the gene loci
+     *   yhat = tanh(z / temperature)
+     *
+     * @param normalized catalog values already scaled to [-1,1]
+     */
+    public void predict(double[] normalized, double temperature, int from, int to) {
+        for (int r = from; r < to; r++) {
+            yhat[r] = 0.0;
+        }
+        for (int l = 0; l < geneSize; l++) {
+            final int base = l * size;
+            for (int r = from; r < to; r++) {
+                yhat[r] += normalized[loci[base + r]];
+            }
+        }
+        squash(temperature, from, to);
+    }
+
+    /**
+     * Same as predict() with the sums computed by the Vector API kernel, many genes per
+     * instruction, in the same locus order; tanh stays scalar, so yhat is bit for bit the one of
+     * predict() and the ranking does not depend on the kernel or on the evalThreads chunking.
+     * The tanh is most of the cost, so this is only about 10% faster than predict()
+     * (PredictionKernelBenchmark). Falls back to predict() when the kernel is not available.
+     */
+    public void predictVectorized(double[] normalized, double temperature, int from, int to) {
+        if (VECTOR_KERNEL == null) {
+            predict(normalized, temperature, from, to);
+            return;
+        }
+        VECTOR_KERNEL.sums(normalized, loci, size, geneSize, yhat, from, to);
+        squash(temperature, from, to);
+    }
+
+    /** True when the kernel was compiled in (-Pvector) and jdk.incubator.vector is loaded. */
+    public static boolean isVectorKernelAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    // yhat = tanh(z / temperature), z being the sum in yhat
+    private void squash(double temperature, int from, int to) {
+        final double count = Math.max(1, geneSize);
+        for (int r = from; r < to; r++) {
+            yhat[r] = Math.tanh((yhat[r] / count) / temperature);
+        }
+    }
+
+    private static VectorKernel loadVectorKernel() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) return null;
+        try {
+            // by name: the default build leaves the class out
+            return (VectorKernel) Class.forName(PopulationMatrix.class.getPackageName() + ".VectorPredictionKernel")
+                                       .getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Score the prediction each row issued on the previous bar against the current bar,
+     * then store the new prediction derived from yhat.
+     */
+    public void score(Bar currBar, Bar prevBar, double denom, int from, int to) {
+        final double close = currBar.getClose();
+        final int marketDirection = (int) Math.signum(close - prevBar.getClose());
+        final long timestamp = currBar.getTimestamp();
+        final long nextBarNumber = currBar.getBarNumber() + 1;
+
+        for (int r = from; r < to; r++) {
+            barsSurviving[r]++;
+
+            if (hasPrediction[r]) {
+                final int predDirection = direction[r];
+                final int agreeOnDirection = marketDirection * predDirection;
+                final double distance = Math.abs(predictedPrice[r] - close);
+
+                if (predDirection > 0) {
+                    totalLong[r]++;
+                    if (agreeOnDirection >= 0) longWin[r]++;
+                } else {
+                    totalShort[r]++;
+                    if (agreeOnDirection >= 0) shortWin[r]++;
+                }
+
+                final double score = Math.min(close * .05, 1 / (distance + 1e-9)) * // optional epsilon for safety
+                                     agreeOnDirection;
+                lastScore[r] = score;
+                totalScore[r] += score;
+                totalWin[r] += agreeOnDirection;
+                if (window > 0) {
+                    pushWindow(r, score, agreeOnDirection);
+                }
+            }
+
+            // convert from normalized prediction back to real return
+            final double predictedMoveNorm = yhat[r];
+            final double predictedReturn = predictedMoveNorm * denom;
+            hasPrediction[r] = true;
+            predTimestamp[r] = timestamp;
+            predBarNumber[r] = nextBarNumber;
+            predictedPrice[r] = close * (1.0 + predictedReturn);
+            direction[r] = (Math.signum(predictedMoveNorm) >= 0) ? 1 : -1;
+        }
+    }
+
+    // Replace the oldest window entry of row r (if the window is full) with the new outcome
+    private void pushWindow(int r, double score, int agreeOnDirection) {
+        final int base = r * window;
+        final int i = base + windowHead[r];
+        if (windowFill[r] == window) {
+            windowScoreSum[r] -= windowScores[i];
+            windowAgreeSum[r] -= windowAgree[i];
+        } else {
+            windowFill[r]++;
+        }
+        windowScores[i] = score;
+        windowAgree[i] = (byte) agreeOnDirection;
+        windowScoreSum[r] += score;
+        windowAgreeSum[r] += agreeOnDirection;
+
+        if (++windowHead[r] == window) {
+            windowHead[r] = 0;
+            // the ring holds exactly 'window' entries here: drop the rounding the +/- left behind
+            double sum = 0;
+            for (int k = base; k < base + window; k++) sum += windowScores[k];
+            windowScoreSum[r] = sum;
+        }
+    }
+
+    /**
+     * Ranking key of rows [from, to) into out[row]:
+     *   scoreWeight * mean score + winRateWeight * mean direction agreement
+     * over the window, or with a lifetime population (window 0) the historical
+     *   scoreWeight * totalScore / barsSurviving + winRateWeight * winRate / barsSurviving
+     */
+    public void fitness(double scoreWeight, double winRateWeight, double[] out, int from, int to) {
+        if (window > 0) {
+            for (int r = from; r < to; r++) {
+                final int n = windowFill[r];
+                out[r] = (n == 0) ? 0.0
+                                  : (windowScoreSum[r] * scoreWeight + windowAgreeSum[r] * winRateWeight) / n;
+            }
+        } else {
+            for (int r = from; r < to; r++) {
+                out[r] = (totalScore[r] / barsSurviving[r]) * scoreWeight +
+                         (getWinRate(r) / barsSurviving[r]) * winRateWeight;
+            }
+        }
+    }
+
+    /** Score all the genes in [from, to) for this bar. */
+    public void evaluate(double[] normalized, double temperature,
+                         Bar currBar, Bar prevBar, double denom,
+                         int from, int to) {
+        evaluate(normalized, temperature, currBar, prevBar, denom, from, to, false);
+    }
+
+    /** Score all the genes in [from, to) for this bar, optionally through the SIMD kernel. */
+    public void evaluate(double[] normalized, double temperature,
+                         Bar currBar, Bar prevBar, double denom,
+                         int from, int to, boolean vectorized) {
+        if (vectorized) {
+            predictVectorized(normalized, temperature, from, to);
+        } else {
+            predict(normalized, temperature, from, to);
+        }
+        score(currBar, prevBar, denom, from, to);
+    }
+
+    // =============== Row management ===============
+
+    /** Copy genome, name, counters and pending prediction of row 'src' into 'dst' at row 'dstRow'. */
+    public void copyRowTo(int src, PopulationMatrix dst, int dstRow) {
+        if (dst.geneSize != geneSize) throw new IllegalArgumentException("geneSize mismatch");
+        if (dst.window != window) throw new IllegalArgumentException("window mismatch");
+        for (int l = 0; l < geneSize; l++) {
+            dst.loci[l * dst.size + dstRow] = loci[l * size + src];
+        }
+        dst.names[dstRow] = names[src];
+        dst.totalScore[dstRow] = totalScore[src];
+        dst.totalWin[dstRow] = totalWin[src];
+        dst.longWin[dstRow] = longWin[src];
+        dst.shortWin[dstRow] = shortWin[src];
+        dst.totalLong[dstRow] = totalLong[src];
+        dst.totalShort[dstRow] = totalShort[src];
+        dst.barsSurviving[dstRow] = barsSurviving[src];
+        dst.hasPrediction[dstRow] = hasPrediction[src];
+        dst.predTimestamp[dstRow] = predTimestamp[src];
+        dst.predBarNumber[dstRow] = predBarNumber[src];
+        dst.predictedPrice[dstRow] = predictedPrice[src];
+        dst.direction[dstRow] = direction[src];
+        dst.lastScore[dstRow] = lastScore[src];
+        dst.yhat[dstRow] = yhat[src];
+        if (window > 0) {
+            System.arraycopy(windowScores, src * window, dst.windowScores, dstRow * window, window);
+            System.arraycopy(windowAgree, src * window, dst.windowAgree, dstRow * window, window);
+            dst.windowHead[dstRow] = windowHead[src];
+            dst.windowFill[dstRow] = windowFill[src];
+            dst.windowScoreSum[dstRow] = windowScoreSum[src];
+            dst.windowAgreeSum[dstRow] = windowAgreeSum[src];
+        }
+    }
+
+    /** Copy only genome and name of row 'src' into 'dst' at row 'dstRow'; the counters stay clear. */
+    public void copyGenomeTo(int src, PopulationMatrix dst, int dstRow) {
+        if (dst.geneSize != geneSize) throw new IllegalArgumentException("geneSize mismatch");
+        for (int l = 0; l < geneSize; l++) {
+            dst.loci[l * dst.size + dstRow] = loci[l * size + src];
+        }
+        dst.names[dstRow] = names[src];
+    }
+
+    /** Clear counters and pending prediction of a row, keeping its genome. */
+    public void resetRow(int row) {
+        totalScore[row] = 0;
+        totalWin[row] = 0;
+        longWin[row] = 0;
+        shortWin[row] = 0;
+        totalLong[row] = 0;
+        totalShort[row] = 0;
+        barsSurviving[row] = 0;
+        hasPrediction[row] = false;
+        predTimestamp[row] = 0;
+        predBarNumber[row] = 0;
+        predictedPrice[row] = 0;
+        direction[row] = 0;
+        lastScore[row] = 0;
+        yhat[row] = 0;
+        if (window > 0) {
+            windowHead[row] = 0;
+            windowFill[row] = 0;
+            windowScoreSum[row] = 0;
+            windowAgreeSum[row] = 0;
+        }
+    }
+
+    // =============== Accessors ===============
+
+    public int size() { return size; }
+    public int getGeneSize() { return geneSize; }
+    public int getWindow() { return window; }
+
+    public int getLocus(int row, int locus) { return loci[locus * size + row]; }
+    public void setLocus(int row, int locus, int indicatorIndex) { loci[locus * size + row] = indicatorIndex; }
+
+    /** Copy of the row genome, in locus order. */
+    public int[] getLoci(int row) {
+        return copyLociTo(row, new int[geneSize]);
+    }
+
+    /**
+     * Write the row genome, in locus order, into 'out' (at least geneSize long).
+     *
+     * @return out
+     */
+    public int[] copyLociTo(int row, int[] out) {
+        for (int l = 0; l < geneSize; l++) out[l] = loci[l * size + row];
+        return out;
+    }
+
+    public String getName(int row) { return names[row]; }
+    public void setName(int row, String name) { names[row] = name; }
+
+    public double getTotalScore(int row) { return totalScore[row]; }
+    public int getWinAccumulator(int row) { return totalWin[row]; }
+    public int getLongWin(int row) { return longWin[row]; }
+    public int getShortWin(int row) { return shortWin[row]; }
+    public int getTotalLong(int row) { return totalLong[row]; }
+    public int getTotalShort(int row) { return totalShort[row]; }
+    public long getTotalBarsSurviving(int row) { return barsSurviving[row]; }
+
+    /** Same definition as Gene.getWinRate(). */
+    public double getWinRate(int row) {
+        if (totalLong[row] + totalShort[row] > 0) {
+            return totalWin[row] / (totalLong[row] + totalShort[row]);
+        }
+        return 0;
+    }
+
+    public boolean hasPrediction(int row) { return hasPrediction[row]; }
+    public long getPredictionTimestamp(int row) { return predTimestamp[row]; }
+    public long getPredictionBarNumber(int row) { return predBarNumber[row]; }
+    public double getPredictedMarketPrice(int row) { return predictedPrice[row]; }
+    public int getDirection(int row) { return direction[row]; }
+    public double getLastScore(int row) { return lastScore[row]; }
+    public double getYhat(int row) { return yhat[row]; }
+
+    /** Predictions in the ranking window of a row, 0 without a window. */
+    public int getWindowFill(int row) { return (window > 0 ? windowFill[row] : 0); }
+    public double getWindowScore(int row) { return (window > 0 ? windowScoreSum[row] : 0); }
+    public int getWindowAgreement(int row) { return (window > 0 ? windowAgreeSum[row] : 0); }
+}
@@ -0,0 +1,194 @@
+package it.l_soft.wows.ga;
+
+import java.util.Arrays;
+
+/**
+ * Circular history of the predictions issued by a gene and of their outcome, kept in primitive
+ * column arrays: no object is created per prediction.
+ *
+ * - add() appends a pending prediction and returns its sequence (0 for the first one); once
+ *   'capacity' predictions were added, each add overwrites the oldest.
+ * - resolveNext() scores the oldest pending prediction against the bar it was issued for.
+ * - The window aggregates (score sum, successes, resolved count) cover the resolved predictions
+ *   still held. They are updated on add/resolve, O(1) per call, and recomputed from the columns
+ *   every time the ring wraps so that the running sum does not drift.
+ *
+ * Only the last 'capacity' sequences can be read. Not thread-safe: the bar thread is the only
+ * reader and writer.
+ */
+public final class ScoreHistory {
+    private static final byte PENDING = -1;
+    private static final byte FAILED = 0;
+    private static final byte SUCCEEDED = 1;
+
+    private final int capacity;
+
+    // Columns, slot = sequence % capacity
+    private final String[] name;
+    private final long[] timestamp;
+    private final long[] barNumber;
+    private final double[] predictedPrice;
+    private final double[] score;
+    private final byte[] direction;
+    private final byte[] outcome;
+
+    private long next = 0;              // sequence of the next add
+    private long nextToResolve = 0;     // oldest pending sequence
+    private long lastResolved = -1;
+
+    // Aggregates over the resolved entries still held
+    private double windowScore = 0;
+    private int windowSuccesses = 0;
+    private int windowResolved = 0;
+
+    public ScoreHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be > 0");
+        }
+        this.capacity = capacity;
+        this.name = new String[capacity];
+        this.timestamp = new long[capacity];
+        this.barNumber = new long[capacity];
+        this.predictedPrice = new double[capacity];
+        this.score = new double[capacity];
+        this.direction = new byte[capacity];
+        this.outcome = new byte[capacity];
+    }
+
+    // =============== Writes ===============
+
+    /**
+     * Append a pending prediction.
+     *
+     * @return its sequence.
+     */
+    public long add(String name, long timestamp, long barNumber, double predictedPrice, int direction) {
+        long seq = next;
+        int i = slot(seq);
+        if (seq >= capacity) {
+            evict(i);
+        }
+        this.name[i] = name;
+        this.timestamp[i] = timestamp;
+        this.barNumber[i] = barNumber;
+        this.predictedPrice[i] = predictedPrice;
+        this.score[i] = 0;
+        this.direction[i] = (byte) Integer.signum(direction);
+        this.outcome[i] = PENDING;
+        next = seq + 1;
+
+        // pending entries that were overwritten are never resolved
+        nextToResolve = Math.max(nextToResolve, first());
+        if (i == capacity - 1) {
+            resync();
+        }
+        return seq;
+    }
+
+    /**
+     * Store the outcome of the oldest pending prediction.
+     *
+     * @param timestamp time of the bar the prediction was checked against
+     * @return the sequence of the resolved prediction.
+     * @throws IllegalStateException if no prediction is pending.
+     */
+    public long resolveNext(double score, boolean successful, long timestamp) {
+        if (!hasPending()) {
+            throw new IllegalStateException("No pending prediction");
+        }
+        int i = slot(nextToResolve);
+        this.score[i] = score;
+        this.outcome[i] = (successful ? SUCCEEDED : FAILED);
+        this.timestamp[i] = timestamp;
+        windowScore += score;
+        windowResolved++;
+        if (successful) windowSuccesses++;
+        lastResolved = nextToResolve++;
+        return lastResolved;
+    }
+
+    /** Forget all the entries, keeping the arrays. */
+    public void clear() {
+        next = 0;
+        nextToResolve = 0;
+        lastResolved = -1;
+        windowScore = 0;
+        windowSuccesses = 0;
+        windowResolved = 0;
+        Arrays.fill(name, null);
+    }
+
+    // Take the resolved entry in slot i out of the aggregates before overwriting it
+    private void evict(int i) {
+        if (outcome[i] != PENDING) {
+            windowScore -= score[i];
+            windowResolved--;
+            if (outcome[i] == SUCCEEDED) windowSuccesses--;
+            // no rounding residue on an empty window
+            if (windowResolved == 0) windowScore = 0;
+        }
+    }
+
+    private void resync() {
+        double sum = 0;
+        for (long seq = first(); seq < nextToResolve; seq++) {
+            sum += score[slot(seq)];
+        }
+        windowScore = sum;
+    }
+
+    // =============== Reads ===============
+
+    public int capacity() { return capacity; }
+
+    /** Number of entries held, pending ones included. */
+    public int size() { return (int) Math.min(next, capacity); }
+
+    /** Oldest sequence still held. */
+    public long first() { return Math.max(0, next - capacity); }
+
+    /** Newest sequence, -1 if empty. */
+    public long last() { return next - 1; }
+
+    public boolean hasPending() { return nextToResolve < next; }
+
+    /** Oldest pending sequence, -1 if none. */
+    public long oldestPending() { return (hasPending() ? nextToResolve : -1); }
+
+    /** Sequence of the last resolveNext(), -1 if none or no longer held. */
+    public long lastResolved() { return (lastResolved >= first() ? lastResolved : -1); }
+
+    public String getName(long seq) { return name[checked(seq)]; }
+    public long getTimestamp(long seq) { return timestamp[checked(seq)]; }
+    public long getBarNumber(long seq) { return barNumber[checked(seq)]; }
+    public double getPredictedPrice(long seq) { return predictedPrice[checked(seq)]; }
+    public int getDirection(long seq) { return direction[checked(seq)]; }
+    public double getScore(long seq) { return score[checked(seq)]; }
+    public boolean isResolved(long seq) { return outcome[checked(seq)] != PENDING; }
+    public boolean isSuccessful(long seq) { return outcome[checked(seq)] == SUCCEEDED; }
+
+    /** Sum of the scores of the resolved entries held. */
+    public double getWindowScore() { return windowScore; }
+
+    /** Number of the resolved entries held that were successful. */
+    public int getWindowSuccesses() { return windowSuccesses; }
+
+    /** Number of the resolved entries held. */
+    public int getWindowResolved() { return windowResolved; }
+
+    /** Successful share of the resolved entries held, 0 when none. */
+    public double getWindowWinRate() {
+        return (windowResolved > 0 ? (double) windowSuccesses / windowResolved : 0);
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    private int checked(long seq) {
+        if (seq < first() || seq >= next) {
+            throw new IndexOutOfBoundsException("Sequence " + seq + " not held, range [" + first() + ", " + next + ")");
+        }
+        return slot(seq);
+    }
+}
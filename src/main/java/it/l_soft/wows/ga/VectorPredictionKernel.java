@@ -0,0 +1,44 @@
+package it.l_soft.wows.ga;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD composite sums for PopulationMatrix.predictVectorized, built on the JDK Vector API
+ * (jdk.incubator.vector).
+ *
+ * One vector holds the z of SPECIES.length() consecutive genes: for every locus the normalized
+ * values are gathered through the locus-major loci array and added, in the same locus order as
+ * the scalar loop, so every lane gets the scalar sum exactly. tanh is left to the caller:
+ * VectorOperators.TANH is not bit-equal to Math.tanh.
+ *
+ * Compiled by the 'vector' Maven profile only and loaded by name, see
+ * PopulationMatrix.isVectorKernelAvailable().
+ */
+final class VectorPredictionKernel implements PopulationMatrix.VectorKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void sums(double[] normalized, int[] loci, int size, int geneSize, double[] z, int from, int to) {
+        final int step = SPECIES.length();
+        final int upper = from + SPECIES.loopBound(to - from);
+
+        int r = from;
+        for (; r < upper; r += step) {
+            DoubleVector sum = DoubleVector.zero(SPECIES);
+            for (int l = 0; l < geneSize; l++) {
+                sum = sum.add(DoubleVector.fromArray(SPECIES, normalized, 0, loci, l * size + r));
+            }
+            sum.intoArray(z, r);
+        }
+
+        // tail, scalar
+        for (; r < to; r++) {
+            double sum = 0.0;
+            for (int l = 0; l < geneSize; l++) {
+                sum += normalized[loci[l * size + r]];
+            }
+            z[r] = sum;
+        }
+    }
+}
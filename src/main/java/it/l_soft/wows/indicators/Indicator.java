@@ -60,6 +60,15 @@ public interface Indicator {
         return z;
     }
 
+    /** Close distance from a moving average, in ATRs, scaled to [-50, 50] (0 if undefined). */
+    static double normalizeMovingAverage(double ma, Bar bar, ATR atrForScaling) {
+        double atr = atrForScaling.value();
+        if (Double.isNaN(ma) || Double.isNaN(atr) || atr == 0.0) return 0.0;
+        double diff = bar.getClose() - ma;
+        double z = (diff / atr) * 25.0; // 25 to be conservative vs oscillators
+        return Math.max(-50.0, Math.min(50.0, z));
+    }
+
     /**
      * Normalize indicator value to [-50, 50].
      * For some indicators we need the current bar (for price, ATR, band positions).
@@ -146,12 +155,7 @@ public interface Indicator {
             this instanceof EMA ||
             this instanceof KAMA ||
             this instanceof WMA) {
-            double ma = v;
-            double atr = atrForScaling.value();
-            if (Double.isNaN(ma) || Double.isNaN(atr) || atr == 0.0) return 0.0;
-            double diff = bar.getClose() - ma;
-            double z = (diff / atr) * 25.0; // 25 to be conservative vs oscillators
-            return clamp50(z);
+            return normalizeMovingAverage(v, bar, atrForScaling);
         }
 
         // DPO: already "price - SMA shifted" -> treat like MA distance
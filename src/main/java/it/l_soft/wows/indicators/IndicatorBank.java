@@ -0,0 +1,104 @@
+package it.l_soft.wows.indicators;
+
+import java.util.function.ToDoubleFunction;
+
+import it.l_soft.wows.ApplicationProperties;
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.indicators.volatility.ATR;
+
+/**
+ * One indicator computed for many periods in a single pass: add() reads the bar input once and
+ * updates every period, whose state lives in primitive arrays indexed by member.
+ *
+ * Configured with a sweep token such as "EMA[5:200:5](CLOSE)" (see IndicatorGraph). Each period
+ * is exposed as a Member, an Indicator view that GAEngine sees as one more catalog entry, named
+ * like the single indicator ("EMA(5)") and normalized the same way.
+ *
+ * Periods are strictly increasing, so the members with enough data are always a prefix of the
+ * arrays. Members do not update the bank: its owner adds the bar to the bank before reading them.
+ * Not thread-safe, like the indicators.
+ */
+public abstract class IndicatorBank {
+    protected final String name;
+    protected final int[] periods;
+    protected final ToDoubleFunction<Bar> input;
+    private final Member[] members;
+
+    protected IndicatorBank(String name, int[] periods, ToDoubleFunction<Bar> input) {
+        if (periods.length == 0) throw new IllegalArgumentException("no periods");
+        for (int i = 0; i < periods.length; i++) {
+            if (periods[i] <= 0) throw new IllegalArgumentException("period must be > 0");
+            if (i > 0 && periods[i] <= periods[i - 1]) {
+                throw new IllegalArgumentException("periods must be strictly increasing");
+            }
+        }
+        this.name = name;
+        this.periods = periods.clone();
+        this.input = input;
+        this.members = new Member[periods.length];
+        for (int i = 0; i < periods.length; i++) {
+            members[i] = new Member(i);
+        }
+    }
+
+    /** Periods from, from + step, ... up to 'to' included. */
+    public static int[] periods(int from, int to, int step) {
+        if (from <= 0 || to < from || step <= 0) {
+            throw new IllegalArgumentException("Invalid period sweep " + from + ":" + to + ":" + step);
+        }
+        int[] periods = new int[(to - from) / step + 1];
+        for (int i = 0; i < periods.length; i++) {
+            periods[i] = from + i * step;
+        }
+        return periods;
+    }
+
+    /** Feed one bar to every period. */
+    public abstract void add(Bar bar);
+
+    /** Current value of member i, NOT_DEFINED until its period is warmed up. */
+    public abstract double value(int i);
+
+    public abstract void reset();
+
+    /** Normalized value of member i in [-50, 50], as Indicator.normalize() gives for the single indicator. */
+    protected abstract double normalize(int i, Bar bar, ATR atrForScaling, ApplicationProperties props);
+
+    public int size() { return periods.length; }
+
+    public int getPeriod(int i) { return periods[i]; }
+
+    public Member member(int i) { return members[i]; }
+
+    public String getName() { return name; }
+
+    /** Read-only view of one period of the bank. */
+    public final class Member extends AbstractIndicator {
+        private final int index;
+        private final String memberName;
+
+        private Member(int index) {
+            this.index = index;
+            this.memberName = name + "(" + periods[index] + ")";
+        }
+
+        /** The bank is updated by its owner: this only returns the current value. */
+        @Override
+        public double add(Bar bar) { return value(); }
+
+        @Override
+        public double value() { return IndicatorBank.this.value(index); }
+
+        @Override
+        public double normalize(Bar bar, ATR atrForScaling, ApplicationProperties props) {
+            return IndicatorBank.this.normalize(index, bar, atrForScaling, props);
+        }
+
+        @Override
+        public String getName() { return memberName; }
+
+        public int getPeriod() { return periods[index]; }
+
+        public IndicatorBank getBank() { return IndicatorBank.this; }
+    }
+}
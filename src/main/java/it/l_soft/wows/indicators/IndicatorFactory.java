@@ -32,6 +32,51 @@ public final class IndicatorFactory {
         }
     }
 
+    // NAME[from:to[:step]](args), e.g. EMA[5:200:5](CLOSE): a sweep of the first parameter
+    private static final Pattern SWEEP = Pattern.compile(
+        "^\\s*([A-Za-z0-9_.]+)\\s*\\[\\s*([0-9]+)\\s*:\\s*([0-9]+)\\s*(?::\\s*([0-9]+)\\s*)?\\]" +
+        "\\s*\\(\\s*(.*?)\\s*\\)\\s*$"
+    );
+
+    public static final class SweepSpec {
+        public final String name;
+        public final int[] periods;
+        public final String args;       // what follows the period, e.g. "CLOSE", may be empty
+
+        public SweepSpec(String name, int[] periods, String args) {
+            this.name = name;
+            this.periods = periods;
+            this.args = args;
+        }
+
+        /** Token of the single indicator of period periods[i], e.g. "EMA(5,CLOSE)". */
+        public String token(int i) {
+            return name + "(" + periods[i] + (args.isEmpty() ? "" : "," + args) + ")";
+        }
+    }
+
+    /**
+     * True if the token is a sweep like "EMA[5:200:5](CLOSE)". Anything else, a mistyped sweep
+     * included, goes to parse() and gets its error.
+     */
+    public static boolean isSweep(String token) {
+        return SWEEP.matcher(token.trim()).matches();
+    }
+
+    public static SweepSpec parseSweep(String token) {
+        Matcher m = SWEEP.matcher(token.trim());
+        if (!m.matches()) {
+            throw new IllegalArgumentException(
+                "Invalid indicator sweep: " + token +
+                " (expected NAME[from:to[:step]](args))"
+            );
+        }
+        int from = Integer.parseInt(m.group(2));
+        int to = Integer.parseInt(m.group(3));
+        int step = m.group(4) != null ? Integer.parseInt(m.group(4)) : 1;
+        return new SweepSpec(m.group(1), IndicatorBank.periods(from, to, step), m.group(5));
+    }
+
     public static Spec parse(String token) {
         Matcher m = PAT.matcher(token.trim());
         if (!m.matches()) {
@@ -151,9 +196,63 @@ public final class IndicatorFactory {
         throw new IllegalArgumentException("Unknown indicator name: " + nameOrPath);
     }
 
+    /**
+     * Canonical key of a spec: class simple name, parameters (integral values without decimals)
+     * and price, e.g. "EMA(12,CLOSE)". Specs that would build the same indicator get the same key
+     * whatever their spelling ("ema(12.0, close)", "trend.EMA(12,CLOSE)", "EMA(12)").
+     */
+    public static String key(Spec spec) {
+        spec = withDefaultPrice(spec);
+        StringBuilder sb = new StringBuilder(className(spec.name)).append('(');
+        for (int i = 0; i < spec.params.length; i++) {
+            double p = spec.params[i];
+            if (i > 0) sb.append(',');
+            if (p == Math.rint(p) && Math.abs(p) < 1e15) sb.append((long) p);
+            else sb.append(p);
+        }
+        if (spec.price != null) {
+            if (spec.params.length > 0) sb.append(',');
+            sb.append(spec.price.name());
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * The spec with price CLOSE when it has none and the indicator takes a price after these
+     * parameters: the constructors without one default to CLOSE, and EMA, SMA, RSI... have none.
+     */
+    public static Spec withDefaultPrice(Spec spec) {
+        if (spec.price != null) return spec;
+        for (Constructor<?> c : loadClass(resolveFqcn(spec.name)).getConstructors()) {
+            Class<?>[] sig = c.getParameterTypes();
+            if (sig.length != spec.params.length + 1 || sig[sig.length - 1] != Price.class) continue;
+            boolean numeric = true;
+            for (int i = 0; i < spec.params.length; i++) {
+                numeric &= (sig[i] == int.class || sig[i] == double.class);
+            }
+            if (numeric) return new Spec(spec.name, spec.params, Price.CLOSE);
+        }
+        return spec;
+    }
+
+    private static Class<?> loadClass(String fqcn) {
+        try {
+            return Class.forName(fqcn);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown indicator class: " + fqcn, e);
+        }
+    }
+
+    /** Simple class name an indicator name resolves to, e.g. "ema" -> "EMA". */
+    public static String className(String name) {
+        String fqcn = resolveFqcn(name);
+        return fqcn.substring(fqcn.lastIndexOf('.') + 1);
+    }
+
     // ------------ Construction ------------
 
     public static Indicator create(Spec spec) {
+        spec = withDefaultPrice(spec);
         String fqcn = resolveFqcn(spec.name);
         try {
             Class<?> raw = Class.forName(fqcn);
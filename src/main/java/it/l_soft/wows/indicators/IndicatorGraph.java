@@ -0,0 +1,207 @@
+package it.l_soft.wows.indicators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.Price;
+import it.l_soft.wows.indicators.IndicatorFactory.Spec;
+import it.l_soft.wows.indicators.IndicatorFactory.SweepSpec;
+import it.l_soft.wows.indicators.bands.Keltner;
+import it.l_soft.wows.indicators.composite.MACD;
+import it.l_soft.wows.indicators.composite.StochasticD;
+import it.l_soft.wows.indicators.momentum.RSIBank;
+import it.l_soft.wows.indicators.momentum.StochasticK;
+import it.l_soft.wows.indicators.trend.EMABank;
+import it.l_soft.wows.indicators.trend.SMABank;
+import it.l_soft.wows.indicators.volatility.ATR;
+
+/**
+ * The configured indicators as a deduplicated dependency graph.
+ *
+ * Each distinct indicator is one node, keyed by IndicatorFactory.key(): a token asking for an
+ * indicator already built gets the same instance, whatever its spelling ("EMA(12)" is
+ * "EMA(12,CLOSE)"), and MACD, Keltner and StochasticD are built on the nodes of their inputs
+ * (EMA, ATR, StochasticK) instead of private copies. With "EMA(12); MACD(12,26,9,CLOSE)" the
+ * EMA(12) is computed once per bar.
+ *
+ * - getCatalog(): one indicator per token, in configuration order; this is what genes index.
+ * - update(): adds the bar to every node once, inputs before the indicators reading them. Inputs
+ *   no token asks for (the EMA(20) of a Keltner) are nodes too: updated, but not in the catalog.
+ *
+ * A sweep token, NAME[from:to[:step]](args) like "EMA[5:200:5](CLOSE)", adds one catalog entry
+ * per period. For EMA, SMA and RSI over a price the periods no node has yet are computed by one
+ * IndicatorBank, updated before the nodes, and its members become the nodes of those keys (a
+ * later "EMA(10,CLOSE)" or the EMA(12) of a MACD reuses them). Other sweeps expand to the single
+ * tokens, "Donchian[10:50:10]()" being Donchian(10) ... Donchian(50).
+ *
+ * Bollinger keeps its own window since it needs the sum of squares along with the SMA sum.
+ * Not thread-safe: built at startup, then updated by the bar thread only.
+ */
+public final class IndicatorGraph {
+    private final Map<String, Indicator> nodes = new HashMap<>();
+    private final List<Indicator> updateOrder = new ArrayList<>();   // topological
+    private final List<IndicatorBank> banks = new ArrayList<>();     // no inputs: updated first
+    private final List<Indicator> catalog = new ArrayList<>();
+
+    /** Graph of the ';' separated tokens of indicatorsToInstantiate. */
+    public static IndicatorGraph build(String tokens) {
+        IndicatorGraph graph = new IndicatorGraph();
+        for (String token : tokens.split(";")) {
+            token = token.trim();
+            if (token.isEmpty()) continue;
+            graph.add(token);
+        }
+        return graph;
+    }
+
+    /**
+     * Append the indicator of a token, like "EMA(14,CLOSE)", to the catalog, or its indicators
+     * if it is a sweep like "EMA[5:200:5](CLOSE)".
+     */
+    public void add(String token) {
+        if (IndicatorFactory.isSweep(token)) {
+            addSweep(IndicatorFactory.parseSweep(token));
+        } else {
+            catalog.add(node(IndicatorFactory.parse(token)));
+        }
+    }
+
+    /** Feed one bar to every node, each exactly once, in dependency order. */
+    public void update(Bar bar) {
+        for (int i = 0; i < banks.size(); i++) {
+            banks.get(i).add(bar);
+        }
+        for (int i = 0; i < updateOrder.size(); i++) {
+            updateOrder.get(i).add(bar);
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < banks.size(); i++) {
+            banks.get(i).reset();
+        }
+        for (int i = 0; i < updateOrder.size(); i++) {
+            updateOrder.get(i).reset();
+        }
+    }
+
+    public List<Indicator> getCatalog() {
+        return Collections.unmodifiableList(catalog);
+    }
+
+    public List<Indicator> getUpdateOrder() {
+        return Collections.unmodifiableList(updateOrder);
+    }
+
+    /** Number of distinct indicators computed per bar, bank members included. */
+    public int size() {
+        int n = updateOrder.size();
+        for (int i = 0; i < banks.size(); i++) {
+            n += banks.get(i).size();
+        }
+        return n;
+    }
+
+    public List<IndicatorBank> getBanks() {
+        return Collections.unmodifiableList(banks);
+    }
+
+    private void addSweep(SweepSpec sweep) {
+        int n = sweep.periods.length;
+        Spec[] specs = new Spec[n];
+        String[] keys = new String[n];
+        int[] missing = new int[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            specs[i] = IndicatorFactory.parse(sweep.token(i));
+            keys[i] = IndicatorFactory.key(specs[i]);
+            if (!nodes.containsKey(keys[i])) missing[m++] = sweep.periods[i];
+        }
+
+        IndicatorBank bank = (m > 0 ? createBank(specs[0], Arrays.copyOf(missing, m)) : null);
+        if (bank != null) banks.add(bank);
+
+        int member = 0;
+        for (int i = 0; i < n; i++) {
+            Indicator indicator = nodes.get(keys[i]);
+            if (indicator == null) {
+                if (bank != null) {
+                    indicator = bank.member(member++);
+                    nodes.put(keys[i], indicator);
+                } else {
+                    indicator = node(specs[i]);
+                }
+            }
+            catalog.add(indicator);
+        }
+    }
+
+    // Bank of the spec indicator over the periods, null if it has none
+    private static IndicatorBank createBank(Spec spec, int[] periods) {
+        if (spec.params.length != 1) return null;
+        Price price = (spec.price != null ? spec.price : Price.CLOSE);
+        switch (IndicatorFactory.className(spec.name)) {
+            case "EMA": return new EMABank(periods, price);
+            case "SMA": return new SMABank(periods, price);
+            case "RSI": return new RSIBank(periods, price);
+            default:    return null;
+        }
+    }
+
+    // Existing node for the spec, or a new one appended after its inputs
+    private Indicator node(Spec spec) {
+        String key = IndicatorFactory.key(spec);
+        Indicator indicator = nodes.get(key);
+        if (indicator == null) {
+            indicator = create(key.substring(0, key.indexOf('(')), spec);
+            nodes.put(key, indicator);
+            updateOrder.add(indicator);
+        }
+        return indicator;
+    }
+
+    private Indicator create(String className, Spec spec) {
+        double[] p = spec.params;
+        Price price = (spec.price != null ? spec.price : Price.CLOSE);
+        switch (className) {
+            case "MACD":
+                if (p.length == 3) {
+                    // conventional ordering, as the MACD constructors do
+                    int fast = (int) Math.min(p[0], p[1]);
+                    int slow = (int) Math.max(p[0], p[1]);
+                    return new MACD(node(spec("EMA", price, fast)),
+                                    node(spec("EMA", price, slow)),
+                                    (int) p[2]);
+                }
+                break;
+            case "Keltner":
+                if (p.length == 3) {
+                    return new Keltner(node(spec("EMA", price, (int) p[0])),
+                                       (ATR) node(spec("ATR", null, (int) p[1])),
+                                       p[2]);
+                }
+                if (p.length == 2) {
+                    return new Keltner(node(spec("EMA", price, (int) p[0])),
+                                       (ATR) node(spec("ATR", null, (int) p[0])),
+                                       p[1]);
+                }
+                break;
+            case "StochasticD":
+                if (p.length == 2) {
+                    return new StochasticD((StochasticK) node(spec("StochasticK", null, (int) p[0])),
+                                           (int) p[1]);
+                }
+                break;
+        }
+        return IndicatorFactory.create(spec);
+    }
+
+    private static Spec spec(String name, Price price, int period) {
+        return new Spec(name, new double[] { period }, price);
+    }
+}
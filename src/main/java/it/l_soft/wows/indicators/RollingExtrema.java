@@ -0,0 +1,108 @@
+package it.l_soft.wows.indicators;
+
+/**
+ * Rolling max and min over the last 'period' bars, with the bar index where each was seen.
+ *
+ * Two monotonic deques of (value, bar index) pairs kept in primitive ring arrays: the max deque
+ * holds decreasing values, the min deque increasing ones, so their heads are the window extrema.
+ * O(1) amortized per bar and no allocation after construction.
+ *
+ * On ties the most recent bar wins (maxIndex()/minIndex() point at the newest of equal values),
+ * as in a chronological scan with >= / <=.
+ *
+ * Bars are numbered from 0 in add() order. Not thread-safe, like the indicators using it.
+ */
+public final class RollingExtrema {
+
+    private final int period;
+
+    private final double[] maxValues;   // strictly decreasing
+    private final long[] maxIndices;
+    private int maxHead = 0, maxSize = 0;
+
+    private final double[] minValues;   // strictly increasing
+    private final long[] minIndices;
+    private int minHead = 0, minSize = 0;
+
+    private long index = -1;            // index of the last bar added
+
+    public RollingExtrema(int period) {
+        if (period <= 0) throw new IllegalArgumentException("period must be > 0");
+        this.period = period;
+        this.maxValues = new double[period];
+        this.maxIndices = new long[period];
+        this.minValues = new double[period];
+        this.minIndices = new long[period];
+    }
+
+    /** Add one bar: 'high' goes to the max side, 'low' to the min side. */
+    public void add(double high, double low) {
+        index++;
+
+        // drop the entries leaving the window [index - period + 1 .. index], which also
+        // leaves room for the new one
+        final long windowStart = index - period + 1;
+        while (maxSize > 0 && maxIndices[maxHead] < windowStart) {
+            maxHead = next(maxHead);
+            maxSize--;
+        }
+        while (minSize > 0 && minIndices[minHead] < windowStart) {
+            minHead = next(minHead);
+            minSize--;
+        }
+
+        while (maxSize > 0 && maxValues[slot(maxHead, maxSize - 1)] <= high) maxSize--;
+        int i = slot(maxHead, maxSize++);
+        maxValues[i] = high;
+        maxIndices[i] = index;
+
+        while (minSize > 0 && minValues[slot(minHead, minSize - 1)] >= low) minSize--;
+        i = slot(minHead, minSize++);
+        minValues[i] = low;
+        minIndices[i] = index;
+    }
+
+    /** Add one value to both sides (e.g. closes). */
+    public void add(double value) {
+        add(value, value);
+    }
+
+    /** Highest value in the window, NaN before the first add(). */
+    public double max() { return (maxSize > 0 ? maxValues[maxHead] : Double.NaN); }
+
+    /** Lowest value in the window, NaN before the first add(). */
+    public double min() { return (minSize > 0 ? minValues[minHead] : Double.NaN); }
+
+    /** Bar index of max(), -1 before the first add(). */
+    public long maxIndex() { return (maxSize > 0 ? maxIndices[maxHead] : -1); }
+
+    /** Bar index of min(), -1 before the first add(). */
+    public long minIndex() { return (minSize > 0 ? minIndices[minHead] : -1); }
+
+    /** Index of the last bar added, -1 if none. */
+    public long index() { return index; }
+
+    public int getPeriod() { return period; }
+
+    /** Bars in the window, at most period. */
+    public int count() { return (int) Math.min(index + 1, period); }
+
+    /** True once 'period' bars were added. */
+    public boolean isFull() { return index + 1 >= period; }
+
+    public void reset() {
+        maxHead = maxSize = 0;
+        minHead = minSize = 0;
+        index = -1;
+    }
+
+    private int next(int pos) {
+        return (pos + 1 == period) ? 0 : pos + 1;
+    }
+
+    // ring position of the k-th entry after 'head'
+    private int slot(int head, int k) {
+        int pos = head + k;
+        return (pos >= period) ? pos - period : pos;
+    }
+}
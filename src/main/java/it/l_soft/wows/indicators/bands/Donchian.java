@@ -2,9 +2,7 @@ package it.l_soft.wows.indicators.bands;
 
 import it.l_soft.wows.comms.Bar;
 import it.l_soft.wows.indicators.AbstractIndicator;
-
-import java.util.ArrayDeque;
-import java.util.Deque;
+import it.l_soft.wows.indicators.RollingExtrema;
 
 /**
  * Streaming Donchian Channel (trend-following / breakout indicator)
@@ -14,12 +12,14 @@ import java.util.Deque;
  * mid   = (upper + lower) / 2
  *
  * Returns NOT_DEFINED until at least N bars are seen.
+ *
+ * Rolling max/min kept by RollingExtrema: O(1) amortized per bar and no allocation after
+ * construction.
  */
 public final class Donchian extends AbstractIndicator {
 
 	private final int period;
-    private final Deque<Double> highs;
-    private final Deque<Double> lows;
+    private final RollingExtrema extrema; // highs on the max side, lows on the min side
 
     private double upper = NOT_DEFINED;
     private double lower = NOT_DEFINED;
@@ -31,8 +31,7 @@ public final class Donchian extends AbstractIndicator {
         if (period <= 0)
             throw new IllegalArgumentException("period must be > 0");
         this.period = period;
-        this.highs = new ArrayDeque<>(period);
-        this.lows  = new ArrayDeque<>(period);
+        this.extrema = new RollingExtrema(period);
     }
 
     @Override
@@ -40,11 +39,7 @@ public final class Donchian extends AbstractIndicator {
         double high = bar.getHigh();
         double low  = bar.getLow();
 
-        // maintain fixed-length deque
-        if (highs.size() == period) highs.removeFirst();
-        if (lows.size()  == period) lows.removeFirst();
-        highs.addLast(high);
-        lows.addLast(low);
+        extrema.add(high, low);
 
         barsSeen++;
         if (barsSeen < period) {
@@ -52,9 +47,8 @@ public final class Donchian extends AbstractIndicator {
             return mid;
         }
 
-        // recompute from window (O(period), acceptable for small N)
-        upper = highs.stream().mapToDouble(Double::doubleValue).max().orElse(Double.NaN);
-        lower = lows.stream().mapToDouble(Double::doubleValue).min().orElse(Double.NaN);
+        upper = extrema.max();
+        lower = extrema.min();
         mid   = (upper + lower) / 2.0;
 
         return mid;
@@ -68,8 +62,7 @@ public final class Donchian extends AbstractIndicator {
 
     @Override
     public void reset() {
-        highs.clear();
-        lows.clear();
+        extrema.reset();
         barsSeen = 0;
         upper = lower = mid = NOT_DEFINED;
     }
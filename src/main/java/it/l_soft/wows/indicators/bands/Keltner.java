@@ -5,6 +5,7 @@ import java.util.function.ToDoubleFunction;
 import it.l_soft.wows.comms.Bar;
 import it.l_soft.wows.comms.Price;
 import it.l_soft.wows.indicators.AbstractIndicator;
+import it.l_soft.wows.indicators.Indicator;
 import it.l_soft.wows.indicators.trend.EMA;
 import it.l_soft.wows.indicators.volatility.ATR;
 
@@ -17,12 +18,15 @@ import it.l_soft.wows.indicators.volatility.ATR;
  * Notes:
  * - Returns Double.NaN (NOT_DEFINED) until both EMA and ATR are defined.
  * - Typical defaults: period=20, atrPeriod=20, multiplier=2.0, price=CLOSE.
+ * - Built on a shared EMA and ATR (see IndicatorGraph) it only reads them: whoever owns them
+ *   must add() the bar to them before adding it to the channel.
  */
 public final class Keltner extends AbstractIndicator {
 	
-    private final EMA emaMid;
+    private final Indicator emaMid;
     private final ATR atr;
     private final double multiplier;
+    private final boolean ownsInputs; // false: emaMid/atr are updated by the caller
 
     private double mid = NOT_DEFINED;
     private double up  = NOT_DEFINED;
@@ -30,24 +34,33 @@ public final class Keltner extends AbstractIndicator {
 
     /** Modern Keltner: EMA for middle, ATR for band width. */
     public Keltner(int midPeriod, int atrPeriod, double multiplier, Price price) {
-        this(multiplier, new EMA(midPeriod, price), new ATR(atrPeriod));
+        this(multiplier, new EMA(midPeriod, price), new ATR(atrPeriod), true);
     }
 
     /** Same period for EMA and ATR, with Price. */
     public Keltner(int period, double multiplier, Price price) {
-        this(multiplier, new EMA(period, price), new ATR(period));
+        this(multiplier, new EMA(period, price), new ATR(period), true);
     }
 
     /** Use a custom price extractor for the EMA midline. */
     public Keltner(int midPeriod, int atrPeriod, double multiplier, ToDoubleFunction<Bar> input) {
-        this(multiplier, new EMA(midPeriod, input), new ATR(atrPeriod));
+        this(multiplier, new EMA(midPeriod, input), new ATR(atrPeriod), true);
     }
 
-    private Keltner(double multiplier, EMA emaMid, ATR atr) {
+    /**
+     * Channel over a shared EMA (EMA instance or EMABank member) and ATR, already updated with
+     * the bar when add() is called.
+     */
+    public Keltner(Indicator emaMid, ATR atr, double multiplier) {
+        this(multiplier, emaMid, atr, false);
+    }
+
+    private Keltner(double multiplier, Indicator emaMid, ATR atr, boolean ownsInputs) {
         if (multiplier < 0) throw new IllegalArgumentException("multiplier must be >= 0");
         this.multiplier = multiplier;
         this.emaMid = emaMid;
         this.atr = atr;
+        this.ownsInputs = ownsInputs;
     }
 
     /** Convenience: defaults to CLOSE, period=20, atrPeriod=20, multiplier=2.0 */
@@ -57,8 +70,8 @@ public final class Keltner extends AbstractIndicator {
 
     @Override
     public double add(Bar bar) {
-        final double m = emaMid.add(bar);
-        final double a = atr.add(bar);
+        final double m = (ownsInputs ? emaMid.add(bar) : emaMid.value());
+        final double a = (ownsInputs ? atr.add(bar) : atr.value());
 
         if (Double.isNaN(m) || Double.isNaN(a)) {
             mid = up = low = NOT_DEFINED;
@@ -91,8 +104,10 @@ public final class Keltner extends AbstractIndicator {
 
     @Override
     public void reset() {
-        emaMid.reset();
-        atr.reset();
+        if (ownsInputs) {
+            emaMid.reset();
+            atr.reset();
+        }
         mid = up = low = NOT_DEFINED;
     }
 }
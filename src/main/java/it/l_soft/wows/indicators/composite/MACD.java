@@ -5,6 +5,7 @@ import java.util.function.ToDoubleFunction;
 import it.l_soft.wows.comms.Bar;
 import it.l_soft.wows.comms.Price;
 import it.l_soft.wows.indicators.AbstractIndicator;
+import it.l_soft.wows.indicators.Indicator;
 import it.l_soft.wows.indicators.trend.EMA;
 
 /**
@@ -23,12 +24,16 @@ import it.l_soft.wows.indicators.trend.EMA;
  * - Signal/Histogram are NaN until signal EMA is defined.
  *
  * Typical defaults: fast=12, slow=26, signal=9 on Price.CLOSE.
+ *
+ * Built on shared EMAs (see IndicatorGraph) the MACD only reads them: whoever owns them must
+ * add() the bar to them before adding it to the MACD.
  */
 public final class MACD extends AbstractIndicator {
 	
-    private final EMA emaFast;
-    private final EMA emaSlow;
+    private final Indicator emaFast;
+    private final Indicator emaSlow;
     private final int signalPeriod;
+    private final boolean ownsInputs; // false: emaFast/emaSlow are updated by the caller
 
     // We'll smooth the MACD line with an EMA driven by synthetic Bars
     private final EMA emaSignal;
@@ -55,10 +60,26 @@ public final class MACD extends AbstractIndicator {
         this.signalPeriod = signalPeriod;
         this.emaFast   = new EMA(fastPeriod, input);
         this.emaSlow   = new EMA(slowPeriod, input);
+        this.ownsInputs = true;
         // Signal EMA runs over MACD values; we feed it via a tiny scalar->Bar adapter
         this.emaSignal = new EMA(signalPeriod, (ToDoubleFunction<Bar>) b -> b.getClose());
     }
 
+    /**
+     * MACD over shared EMAs (EMA instances or EMABank members), already updated with the bar
+     * when add() is called. 'fast' must be the shorter one.
+     */
+    public MACD(Indicator fast, Indicator slow, int signalPeriod) {
+        if (signalPeriod <= 0) {
+            throw new IllegalArgumentException("periods must be > 0");
+        }
+        this.signalPeriod = signalPeriod;
+        this.emaFast   = fast;
+        this.emaSlow   = slow;
+        this.ownsInputs = false;
+        this.emaSignal = new EMA(signalPeriod, (ToDoubleFunction<Bar>) b -> b.getClose());
+    }
+
     /** Convenience: no Price provided -> defaults to CLOSE. */
     public MACD(int fastPeriod, int slowPeriod, int signalPeriod) {
         this(fastPeriod, slowPeriod, signalPeriod, Price.CLOSE);
@@ -66,8 +87,8 @@ public final class MACD extends AbstractIndicator {
 
     @Override
     public double add(Bar bar) {
-        final double f = emaFast.add(bar);
-        final double s = emaSlow.add(bar);
+        final double f = (ownsInputs ? emaFast.add(bar) : emaFast.value());
+        final double s = (ownsInputs ? emaSlow.add(bar) : emaSlow.value());
 
         if (Double.isNaN(f) || Double.isNaN(s)) {
             // Fast/slow not ready yet
@@ -104,8 +125,10 @@ public final class MACD extends AbstractIndicator {
 
     @Override
     public void reset() {
-        emaFast.reset();
-        emaSlow.reset();
+        if (ownsInputs) {
+            emaFast.reset();
+            emaSlow.reset();
+        }
         emaSignal.reset();
         macd = signal = hist = NOT_DEFINED;
     }
@@ -5,10 +5,17 @@ import it.l_soft.wows.indicators.AbstractIndicator;
 import it.l_soft.wows.indicators.momentum.StochasticK;
 import it.l_soft.wows.indicators.trend.SMA;
 
+/**
+ * Stochastic %D: SMA(dPeriod) over %K(kPeriod).
+ *
+ * Built on a shared %K (see IndicatorGraph) it only reads it: whoever owns it must add() the bar
+ * to it before adding it to the %D.
+ */
 public final class StochasticD extends AbstractIndicator {
 	
     private final StochasticK k;
     private final SMA d; // SMA over %K
+    private final boolean ownsK; // false: k is updated by the caller
 
     private double lastD = NOT_DEFINED;
 
@@ -16,11 +23,19 @@ public final class StochasticD extends AbstractIndicator {
         this.k = new StochasticK(kPeriod);
         // SMA over a synthetic Bar carrying %K as 'close'
         this.d = new SMA(dPeriod, b -> b.getClose()); // we will feed pseudo-bars
+        this.ownsK = true;
+    }
+
+    /** %D over a shared %K, already updated with the bar when add() is called. */
+    public StochasticD(StochasticK k, int dPeriod) {
+        this.k = k;
+        this.d = new SMA(dPeriod, b -> b.getClose());
+        this.ownsK = false;
     }
 
     @Override
     public double add(Bar bar) {
-        double kVal = k.add(bar);
+        double kVal = (ownsK ? k.add(bar) : k.value());
         if (Double.isNaN(kVal)) {
             lastD = NOT_DEFINED;
             return lastD;
@@ -40,6 +55,6 @@ public final class StochasticD extends AbstractIndicator {
     }
 
     @Override public double value() { return lastD; }
-    @Override public void reset() { k.reset(); d.reset(); lastD = NOT_DEFINED; }
+    @Override public void reset() { if (ownsK) k.reset(); d.reset(); lastD = NOT_DEFINED; }
     public boolean isReady() { return !Double.isNaN(lastD); }
 }
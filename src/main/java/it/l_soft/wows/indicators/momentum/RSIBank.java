@@ -0,0 +1,94 @@
+package it.l_soft.wows.indicators.momentum;
+
+import java.util.function.ToDoubleFunction;
+
+import it.l_soft.wows.ApplicationProperties;
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.Price;
+import it.l_soft.wows.indicators.Indicator;
+import it.l_soft.wows.indicators.IndicatorBank;
+import it.l_soft.wows.indicators.volatility.ATR;
+
+/**
+ * Wilder RSIs of many periods over one input, e.g. "RSI[2:50:1](CLOSE)".
+ *
+ * The price delta, gain and loss are computed once per bar for all the members. Member i gives
+ * exactly what RSI(periods[i]) gives: averages seeded with the mean of the first 'period' gains
+ * and losses (prefixes of one running sum), then Wilder smoothing.
+ */
+public final class RSIBank extends IndicatorBank {
+
+    private final double[] avgGain;
+    private final double[] avgLoss;
+
+    private long count = 0;             // bars seen, including the first one (no delta)
+    private double prevPrice = Double.NaN;
+    private double sumGain = 0.0;       // over the first count - 1 deltas, until every member is seeded
+    private double sumLoss = 0.0;
+    private int seeded = 0;             // members [0, seeded) have a value
+
+    public RSIBank(int[] periods, Price price) {
+        this(periods, price.extractor);
+    }
+
+    public RSIBank(int[] periods, ToDoubleFunction<Bar> input) {
+        super("RSI", periods, input);
+        this.avgGain = new double[periods.length];
+        this.avgLoss = new double[periods.length];
+    }
+
+    @Override
+    public void add(Bar bar) {
+        final double p = input.applyAsDouble(bar);
+
+        if (count++ == 0) {
+            prevPrice = p;
+            return;
+        }
+
+        final double delta = p - prevPrice;
+        final double gain  = delta > 0 ?  delta : 0.0;
+        final double loss  = delta < 0 ? -delta : 0.0;
+        prevPrice = p;
+
+        for (int i = 0; i < seeded; i++) {
+            final int period = periods[i];
+            avgGain[i] = ((avgGain[i] * (period - 1)) + gain) / period;
+            avgLoss[i] = ((avgLoss[i] * (period - 1)) + loss) / period;
+        }
+
+        if (seeded < periods.length) {
+            sumGain += gain;
+            sumLoss += loss;
+            while (seeded < periods.length && periods[seeded] == count - 1) {
+                avgGain[seeded] = sumGain / periods[seeded];
+                avgLoss[seeded] = sumLoss / periods[seeded];
+                seeded++;
+            }
+        }
+    }
+
+    @Override
+    public double value(int i) {
+        if (i >= seeded) return Indicator.NOT_DEFINED;
+        final double g = avgGain[i];
+        final double l = avgLoss[i];
+        if (l == 0.0 && g == 0.0) return 50.0;     // flat market
+        if (l == 0.0) return 100.0;                // no losses
+        return 100.0 - (100.0 / (1.0 + g / l));
+    }
+
+    @Override
+    public void reset() {
+        count = 0;
+        prevPrice = Double.NaN;
+        sumGain = sumLoss = 0.0;
+        seeded = 0;
+    }
+
+    @Override
+    protected double normalize(int i, Bar bar, ATR atrForScaling, ApplicationProperties props) {
+        final double v = value(i);
+        return Double.isNaN(v) ? 0.0 : v - 50.0;   // RSI in [0,100] → [-50,50]
+    }
+}
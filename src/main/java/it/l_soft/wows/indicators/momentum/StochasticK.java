@@ -3,32 +3,28 @@ package it.l_soft.wows.indicators.momentum;
 import it.l_soft.wows.comms.Bar;
 import it.l_soft.wows.comms.Price;
 import it.l_soft.wows.indicators.AbstractIndicator;
-
-import java.util.ArrayDeque;
+import it.l_soft.wows.indicators.RollingExtrema;
 
 /**
  * Streaming Stochastic %K (Fast %K):
  *   %K = 100 * (Close - LowestLow_n) / (HighestHigh_n - LowestLow_n)
  *
- * Rolling min/max maintained with monotonic deques (O(1) amortized).
+ * Rolling min/max maintained with RollingExtrema (O(1) amortized, no allocation).
  * Returns Double.NaN until 'period' bars processed.
  */
 public final class StochasticK extends AbstractIndicator {
 	
     private final int period;
 
-    // Monotonic deques store (value, index) pairs; head is current min/max.
-    private static final class Node { final double v; final int i; Node(double v, int i){this.v=v;this.i=i;} }
-    private final ArrayDeque<Node> maxQ = new ArrayDeque<>(); // strictly decreasing highs
-    private final ArrayDeque<Node> minQ = new ArrayDeque<>(); // strictly increasing lows
+    private final RollingExtrema extrema; // highs on the max side, lows on the min side
 
-    private int index = -1;           // global bar index
     private int count = 0;            // bars seen (<= period)
     private double lastK = NOT_DEFINED;
 
     public StochasticK(int period) {
         if (period <= 0) throw new IllegalArgumentException("period must be > 0");
         this.period = period;
+        this.extrema = new RollingExtrema(period);
     }
     
     // Add this so the factory's (int, Price) call works:
@@ -38,24 +34,8 @@ public final class StochasticK extends AbstractIndicator {
 
     @Override
     public double add(Bar bar) {
-        index++;
-
-        final double high = bar.getHigh();
-        final double low  = bar.getLow();
         final double close= bar.getClose();
-
-        // push high to maxQ (keep decreasing)
-        while (!maxQ.isEmpty() && maxQ.getLast().v <= high) maxQ.removeLast();
-        maxQ.addLast(new Node(high, index));
-
-        // push low to minQ (keep increasing)
-        while (!minQ.isEmpty() && minQ.getLast().v >= low) minQ.removeLast();
-        minQ.addLast(new Node(low, index));
-
-        // drop items outside the window [index - period + 1 .. index]
-        final int windowStart = index - period + 1;
-        while (!maxQ.isEmpty() && maxQ.getFirst().i < windowStart) maxQ.removeFirst();
-        while (!minQ.isEmpty() && minQ.getFirst().i < windowStart) minQ.removeFirst();
+        extrema.add(bar.getHigh(), bar.getLow());
 
         // warm-up
         if (count < period) {
@@ -64,8 +44,8 @@ public final class StochasticK extends AbstractIndicator {
             if (count < period) return lastK;
         }
 
-        final double hh = maxQ.getFirst().v;
-        final double ll = minQ.getFirst().v;
+        final double hh = extrema.max();
+        final double ll = extrema.min();
         final double range = hh - ll;
 
         if (range == 0.0) {
@@ -82,9 +62,7 @@ public final class StochasticK extends AbstractIndicator {
 
     @Override
     public void reset() {
-        maxQ.clear();
-        minQ.clear();
-        index = -1;
+        extrema.reset();
         count = 0;
         lastK = NOT_DEFINED;
     }
@@ -0,0 +1,81 @@
+package it.l_soft.wows.indicators.trend;
+
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+
+import it.l_soft.wows.ApplicationProperties;
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.Price;
+import it.l_soft.wows.indicators.Indicator;
+import it.l_soft.wows.indicators.IndicatorBank;
+import it.l_soft.wows.indicators.volatility.ATR;
+
+/**
+ * EMAs of many periods over one input, e.g. "EMA[5:200:5](CLOSE)".
+ *
+ * Member i gives exactly what EMA(periods[i]) gives: NaN for period - 1 bars, then the SMA of the
+ * first 'period' inputs as seed, then alpha smoothing. The seeds are prefixes of one running sum,
+ * and the seeded members are a prefix of the arrays, so a bar costs one loop over contiguous
+ * doubles.
+ */
+public final class EMABank extends IndicatorBank {
+
+    private final double[] alpha;
+    private final double[] decay;   // 1 - alpha
+    private final double[] ema;
+
+    private long count = 0;         // bars seen, counted until every member is seeded
+    private double warmupSum = 0;   // sum of the first 'count' inputs
+    private int seeded = 0;         // members [0, seeded) have a value
+
+    public EMABank(int[] periods, Price price) {
+        this(periods, price.extractor);
+    }
+
+    public EMABank(int[] periods, ToDoubleFunction<Bar> input) {
+        super("EMA", periods, input);
+        int n = periods.length;
+        this.alpha = new double[n];
+        this.decay = new double[n];
+        this.ema = new double[n];
+        for (int i = 0; i < n; i++) {
+            alpha[i] = 2.0 / (periods[i] + 1.0);
+            decay[i] = 1.0 - alpha[i];
+        }
+        Arrays.fill(ema, Indicator.NOT_DEFINED);
+    }
+
+    @Override
+    public void add(Bar bar) {
+        final double x = input.applyAsDouble(bar);
+
+        for (int i = 0; i < seeded; i++) {
+            ema[i] = alpha[i] * x + decay[i] * ema[i];
+        }
+
+        if (seeded < periods.length) {
+            warmupSum += x;
+            count++;
+            while (seeded < periods.length && periods[seeded] == count) {
+                ema[seeded] = warmupSum / periods[seeded];
+                seeded++;
+            }
+        }
+    }
+
+    @Override
+    public double value(int i) { return ema[i]; }
+
+    @Override
+    public void reset() {
+        count = 0;
+        warmupSum = 0;
+        seeded = 0;
+        Arrays.fill(ema, Indicator.NOT_DEFINED);
+    }
+
+    @Override
+    protected double normalize(int i, Bar bar, ATR atrForScaling, ApplicationProperties props) {
+        return Indicator.normalizeMovingAverage(ema[i], bar, atrForScaling);
+    }
+}
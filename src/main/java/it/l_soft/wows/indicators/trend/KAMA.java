@@ -1,7 +1,5 @@
 package it.l_soft.wows.indicators.trend;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.function.ToDoubleFunction;
 
 import it.l_soft.wows.comms.Bar;
@@ -18,6 +16,9 @@ import it.l_soft.wows.indicators.AbstractIndicator;
  * KAMA_t = KAMA_{t-1} + SC * (price_t - KAMA_{t-1})
  *
  * - Uses an ER lookback of 'erPeriod'.
+ * - Prices and absolute deltas live in primitive rings; the ER denominator is a running sum of
+ *   the deltas, recomputed from the ring (in bar order) every time the delta ring wraps so that
+ *   rounding does not build up. O(1) amortized per bar, no allocation.
  * - Returns NOT_DEFINED until we have at least erPeriod+1 prices and a seeded KAMA.
  */
 public final class KAMA extends AbstractIndicator {
@@ -27,8 +28,17 @@ public final class KAMA extends AbstractIndicator {
     private final double slowSC;
     private final ToDoubleFunction<Bar> input;
 
-    // Last erPeriod+1 prices (for ER numerator/denominator)
-    private final Deque<Double> prices;
+    // Last erPeriod+1 prices (for the ER numerator), ring
+    private final double[] prices;
+    private int priceHead = 0;          // next write position, the oldest price once full
+    private int priceCount = 0;
+
+    // Last erPeriod |price_i - price_{i-1}| (for the ER denominator), ring
+    private final double[] deltas;
+    private int deltaHead = 0;
+    private int deltaCount = 0;
+    private double deltaSum = 0.0;
+    private double lastPrice = 0.0;
 
     private double kama = NOT_DEFINED;
     private boolean seeded = false;
@@ -45,7 +55,8 @@ public final class KAMA extends AbstractIndicator {
         }
         this.erPeriod = erPeriod;
         this.input    = input;
-        this.prices   = new ArrayDeque<>(erPeriod + 1);
+        this.prices   = new double[erPeriod + 1];
+        this.deltas   = new double[erPeriod];
 
         double fast = 2.0 / (fastPeriod + 1.0);
         double slow = 2.0 / (slowPeriod + 1.0);
@@ -62,30 +73,39 @@ public final class KAMA extends AbstractIndicator {
     public double add(Bar bar) {
         final double p = input.applyAsDouble(bar);
 
-        prices.addLast(p);
-        if (prices.size() > erPeriod + 1) {
-            prices.removeFirst();
+        if (priceCount > 0) {
+            final double delta = Math.abs(p - lastPrice);
+            if (deltaCount == erPeriod) {
+                deltaSum -= deltas[deltaHead];
+            } else {
+                deltaCount++;
+            }
+            deltas[deltaHead] = delta;
+            deltaSum += delta;
+            if (++deltaHead == erPeriod) {
+                deltaHead = 0;
+                // the ring is full and in bar order here: same sum as a fresh scan
+                double sum = 0.0;
+                for (int i = 0; i < erPeriod; i++) sum += deltas[i];
+                deltaSum = sum;
+            }
         }
+        lastPrice = p;
+
+        prices[priceHead] = p;
+        if (++priceHead == prices.length) priceHead = 0;
+        if (priceCount < prices.length) priceCount++;
 
         // Need at least erPeriod+1 prices to compute ER
-        if (prices.size() < erPeriod + 1) {
+        if (priceCount < erPeriod + 1) {
             kama = NOT_DEFINED;
             return kama;
         }
 
         // Compute ER: numerator = |p_t - p_{t-erPeriod}|, denominator = sum(|Δ|)
-        double first = prices.peekFirst();
-        double last  = prices.peekLast();
-        double numerator = Math.abs(last - first);
-
-        double denom = 0.0;
-        Double prev = null;
-        for (double x : prices) {
-            if (prev != null) {
-                denom += Math.abs(x - prev);
-            }
-            prev = x;
-        }
+        double first = prices[priceHead];
+        double numerator = Math.abs(p - first);
+        double denom = deltaSum;
 
         double er = (denom == 0.0) ? 0.0 : (numerator / denom);
         double sc = er * (fastSC - slowSC) + slowSC;
@@ -107,7 +127,10 @@ public final class KAMA extends AbstractIndicator {
 
     @Override
     public void reset() {
-        prices.clear();
+        priceHead = priceCount = 0;
+        deltaHead = deltaCount = 0;
+        deltaSum = 0.0;
+        lastPrice = 0.0;
         kama = NOT_DEFINED;
         seeded = false;
     }
@@ -0,0 +1,79 @@
+package it.l_soft.wows.indicators.trend;
+
+import java.util.function.ToDoubleFunction;
+
+import it.l_soft.wows.ApplicationProperties;
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.Price;
+import it.l_soft.wows.indicators.Indicator;
+import it.l_soft.wows.indicators.IndicatorBank;
+import it.l_soft.wows.indicators.volatility.ATR;
+
+/**
+ * SMAs of many periods over one input, e.g. "SMA[5:100:5](CLOSE)".
+ *
+ * One ring keeps the last max(period) inputs for all the members, each member keeps its running
+ * sum. Member i gives exactly what SMA(periods[i]) gives: the same warm-up sum (a prefix of one
+ * running sum) and the same "sum += x - oldest" update.
+ */
+public final class SMABank extends IndicatorBank {
+
+    private final double[] ring;    // last ring.length inputs
+    private final double[] sum;
+
+    private int head = -1;          // ring slot of the last input
+    private long count = 0;         // bars seen, counted until every member is full
+    private double warmupSum = 0;   // sum of the first 'count' inputs
+    private int full = 0;           // members [0, full) have 'period' inputs
+
+    public SMABank(int[] periods, Price price) {
+        this(periods, price.extractor);
+    }
+
+    public SMABank(int[] periods, ToDoubleFunction<Bar> input) {
+        super("SMA", periods, input);
+        this.ring = new double[periods[periods.length - 1]];
+        this.sum = new double[periods.length];
+    }
+
+    @Override
+    public void add(Bar bar) {
+        final double x = input.applyAsDouble(bar);
+
+        // full members: the input 'period' bars old leaves the window
+        for (int i = 0; i < full; i++) {
+            int oldest = head + 1 - periods[i];
+            if (oldest < 0) oldest += ring.length;
+            sum[i] += x - ring[oldest];
+        }
+        if (++head == ring.length) head = 0;
+        ring[head] = x;
+
+        if (full < periods.length) {
+            warmupSum += x;
+            count++;
+            while (full < periods.length && periods[full] == count) {
+                sum[full] = warmupSum;
+                full++;
+            }
+        }
+    }
+
+    @Override
+    public double value(int i) {
+        return (i < full ? sum[i] / periods[i] : Indicator.NOT_DEFINED);
+    }
+
+    @Override
+    public void reset() {
+        head = -1;
+        count = 0;
+        warmupSum = 0;
+        full = 0;
+    }
+
+    @Override
+    protected double normalize(int i, Bar bar, ATR atrForScaling, ApplicationProperties props) {
+        return Indicator.normalizeMovingAverage(value(i), bar, atrForScaling);
+    }
+}
@@ -2,6 +2,7 @@ package it.l_soft.wows.indicators.volatility;
 
 import it.l_soft.wows.comms.Bar;
 import it.l_soft.wows.indicators.AbstractIndicator;
+import it.l_soft.wows.indicators.RollingExtrema;
 
 /**
  * Streaming Ulcer Index.
@@ -11,13 +12,29 @@ import it.l_soft.wows.indicators.AbstractIndicator;
  *   DD_i = 100 * (Cmax - close_i) / Cmax
  *   UI   = sqrt( (1/period) * sum(DD_i^2) )
  *
- * - Uses a ring buffer of closes.
+ * - Uses a ring buffer of closes; Cmax comes from RollingExtrema.
+ * - sum(DD_i^2) is expanded as (100/Cmax)^2 * sum((Cmax - close_i)^2) over running sums of
+ *   (close - ref) and (close - ref)^2, with ref a recent close so the terms stay small; ref and
+ *   the sums are recomputed from the ring every time it wraps, so rounding does not build up.
+ *   The sums still carry the rounding of every close added since then, which can be larger than
+ *   the result on a (nearly) flat window: when sum((Cmax - c)^2) is that small against those
+ *   terms it is summed directly from the ring instead. O(1) amortized per bar otherwise.
  * - Returns NOT_DEFINED until 'period' closes are available.
  */
 public final class UlcerIndex extends AbstractIndicator {
 
     private final int period;
     private final double[] closes;
+    private final RollingExtrema extrema;
+
+    // below this fraction of period * span^2 the expanded sum has lost too many digits
+    private static final double CANCELLATION = 1e-4;
+
+    // Running sums over the window of (close - ref) and (close - ref)^2
+    private double ref = 0.0;
+    private double sum = 0.0;
+    private double sumSq = 0.0;
+    private double span = 0.0;      // largest |close - ref| added since the last resync
 
     private int idx   = 0;
     private int count = 0;
@@ -28,15 +45,31 @@ public final class UlcerIndex extends AbstractIndicator {
         if (period <= 0) throw new IllegalArgumentException("period must be > 0");
         this.period = period;
         this.closes = new double[period];
+        this.extrema = new RollingExtrema(period);
     }
 
     @Override
     public double add(Bar bar) {
         double close = bar.getClose();
 
+        if (count == 0) ref = close;
+        double d = close - ref;
+        if (Math.abs(d) > span) span = Math.abs(d);
+        sum += d;
+        sumSq += d * d;
+        if (count == period) {
+            // the close leaving the window
+            double out = closes[idx] - ref;
+            sum -= out;
+            sumSq -= out * out;
+        }
         closes[idx] = close;
+        extrema.add(close);
         idx++;
-        if (idx == period) idx = 0;
+        if (idx == period) {
+            idx = 0;
+            resync(close);
+        }
         if (count < period) count++;
 
         if (count < period) {
@@ -44,27 +77,49 @@ public final class UlcerIndex extends AbstractIndicator {
             return ui;
         }
 
-        // compute Cmax and UI over the window
-        double cmax = Double.NEGATIVE_INFINITY;
-        for (int i = 0; i < period; i++) {
-            if (closes[i] > cmax) cmax = closes[i];
-        }
+        double cmax = extrema.max();
 
         if (cmax <= 0.0 || !Double.isFinite(cmax)) {
             ui = 0.0;
             return ui;
         }
 
-        double sumSq = 0.0;
-        for (int i = 0; i < period; i++) {
-            double dd = 100.0 * (cmax - closes[i]) / cmax;
-            sumSq += dd * dd;
+        // sum((cmax - c)^2) = sum(((cmax - ref) - (c - ref))^2)
+        double m = cmax - ref;
+        double sq = period * m * m - 2.0 * m * sum + sumSq;
+        if (sq <= CANCELLATION * period * span * span) {
+            sq = directSum(cmax);
         }
-
-        ui = Math.sqrt(sumSq / period);
+        double scale = 100.0 / cmax;
+        ui = Math.sqrt(Math.max(0.0, sq) * scale * scale / period);
         return ui;
     }
 
+    // Recompute the running sums from the ring around the newest close
+    private void resync(double newRef) {
+        ref = newRef;
+        sum = 0.0;
+        sumSq = 0.0;
+        span = 0.0;
+        int n = Math.min(count + 1, period);   // closes in the ring, the new one included
+        for (int i = 0; i < n; i++) {
+            double d = closes[i] - ref;
+            sum += d;
+            sumSq += d * d;
+            if (Math.abs(d) > span) span = Math.abs(d);
+        }
+    }
+
+    // sum((cmax - c)^2) over the full ring, exact 0 on a flat window
+    private double directSum(double cmax) {
+        double sq = 0.0;
+        for (int i = 0; i < period; i++) {
+            double dd = cmax - closes[i];
+            sq += dd * dd;
+        }
+        return sq;
+    }
+
     @Override
     public double value() { return ui; }
 
@@ -73,6 +128,8 @@ public final class UlcerIndex extends AbstractIndicator {
         idx = 0;
         count = 0;
         ui = NOT_DEFINED;
+        ref = sum = sumSq = span = 0.0;
+        extrema.reset();
         for (int i = 0; i < period; i++) closes[i] = 0.0;
     }
 
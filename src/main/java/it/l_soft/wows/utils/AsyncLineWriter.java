@@ -0,0 +1,184 @@
+package it.l_soft.wows.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Long-lived line sink that moves file I/O off the caller's thread.
+ *
+ * - Lines are queued in a bounded queue and written by a single background thread in batches
+ *   of up to 'batchSize' lines.
+ * - Flush policy: with flushIntervalMillis == 0 the file is flushed after every batch, otherwise
+ *   when the interval since the last flush expires with lines written (the writer's timed poll
+ *   wakes up at that deadline, whether more lines arrive or not), and on close.
+ * - Overflow: with OverflowPolicy.DROP a full queue makes offer() return false and the line is
+ *   counted in getDropped(); with OverflowPolicy.BLOCK offer() waits for room (back-pressure on
+ *   the producer), giving up and counting the line as dropped if the writer thread is gone.
+ * - close() writes whatever is still queued, flushes and closes the underlying file. A line is
+ *   either queued ahead of close() and written, or refused and counted in getDropped(): offers
+ *   hold the read side of 'gate', close() takes the write side to switch 'closed' and queue END.
+ */
+public class AsyncLineWriter {
+	private final Logger log = Logger.getLogger(this.getClass());
+
+	public enum OverflowPolicy { DROP, BLOCK }
+
+	// queued on close() to tell the writer there is nothing more to come
+	private static final String END = new String("<END>");
+	// how long a blocked offer()/close() waits before checking the writer is still alive
+	private static final long WAIT_SLICE_MILLIS = 100;
+
+	private final TextFileHandler target;
+	private final BlockingQueue<String> queue;
+	private final int batchSize;
+	private final long flushIntervalMillis;
+	private final OverflowPolicy overflow;
+	private final Thread writer;
+	private final AtomicLong dropped = new AtomicLong();
+	private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+	private volatile boolean closed = false;
+
+	public AsyncLineWriter(TextFileHandler target, String threadName, int queueCapacity, int batchSize,
+						   long flushIntervalMillis, OverflowPolicy overflow) {
+		if (queueCapacity <= 0 || batchSize <= 0) {
+			throw new IllegalArgumentException("queueCapacity and batchSize must be > 0");
+		}
+		this.target = target;
+		// one extra slot so that END always fits
+		this.queue = new ArrayBlockingQueue<>(queueCapacity + 1);
+		this.batchSize = batchSize;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.overflow = overflow;
+		this.writer = new Thread(this::drainLoop, threadName);
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Queue one line (a line feed is added when written).
+	 *
+	 * @return false if the line was dropped because the queue is full or the writer is closed.
+	 */
+	public boolean offer(String line) {
+		gate.readLock().lock();
+		try {
+			if (!closed && enqueue(line)) return true;
+			dropped.incrementAndGet();
+			return false;
+		}
+		finally {
+			gate.readLock().unlock();
+		}
+	}
+
+	private boolean enqueue(String line) {
+		if (overflow == OverflowPolicy.BLOCK) {
+			try {
+				while (!queue.offer(line, WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS)) {
+					if (!writer.isAlive()) {
+						log.error("Writer thread " + writer.getName() + " is not running, line dropped");
+						return false;
+					}
+				}
+				return true;
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		// keep the extra slot free for END
+		return (queue.remainingCapacity() > 1) && queue.offer(line);
+	}
+
+	/** Number of lines refused so far: full queue, writer closed or writer thread gone. */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/** Stop accepting lines, write out the queued ones and close the file. */
+	public void close() {
+		gate.writeLock().lock();
+		try {
+			if (closed) return;
+			closed = true;
+			// no offer() is in flight past this point: END is the last thing queued
+			while (!queue.offer(END, WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS)) {
+				if (!writer.isAlive()) break;
+			}
+		}
+		catch (InterruptedException e) {
+			// END not queued: stop the writer the other way, queued lines are lost
+			writer.interrupt();
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			gate.writeLock().unlock();
+		}
+		try {
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (dropped.get() > 0) {
+			log.warn(dropped.get() + " lines dropped");
+		}
+	}
+
+	private void drainLoop() {
+		List<String> batch = new ArrayList<>(batchSize);
+		long lastFlush = System.currentTimeMillis();
+		boolean dirty = false;
+		boolean end = false;
+
+		while (!end) {
+			try {
+				// wake up at the flush deadline when lines wait for it
+				long timeout = (flushIntervalMillis == 0 ? 1000 :
+								dirty ? Math.max(1, lastFlush + flushIntervalMillis - System.currentTimeMillis()) :
+										flushIntervalMillis);
+				String first = queue.poll(timeout, TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+					queue.drainTo(batch, batchSize - 1);
+				}
+			}
+			catch (InterruptedException e) {
+				end = true;
+			}
+
+			try {
+				for (String line : batch) {
+					if (line == END) {
+						end = true;
+						break;
+					}
+					target.append(line, true);
+					dirty = true;
+				}
+				batch.clear();
+
+				long now = System.currentTimeMillis();
+				if (dirty && (end || flushIntervalMillis == 0 || now - lastFlush >= flushIntervalMillis)) {
+					target.flush();
+					lastFlush = now;
+					dirty = false;
+				}
+			}
+			catch (IOException e) {
+				log.error("Error writing lines, " + batch.size() + " lost", e);
+				batch.clear();
+			}
+		}
+		target.close();
+	}
+}
@@ -0,0 +1,93 @@
+package it.l_soft.wows.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.TimeZone;
+
+/**
+ * Allocation-free helpers to build CSV rows straight into a StringBuilder.
+ *
+ * - appendFixed() replaces String.format("%.Nf", v) and gives the same text: the rare values
+ *   close to a rounding tie and the very large ones take the allocating path.
+ * - appendTime() replaces SimpleDateFormat("HH:mm:ss.SSS") in the default time zone.
+ * - rowBuffer() hands out a per-thread StringBuilder, cleared, to be reused for every row.
+ */
+public final class CsvFormatter {
+	private static final long[] POW10 = {
+		1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+	};
+	// beyond this the scaled value does not fit a long anymore
+	private static final double MAX_FAST = 9.0e15;
+	private static final long MILLIS_PER_DAY = 86_400_000L;
+
+	private static final TimeZone ZONE = TimeZone.getDefault();
+	private static final ThreadLocal<StringBuilder> ROW = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+	private CsvFormatter() {}
+
+	/** The calling thread's row buffer, emptied. */
+	public static StringBuilder rowBuffer() {
+		StringBuilder sb = ROW.get();
+		sb.setLength(0);
+		return sb;
+	}
+
+	/**
+	 * Append v with exactly 'decimals' digits after the point (0..9), rounding the exact value of
+	 * v half up like String.format(Locale.US, "%.Nf", v).
+	 */
+	public static StringBuilder appendFixed(StringBuilder sb, double v, int decimals) {
+		if (decimals < 0 || decimals >= POW10.length) {
+			throw new IllegalArgumentException("decimals must be in [0, " + (POW10.length - 1) + "]");
+		}
+		if (Double.isNaN(v)) return sb.append("NaN");
+		if (Double.isInfinite(v)) return sb.append(v > 0 ? "Infinity" : "-Infinity");
+
+		final long scale = POW10[decimals];
+		if (Math.abs(v) * scale >= MAX_FAST) {
+			// out of the fast path range, rare enough to afford the allocation
+			return sb.append(String.format(java.util.Locale.US, "%." + decimals + "f", v));
+		}
+		if (v < 0 || (v == 0.0 && 1.0 / v < 0)) {
+			sb.append('-');
+			v = -v;
+		}
+		final double scaled = v * scale;
+		if (Math.abs(scaled - Math.floor(scaled) - 0.5) <= 4 * Math.ulp(scaled)) {
+			// a half within the rounding errors: String.format rounds the shortest decimal form
+			// of v (Double.toString), e.g. 0.213725 (really 0.2137249999...) gives 0.21373
+			return sb.append(BigDecimal.valueOf(v).setScale(decimals, RoundingMode.HALF_UP).toPlainString());
+		}
+		final long units = Math.round(scaled);
+		sb.append(units / scale);
+		if (decimals == 0) return sb;
+
+		sb.append('.');
+		final long frac = units % scale;
+		for (long p = scale / 10; p > 1 && frac < p; p /= 10) {
+			sb.append('0');
+		}
+		return sb.append(frac);
+	}
+
+	/** Append the wall clock time of epochMillis as HH:mm:ss.SSS in the default time zone. */
+	public static StringBuilder appendTime(StringBuilder sb, long epochMillis) {
+		final long local = epochMillis + ZONE.getOffset(epochMillis);
+		final int msOfDay = (int) Math.floorMod(local, MILLIS_PER_DAY);
+		final int h = msOfDay / 3_600_000;
+		final int m = (msOfDay / 60_000) % 60;
+		final int s = (msOfDay / 1_000) % 60;
+		final int ms = msOfDay % 1_000;
+		appendPadded(sb, h, 2).append(':');
+		appendPadded(sb, m, 2).append(':');
+		appendPadded(sb, s, 2).append('.');
+		return appendPadded(sb, ms, 3);
+	}
+
+	private static StringBuilder appendPadded(StringBuilder sb, int v, int width) {
+		for (int p = (int) POW10[width - 1]; p > 1 && v < p; p /= 10) {
+			sb.append('0');
+		}
+		return sb.append(v);
+	}
+}
@@ -0,0 +1,74 @@
+package it.l_soft.wows.utils;
+
+/**
+ * When TextFileHandler pushes its buffer to the file.
+ *
+ * Spec syntax (package.properties):
+ *   line         flush after every line (default, the historical behavior)
+ *   lines:N      flush every N lines (group commit)
+ *   millis:T     flush T ms after the previous flush, if lines were written since
+ *   close        flush only when the file is closed
+ */
+public final class FlushPolicy {
+	public enum Mode { EVERY_LINE, EVERY_N_LINES, INTERVAL, ON_CLOSE }
+
+	public static final FlushPolicy EVERY_LINE = new FlushPolicy(Mode.EVERY_LINE, 1);
+	public static final FlushPolicy ON_CLOSE = new FlushPolicy(Mode.ON_CLOSE, 0);
+
+	private final Mode mode;
+	private final long threshold;	// lines for EVERY_N_LINES, milliseconds for INTERVAL
+
+	private FlushPolicy(Mode mode, long threshold) {
+		this.mode = mode;
+		this.threshold = threshold;
+	}
+
+	public static FlushPolicy everyLines(int n) {
+		if (n <= 0) throw new IllegalArgumentException("lines must be > 0");
+		return (n == 1 ? EVERY_LINE : new FlushPolicy(Mode.EVERY_N_LINES, n));
+	}
+
+	public static FlushPolicy everyMillis(long millis) {
+		if (millis <= 0) throw new IllegalArgumentException("millis must be > 0");
+		return new FlushPolicy(Mode.INTERVAL, millis);
+	}
+
+	public static FlushPolicy parse(String spec) {
+		String s = spec.trim().toLowerCase();
+		int colon = s.indexOf(':');
+		String kind = (colon < 0 ? s : s.substring(0, colon).trim());
+		String arg = (colon < 0 ? null : s.substring(colon + 1).trim());
+		switch (kind) {
+			case "line":
+				return EVERY_LINE;
+			case "close":
+				return ON_CLOSE;
+			case "lines":
+				if (arg != null) return everyLines(Integer.parseInt(arg));
+				break;
+			case "millis":
+				if (arg != null) return everyMillis(Long.parseLong(arg));
+				break;
+		}
+		throw new IllegalArgumentException("Invalid flush policy: " + spec +
+										   " (expected line, lines:N, millis:T or close)");
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public long getThreshold() {
+		return threshold;
+	}
+
+	@Override
+	public String toString() {
+		switch (mode) {
+			case EVERY_N_LINES: return "lines:" + threshold;
+			case INTERVAL:		return "millis:" + threshold;
+			case ON_CLOSE:		return "close";
+			default:			return "line";
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package it.l_soft.wows.utils;
+
+/**
+ * Fixed-size latency histogram with power-of-two buckets.
+ *
+ * - Bucket b counts the samples in [2^b, 2^(b+1)) nanoseconds (bucket 0 also takes 0 and 1 ns).
+ * - record() does no allocation, so it can sit on the bar path.
+ * - Percentiles are reported as the upper bound of the bucket they fall in (capped to the
+ *   maximum seen), i.e. never optimistic by more than a factor 2.
+ *
+ * Not thread-safe: meant to be written by the single thread that handles the bars.
+ */
+public class LatencyHistogram {
+	private static final int BUCKETS = 64;
+
+	private final String name;
+	private final long[] counts = new long[BUCKETS];
+	private long count = 0;
+	private long sum = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = 0;
+
+	public LatencyHistogram(String name) {
+		this.name = name;
+	}
+
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		counts[bucketOf(nanos)]++;
+		count++;
+		sum += nanos;
+		if (nanos < min) min = nanos;
+		if (nanos > max) max = nanos;
+	}
+
+	/** Record the time elapsed since startNanos (a System.nanoTime() value). */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMin() {
+		return (count == 0 ? 0 : min);
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return (count == 0 ? 0 : (double) sum / count);
+	}
+
+	/** Upper bound, in nanoseconds, of the value below which 'percentile' (0..100) of the samples fall. */
+	public long getPercentile(double percentile) {
+		if (count == 0) return 0;
+		long rank = (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+		if (rank < 1) rank = 1;
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += counts[b];
+			if (seen >= rank) {
+				long upper = (b >= 62 ? Long.MAX_VALUE : (1L << (b + 1)) - 1);
+				return Math.min(upper, max);
+			}
+		}
+		return max;
+	}
+
+	public void reset() {
+		java.util.Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	/** One line summary in microseconds. */
+	public String summary() {
+		StringBuilder sb = new StringBuilder(160);
+		sb.append(name).append(": n=").append(count);
+		if (count > 0) {
+			sb.append(", min=");
+			CsvFormatter.appendFixed(sb, getMin() / 1e3, 1).append("us, mean=");
+			CsvFormatter.appendFixed(sb, getMean() / 1e3, 1).append("us, p50<=");
+			CsvFormatter.appendFixed(sb, getPercentile(50) / 1e3, 1).append("us, p90<=");
+			CsvFormatter.appendFixed(sb, getPercentile(90) / 1e3, 1).append("us, p99<=");
+			CsvFormatter.appendFixed(sb, getPercentile(99) / 1e3, 1).append("us, max=");
+			CsvFormatter.appendFixed(sb, getMax() / 1e3, 1).append("us");
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return summary();
+	}
+
+	private static int bucketOf(long nanos) {
+		return (nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos));
+	}
+}
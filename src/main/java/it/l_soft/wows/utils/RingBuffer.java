@@ -1,9 +1,10 @@
 package it.l_soft.wows.utils;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
@@ -11,29 +12,71 @@ import java.util.concurrent.locks.ReentrantLock;
  *
  * - When the producer writes more than capacity items, oldest items are overwritten.
  * - Each consumer gets a ConsumerHandle that tracks its own read position.
- * - Consumers can block until new data is available.
+ * - Consumers can block until new data is available (see WaitStrategy).
  * - If a consumer falls behind and its next item is overwritten, a MissedItemsException is thrown.
+ *
+ * Lock-free, sequence based:
+ * - The producer bumps 'claimed' before overwriting a slot and publishes the slot by storing
+ *   'cursor' with release semantics; readers load 'cursor' with acquire semantics, so the slot
+ *   content is visible once its sequence is.
+ * - A reader re-checks 'claimed' after loading a slot: if the producer started overwriting it
+ *   meanwhile the read is reported as missed instead of returning the newer item.
+ * - The cursor sits on its own cache line so the readers polling it do not contend with the
+ *   producer's other fields.
+ *
+ * Only one thread may publish.
+ *
+ * Allocation-free reads: ConsumerHandle.pollValue()/takeValue()/getValue() return the item itself
+ * (its sequence through getLastSequence()), and size()/get(i)/last() index the current content in
+ * place. The ValueWithSequence and getContentAsList() variants are kept for compatibility.
  */
-public class RingBuffer<T> {
+public class RingBuffer<T> extends RingBufferRhsPadding {
+
+    /** How take() waits for the producer. */
+    public enum WaitStrategy {
+        /** Busy spin, lowest latency, burns a core. */
+        SPIN,
+        /** Thread.yield() between checks. */
+        YIELD,
+        /** Short parkNanos() between checks, the producer never has to signal. */
+        PARK
+    }
+
+    private static final long PARK_NANOS = 50_000L;
+
+    private static final VarHandle CURSOR;
+    private static final VarHandle CLAIMED;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            CURSOR = lookup.findVarHandle(RingBufferCursor.class, "cursor", long.class);
+            CLAIMED = lookup.findVarHandle(RingBufferCursor.class, "claimed", long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     private final Object[] buffer;
     private final int capacity;
+    private final WaitStrategy waitStrategy;
 
-    // Sequence of the last published item. Starts at -1 (no items yet).
-    private long cursor = -1L;
-
-    // Next sequence to assign to the producer.
+    // Next sequence to assign to the producer (producer thread only).
     private long nextSequenceToPublish = 0L;
 
-    private final ReentrantLock lock = new ReentrantLock();
-    private final Condition notEmpty = lock.newCondition();
-
     public RingBuffer(int capacity) {
+        this(capacity, WaitStrategy.PARK);
+    }
+
+    public RingBuffer(int capacity, WaitStrategy waitStrategy) {
         if (capacity <= 0) {
             throw new IllegalArgumentException("Capacity must be > 0");
         }
         this.capacity = capacity;
         this.buffer = new Object[capacity];
+        this.waitStrategy = waitStrategy;
     }
 
     /**
@@ -43,41 +86,73 @@ public class RingBuffer<T> {
      * @return the sequence number assigned to this item.
      */
     public long publish(T value) {
-        lock.lock();
-        try {
-            long seq = nextSequenceToPublish++;
-            int index = (int) (seq % capacity);
-            buffer[index] = value;
-            cursor = seq;               // last published sequence
-            notEmpty.signalAll();       // wake up all waiting consumers
-            return seq;
-        } 
-        finally {
-            lock.unlock();
-        }
+        long seq = nextSequenceToPublish++;
+        int index = (int) (seq % capacity);
+        // readers that loaded the old slot content must see the claim first
+        CLAIMED.setOpaque(this, seq);
+        VarHandle.storeStoreFence();
+        buffer[index] = value;
+        CURSOR.setRelease(this, seq);   // last published sequence
+        return seq;
     }
 
     public long getLength()
     {
-    	return (nextSequenceToPublish > capacity ? capacity : nextSequenceToPublish);
+    	long n = (long) CURSOR.getAcquire(this) + 1;
+    	return (n > capacity ? capacity : n);
     }
-    
-    
+
+
+    // =============== Indexed view ===============
+
+    /** Number of items currently held, same as getLength(). */
+    public int size() {
+        return (int) getLength();
+    }
+
+    /**
+     * Item i of the current content, 0 being the oldest still held and size() - 1 the newest.
+     * The index is relative to the moment of the call: when another thread publishes meanwhile,
+     * read from the producer thread or go through a ConsumerHandle.
+     */
+    public T get(int i) {
+        long n = (long) CURSOR.getAcquire(this) + 1;
+        long held = Math.min(n, capacity);
+        if (i < 0 || i >= held) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for size " + held);
+        }
+        return slot(n - held + i);
+    }
+
+    /** The most recently published item, or null if nothing was published yet. */
+    public T last() {
+        long seq = (long) CURSOR.getAcquire(this);
+        return (seq < 0 ? null : slot(seq));
+    }
+
     /**
      * Create a new consumer starting from "now".
      *
      * The consumer will:
-     * - Block until a sequence >= its nextSequence is available.
+     * - See only the items published after its creation.
      * - Detect if it missed items due to overwrite.
      */
     public ConsumerHandle createConsumer() {
-        lock.lock();
-        try {
-            long startSeq = cursor + 1; // consumer will see only future items
-            return new ConsumerHandle(this, startSeq);
-        } 
-        finally {
-            lock.unlock();
+        long startSeq = (long) CURSOR.getAcquire(this) + 1; // consumer will see only future items
+        return new ConsumerHandle(this, startSeq);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T slot(long sequence) {
+        return (T) SLOT.getAcquire(buffer, (int) (sequence % capacity));
+    }
+
+    // Throws if the producer claimed 'sequence's slot for a newer item.
+    private void checkNotOverwritten(long sequence) throws MissedItemsException {
+        long claimed = (long) CLAIMED.getAcquire(this);
+        long distance = claimed - sequence;
+        if (distance >= capacity) {
+            throw new MissedItemsException(sequence, claimed, distance - capacity + 1);
         }
     }
 
@@ -145,106 +220,113 @@ public class RingBuffer<T> {
 
     /**
      * Handle for a single consumer.
-     * Each consumer tracks its own nextSequence and reads sequentially.
+     * Each consumer tracks its own nextSequence and reads sequentially; a handle must be used
+     * by one thread at a time.
      */
     public final class ConsumerHandle {
 
         private final RingBuffer<T> parent;
         private long nextSequence; // next sequence this consumer expects to read
+        private long lastSequence = -1; // sequence of the item last returned by pollValue/takeValue
 
         private ConsumerHandle(RingBuffer<T> parent, long startSequence) {
             this.parent = parent;
-            this.nextSequence = (nextSequence > capacity ? nextSequence + 1 : 0);
+            this.nextSequence = startSequence;
         }
 
         /**
          * Blocking read:
-         * - Wait until the next item for this consumer is available.
+         * - Wait, with the buffer WaitStrategy, until the next item for this consumer is available.
          * - Return it together with its sequence.
          * - If the consumer has fallen behind and items were overwritten,
          *   throw MissedItemsException.
          */
         public ValueWithSequence<T> take() throws InterruptedException, MissedItemsException {
-            parent.lock.lock();
-            try {
-                for (;;) {
-                    long availableSeq = parent.cursor;
-
-                    // No new items yet for this consumer: wait
-                    if (availableSeq < nextSequence) {
-                        parent.notEmpty.await();
-                        continue; // re-check after wakeup
-                    }
-
-                    // Check for overwrite: if distance >= capacity, we lost data
-                    long distance = availableSeq - nextSequence;
-                    if (distance >= parent.capacity) {
-                        long missed = distance - parent.capacity + 1;
-                        throw new MissedItemsException(nextSequence, availableSeq, missed);
-                    }
-
-                    // We have data and haven't missed anything
-                    int index = (int) (nextSequence % parent.capacity);
-                    @SuppressWarnings("unchecked")
-                    T value = (T) parent.buffer[index];
-                    long seq = nextSequence;
-                    nextSequence++;
-                    return new ValueWithSequence<>(seq, value);
+            T value = takeValue();
+            return new ValueWithSequence<>(lastSequence, value);
+        }
+
+        /**
+         * Allocation-free take(): the item itself, its sequence is getLastSequence().
+         */
+        public T takeValue() throws InterruptedException, MissedItemsException {
+            for (;;) {
+                long availableSeq = (long) CURSOR.getAcquire(parent);
+                if (availableSeq >= nextSequence) return pollValue();
+
+                if (Thread.interrupted()) throw new InterruptedException();
+                switch (parent.waitStrategy) {
+                    case SPIN:  Thread.onSpinWait(); break;
+                    case YIELD: Thread.yield(); break;
+                    default:    LockSupport.parkNanos(this, PARK_NANOS); break;
                 }
-            } finally {
-                parent.lock.unlock();
             }
         }
 
         /**
-         * Non-blocking variant.
+         * Allocation-free poll(): the item itself, its sequence is getLastSequence().
          *
          * @return next value if available, or null if no new data.
          * @throws MissedItemsException if items were overwritten before this consumer read them.
          */
-        public ValueWithSequence<T> poll() throws MissedItemsException {
-            parent.lock.lock();
-            try {
-                long availableSeq = parent.cursor;
+        public T pollValue() throws MissedItemsException {
+            long availableSeq = (long) CURSOR.getAcquire(parent);
 
-                if (availableSeq < nextSequence) {
-                    // nothing new
-                    return null;
-                }
+            if (availableSeq < nextSequence) {
+                return null;
+            }
 
-                long distance = availableSeq - nextSequence;
-                if (distance >= parent.capacity) {
-                    long missed = distance - parent.capacity + 1;
-                    throw new MissedItemsException(nextSequence, availableSeq, missed);
-                }
+            long distance = availableSeq - nextSequence;
+            if (distance >= parent.capacity) {
+                long missed = distance - parent.capacity + 1;
+                throw new MissedItemsException(nextSequence, availableSeq, missed);
+            }
 
-                int index = (int) (nextSequence % parent.capacity);
-                @SuppressWarnings("unchecked")
-                T value = (T) parent.buffer[index];
-                return new ValueWithSequence<>(nextSequence++, value);
+            T value = parent.slot(nextSequence);
+            parent.checkNotOverwritten(nextSequence);
+            lastSequence = nextSequence++;
+            return value;
+        }
+
+        /**
+         * Allocation-free get(): the value stored in the slot of that sequence (null if never written).
+         */
+        public T getValue(long sequence) {
+            return parent.slot(sequence);
+        }
+
+        /**
+         * @return the sequence of the item last returned by pollValue() or takeValue(), -1 if none.
+         */
+        public long getLastSequence() {
+            return lastSequence;
+        }
 
-            } finally {
-                parent.lock.unlock();
+        /**
+         * Non-blocking variant.
+         *
+         * @return next value if available, or null if no new data.
+         * @throws MissedItemsException if items were overwritten before this consumer read them.
+         */
+        public ValueWithSequence<T> poll() throws MissedItemsException {
+            long expected = nextSequence;
+            T value = pollValue();
+            if (nextSequence == expected) {
+                // nothing new
+                return null;
             }
+            return new ValueWithSequence<>(lastSequence, value);
         }
-        
+
         /**
          * Get the element corresponding to the specified sequence.
          *
-         * @return next value if available, or null if no new data.
+         * @return the value stored in the slot of that sequence (null if never written).
          * @throws MissedItemsException if items were overwritten before this consumer read them.
          */
         public ValueWithSequence<T> get(long sequence) throws MissedItemsException {
-            parent.lock.lock();
-            try {
-                int index = (int) (sequence % parent.capacity);
-                @SuppressWarnings("unchecked")
-                T value = (T) parent.buffer[index];
-                return new ValueWithSequence<>(sequence, value);
-
-            } finally {
-                parent.lock.unlock();
-            }
+            T value = parent.slot(sequence);
+            return new ValueWithSequence<>(sequence, value);
         }
 
         /**
@@ -254,25 +336,41 @@ public class RingBuffer<T> {
             return nextSequence;
         }
 
-		@SuppressWarnings("unchecked")
 		public List<T> getContentAsList() {
 	    	ArrayList<T> list = new ArrayList<T>();
-	    	if (nextSequenceToPublish == 0) return list;
-	    		    	
-            parent.lock.lock();
-            try {
-    	    	long n = nextSequenceToPublish; // total items ever written
-    	    	long startSeq = Math.max(0, n - capacity); // first sequence still in buffer
-
-    	    	for (long seq = startSeq; seq < n; seq++) {
-    	    	    int index = (int) (seq % capacity);
-    	    	    list.add((T) parent.buffer[index]);
-    	    	}
-            } finally {
-                parent.lock.unlock();
-            }
+	    	long n = (long) CURSOR.getAcquire(parent) + 1; // total items ever written
+	    	if (n == 0) return list;
+
+	    	long startSeq = Math.max(0, n - capacity); // first sequence still in buffer
+	    	for (long seq = startSeq; seq < n; seq++) {
+	    	    list.add(parent.slot(seq));
+	    	}
+
+	    	// drop the oldest entries if the producer overwrote them while we were copying
+	    	long claimed = (long) CLAIMED.getAcquire(parent);
+	    	long firstValid = claimed - capacity + 1;
+	    	if (firstValid > startSeq) {
+	    		list.subList(0, (int) Math.min(list.size(), firstValid - startSeq)).clear();
+	    	}
 	    	return list;
 		}
     }
 }
 
+/** Padding in front of the cursor (superclass fields are laid out first). */
+abstract class RingBufferLhsPadding {
+    long p01, p02, p03, p04, p05, p06, p07;
+}
+
+/** The published cursor and the producer claim, accessed through VarHandles only. */
+abstract class RingBufferCursor extends RingBufferLhsPadding {
+    // Sequence of the last published item. Starts at -1 (no items yet).
+    long cursor = -1L;
+    // Sequence of the item being written; >= cursor.
+    long claimed = -1L;
+}
+
+/** Padding after the cursor. */
+abstract class RingBufferRhsPadding extends RingBufferCursor {
+    long p11, p12, p13, p14, p15, p16, p17;
+}
@@ -2,18 +2,46 @@ package it.l_soft.wows.utils;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
+/**
+ * Text file written through a buffer that is flushed as its FlushPolicy says. With millis:T a
+ * timer flushes the lines still buffered when the interval expires, so a file that stops
+ * receiving lines does not keep them in memory until the next write or close.
+ *
+ * Thread-safe: the millis:T timer runs on a shared daemon thread.
+ */
 public class TextFileHandler {
 	private final Logger log = Logger.getLogger(this.getClass());
 
+	// one thread for the millis:T timers of all the files, started on first use
+	private static final class Flusher {
+		static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "textFileFlusher");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
     private File file;
+    private FileOutputStream fileOut;
     private BufferedWriter fileBufWriter;
+    private FlushPolicy flushPolicy = FlushPolicy.EVERY_LINE;
+    private boolean fsyncOnRotate = false;
+    private long linesSinceFlush = 0;
+    private long lastFlush = System.currentTimeMillis();
+    private boolean dirty = false;              // written since the last flush
+    private ScheduledFuture<?> pendingFlush;    // millis:T timer, armed while dirty
     String dir = "";
     String pre = "";
     String extension = "";
@@ -47,11 +75,33 @@ public class TextFileHandler {
     	open(useTimestamp, append);
     }
     
-    public void open(boolean useTimestamp, boolean append) throws Exception {
+    /** When to flush the buffered lines to the file, see FlushPolicy. */
+    public synchronized void setFlushPolicy(FlushPolicy flushPolicy) {
+    	this.flushPolicy = flushPolicy;
+    }
+    
+    public synchronized FlushPolicy getFlushPolicy() {
+    	return flushPolicy;
+    }
+
+    /** Force the file content to the storage device when it is closed or reopened (rotated). */
+    public synchronized void setFsyncOnRotate(boolean fsyncOnRotate) {
+    	this.fsyncOnRotate = fsyncOnRotate;
+    }
+
+    /** Opening again an open handler closes (rotates) the current file first. */
+    public synchronized void open(boolean useTimestamp, boolean append) throws Exception {
+    	if (fileBufWriter != null) {
+    		close();
+    	}
         try {
             file = new File(dir, pre + (useTimestamp ? "_" + ts : "") + "." + extension);
             file.getParentFile().mkdirs();
-            fileBufWriter = new BufferedWriter(new FileWriter(file, append));
+            fileOut = new FileOutputStream(file, append);
+            fileBufWriter = new BufferedWriter(new OutputStreamWriter(fileOut));
+            linesSinceFlush = 0;
+            lastFlush = System.currentTimeMillis();
+            dirty = false;
             log.trace("File opened at: " + file.getAbsolutePath());
         } 
         catch (Exception e) {
@@ -61,11 +111,19 @@ public class TextFileHandler {
         }
     }
     
-    public void close() {
+    public synchronized void close() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
         try {
             if (fileBufWriter != null) {
                 fileBufWriter.flush();
+                if (fsyncOnRotate) {
+                	fileOut.getFD().sync();
+                }
                 fileBufWriter.close();
+                fileBufWriter = null;
                 log.trace("CSV closed: " + (file != null ? file.getAbsolutePath() : ""));
             }
         } catch (IOException e) {
@@ -73,17 +131,79 @@ public class TextFileHandler {
         }
     }
     
-    public void write(String line, boolean writeLF) 
+    /** Buffered write, no flush: the caller decides when to flush(). */
+    public synchronized void append(String line, boolean writeLF) 
+    		throws IOException 
+    {
+		fileBufWriter.write(line);
+        if (writeLF) fileBufWriter.newLine();
+    }
+    
+    public synchronized void flush() 
+    		throws IOException 
+    {
+    	fileBufWriter.flush();
+    	linesSinceFlush = 0;
+    	lastFlush = System.currentTimeMillis();
+    	dirty = false;
+    }
+    
+    public synchronized void write(String line, boolean writeLF) 
     		throws IOException 
     {
         try {
 			fileBufWriter.write(line);
 	        if (writeLF) fileBufWriter.newLine();
-	        fileBufWriter.flush();
+	        dirty = true;
+	        flushIfDue(writeLF);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 			throw e;
 		}
     }
+
+    // only completed lines count for the lines:N policy
+    private void flushIfDue(boolean endOfLine) 
+    		throws IOException 
+    {
+    	if (endOfLine) linesSinceFlush++;
+    	switch (flushPolicy.getMode()) {
+    	case EVERY_LINE:
+    		flush();
+    		break;
+    	case EVERY_N_LINES:
+    		if (linesSinceFlush >= flushPolicy.getThreshold()) flush();
+    		break;
+    	case INTERVAL:
+    		long wait = flushPolicy.getThreshold() - (System.currentTimeMillis() - lastFlush);
+    		if (wait <= 0) flush();
+    		else if (pendingFlush == null) scheduleFlush(wait);
+    		break;
+    	case ON_CLOSE:
+    		break;
+    	}
+    }
+
+    private void scheduleFlush(long delayMillis) {
+    	pendingFlush = Flusher.EXECUTOR.schedule(this::flushExpired, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // millis:T timer: flush what is still buffered once the interval has expired
+    private synchronized void flushExpired() {
+    	pendingFlush = null;
+    	if (!dirty || fileBufWriter == null || flushPolicy.getMode() != FlushPolicy.Mode.INTERVAL) return;
+    	long wait = flushPolicy.getThreshold() - (System.currentTimeMillis() - lastFlush);
+    	if (wait > 0) {
+    		// a write flushed meanwhile and buffered more: wait for the new deadline
+    		scheduleFlush(wait);
+    		return;
+    	}
+    	try {
+    		flush();
+    	}
+    	catch (IOException e) {
+    		log.error("Error flushing " + file, e);
+    	}
+    }
 }
@@ -10,7 +10,8 @@ public class Utilities {
 	public static final Map<String, Class<? extends Message>> MESSAGE_TYPES =
 		    Map.ofEntries(
 		        Map.entry("A", TradeMessage.class),
-		        Map.entry("B", MarketBar.class)
+		        Map.entry("B", MarketBar.class),
+		        Map.entry("C", MarketBar.class)
 		    );
 
 	public static void pause(int i) {
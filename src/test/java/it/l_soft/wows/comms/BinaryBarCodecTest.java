@@ -0,0 +1,164 @@
+package it.l_soft.wows.comms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * BinaryBarCodec round trip of every field, edge values included, and the HELLO negotiation
+ * against LoopbackBarServer: a client asking for "CB" gets binary bars, one asking for topics
+ * the server does not send, or not saying HELLO at all, falls back to JSON. Either way the bars
+ * received are the ones sent.
+ */
+class BinaryBarCodecTest {
+
+    private static final long BARS = 500;
+
+    @Test
+    void roundTripsEveryField() throws Exception {
+        double[] prices = { 0.0, -0.0, 1.0, 123.456789, Double.MIN_VALUE, Double.MAX_VALUE,
+                            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NaN };
+        long[] longs = { 0, 1, -1, 1L << 40, Long.MIN_VALUE, Long.MAX_VALUE };
+        Random rnd = new Random(5);
+        ByteBuffer buffer = ByteBuffer.allocate(7 + BinaryBarCodec.BODY_LENGTH + 3);
+        for (int i = 0; i < 2_000; i++) {
+            MarketBar bar = new MarketBar(pick(rnd, longs), 0,
+                                          pick(rnd, prices), pick(rnd, prices), pick(rnd, prices),
+                                          pick(rnd, prices), pick(rnd, longs));
+            buffer.clear().position(7);
+            BinaryBarCodec.encode(bar, buffer);
+            assertEquals(7 + BinaryBarCodec.BODY_LENGTH, buffer.position());
+
+            MarketBar decoded = BinaryBarCodec.decode(buffer, 7, BinaryBarCodec.BODY_LENGTH, new MarketBar());
+            assertEquals(7 + BinaryBarCodec.BODY_LENGTH, buffer.position(), "decode must not move the position");
+            assertSameBar(bar, decoded, "bar " + i);
+        }
+    }
+
+    @Test
+    void wrongBodyLengthIsRejected() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        assertThrows(IOException.class,
+                     () -> BinaryBarCodec.decode(buffer, 0, BinaryBarCodec.BODY_LENGTH - 1, new MarketBar()));
+    }
+
+    @Test
+    void helloForBinaryGetsBinaryBars() throws Exception {
+        Received received = talk("CB");
+        assertEquals("C", received.hello);
+        assertEquals(BinaryBarCodec.TOPIC, received.served);
+        assertStream(received, BinaryBarCodec.TOPIC);
+    }
+
+    @Test
+    void helloWithoutBinaryFallsBackToJson() throws Exception {
+        Received received = talk("XB");
+        assertEquals("B", received.hello);
+        assertEquals(BinaryBarCodec.JSON_TOPIC, received.served);
+        assertStream(received, BinaryBarCodec.JSON_TOPIC);
+
+        received = talk("X");
+        assertEquals("B", received.hello);
+        assertStream(received, BinaryBarCodec.JSON_TOPIC);
+    }
+
+    @Test
+    void noHelloGetsJson() throws Exception {
+        Received received = talk(null);
+        assertNull(received.hello);
+        assertStream(received, BinaryBarCodec.JSON_TOPIC);
+    }
+
+    /** What a client got from the server. */
+    private static final class Received {
+        String hello;
+        char served;
+        final List<Character> topics = new ArrayList<Character>();
+        final List<MarketBar> bars = new ArrayList<MarketBar>();
+    }
+
+    // Connect to a fresh server, send HELLO 'accepted' unless null, read until the server closes
+    private static Received talk(String accepted) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Received received = new Received();
+        try (LoopbackBarServer server = new LoopbackBarServer(BARS, 3)) {
+            Future<Character> served = executor.submit(server::serveOnce);
+            try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", server.port()))) {
+                if (accepted != null) {
+                    FrameEncoder.writeFully(channel, new FrameEncoder(64).hello(accepted, 0));
+                }
+                FrameDecoder decoder = new FrameDecoder(4096);
+                MarketBarParser parser = new MarketBarParser();
+                do {
+                    while (decoder.next()) {
+                        char topic = decoder.topic();
+                        if (topic == BinaryBarCodec.HELLO_TOPIC) {
+                            received.hello = new String(decoder.bodyBytes(), 0, decoder.bodyLength(),
+                                                        StandardCharsets.US_ASCII);
+                            continue;
+                        }
+                        MarketBar bar = (topic == BinaryBarCodec.TOPIC
+                                ? BinaryBarCodec.decode(decoder.buffer(), decoder.bodyOffset(),
+                                                        decoder.bodyLength(), new MarketBar())
+                                : parser.parse(decoder.bodyBytes(), 0, decoder.bodyLength(), new MarketBar()));
+                        bar.setTimestamp(decoder.timestamp());
+                        received.topics.add(topic);
+                        received.bars.add(bar);
+                    }
+                } while (decoder.fill(channel) >= 0);
+            }
+            received.served = served.get(10, TimeUnit.SECONDS);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return received;
+    }
+
+    private static void assertStream(Received received, char topic) {
+        assertEquals(BARS, received.bars.size());
+        Random random = new Random(3);
+        double close = LoopbackBarServer.FIRST_PRICE;
+        for (int b = 0; b < BARS; b++) {
+            MarketBar expected = LoopbackBarServer.bar(random, b,
+                    LoopbackBarServer.FIRST_TIMESTAMP + b * LoopbackBarServer.BAR_MILLIS, close);
+            close = expected.getClose();
+            assertEquals(topic, (char) received.topics.get(b), "bar " + b);
+            assertSameBar(expected, received.bars.get(b), "bar " + b);
+            assertEquals(expected.getTimestamp(), received.bars.get(b).getTimestamp(), "bar " + b);
+        }
+    }
+
+    private static void assertSameBar(MarketBar expected, MarketBar actual, String where) {
+        // bits, so that NaN and -0.0 count too
+        assertEquals(Double.doubleToRawLongBits(expected.getOpen()), Double.doubleToRawLongBits(actual.getOpen()), where);
+        assertEquals(Double.doubleToRawLongBits(expected.getHigh()), Double.doubleToRawLongBits(actual.getHigh()), where);
+        assertEquals(Double.doubleToRawLongBits(expected.getLow()), Double.doubleToRawLongBits(actual.getLow()), where);
+        assertEquals(Double.doubleToRawLongBits(expected.getClose()), Double.doubleToRawLongBits(actual.getClose()), where);
+        assertEquals(expected.getVolume(), actual.getVolume(), where);
+        assertEquals(expected.getBarNumber(), actual.getBarNumber(), where);
+    }
+
+    private static double pick(Random rnd, double[] edges) {
+        return (rnd.nextInt(3) == 0 ? edges[rnd.nextInt(edges.length)] : rnd.nextGaussian() * 1e4);
+    }
+
+    private static long pick(Random rnd, long[] edges) {
+        return (rnd.nextInt(3) == 0 ? edges[rnd.nextInt(edges.length)] : rnd.nextLong());
+    }
+}
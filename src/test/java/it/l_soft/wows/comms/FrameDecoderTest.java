@@ -0,0 +1,194 @@
+package it.l_soft.wows.comms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FrameDecoder fed by a channel that hands out the stream in arbitrary chunks (1 byte, odd
+ * sizes, 0-byte reads, several frames at once): every frame must come out whole and in order,
+ * whether its header or its body was split, and bodies longer than the initial 4096 bytes must
+ * grow the buffer instead of being truncated.
+ */
+class FrameDecoderTest {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /** One frame of the reference stream. */
+    private static final class Frame {
+        final char topic;
+        final long timestamp;
+        final byte[] body;
+
+        Frame(char topic, long timestamp, byte[] body) {
+            this.topic = topic;
+            this.timestamp = timestamp;
+            this.body = body;
+        }
+    }
+
+    /** Channel over a byte array, each read returning at most the next chunk size. */
+    private static final class ChunkedChannel implements ReadableByteChannel {
+        private final byte[] data;
+        private final IntSupplier chunk;
+        private int pos = 0;
+
+        ChunkedChannel(byte[] data, IntSupplier chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (pos == data.length) return -1;
+            int n = Math.min(Math.min(chunk.getAsInt(), dst.remaining()), data.length - pos);
+            dst.put(data, pos, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() { return true; }
+
+        @Override
+        public void close() { }
+    }
+
+    @Test
+    void oneByteReads() throws Exception {
+        Random rnd = new Random(1);
+        decodeAll(randomFrames(rnd, 300), () -> 1, "1 byte");
+    }
+
+    @Test
+    void oddSizedReads() throws Exception {
+        for (int size : new int[] { 3, 7, 12, 13, 14, 101, 4095, 4097 }) {
+            Random rnd = new Random(size);
+            decodeAll(randomFrames(rnd, 300), () -> size, "chunk " + size);
+        }
+    }
+
+    @Test
+    void randomReadsWithEmptyOnes() throws Exception {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random rnd = new Random(seed);
+            List<Frame> frames = randomFrames(rnd, 500);
+            Random chunks = new Random(seed * 31);
+            decodeAll(frames, () -> {
+                int pick = chunks.nextInt(10);
+                return (pick == 0 ? 0 : pick < 4 ? 1 + chunks.nextInt(FrameDecoder.HEADER_LENGTH)
+                                                 : 1 + chunks.nextInt(30_000));
+            }, "seed " + seed);
+        }
+    }
+
+    @Test
+    void wholeStreamAtOnceGivesSeveralFramesPerRead() throws Exception {
+        List<Frame> frames = new ArrayList<Frame>();
+        for (int i = 0; i < 200; i++) frames.add(new Frame('B', i, new byte[i % 5]));
+        decodeAll(frames, () -> Integer.MAX_VALUE, "whole stream");
+    }
+
+    @Test
+    void bufferGrowsPastInitialCapacity() throws Exception {
+        Random rnd = new Random(9);
+        List<Frame> frames = new ArrayList<Frame>();
+        frames.add(frame(rnd, 10));
+        frames.add(frame(rnd, INITIAL_CAPACITY - FrameDecoder.HEADER_LENGTH));
+        frames.add(frame(rnd, INITIAL_CAPACITY - FrameDecoder.HEADER_LENGTH + 1));
+        frames.add(frame(rnd, 100_000));
+        frames.add(frame(rnd, 0));
+        FrameDecoder decoder = decodeAll(frames, () -> 777, "growth");
+        assertTrue(decoder.buffer().capacity() >= 100_000 + FrameDecoder.HEADER_LENGTH);
+    }
+
+    @Test
+    void partialFrameIsNotReturned() throws Exception {
+        Frame frame = new Frame('B', 42, new byte[] { 1, 2, 3, 4, 5 });
+        byte[] data = encode(List.of(frame));
+        FrameDecoder decoder = new FrameDecoder(INITIAL_CAPACITY);
+        ChunkedChannel channel = new ChunkedChannel(data, () -> 1);
+        for (int i = 0; i < data.length - 1; i++) {
+            assertEquals(1, decoder.fill(channel));
+            assertFalse(decoder.next(), "after " + (i + 1) + " bytes");
+        }
+        assertEquals(1, decoder.fill(channel));
+        assertTrue(decoder.next());
+        assertEquals(42, decoder.timestamp());
+        assertFalse(decoder.next());
+        assertEquals(-1, decoder.fill(channel));
+    }
+
+    @Test
+    void negativeLengthIsRejected() throws Exception {
+        byte[] data = encode(List.of(new Frame('B', 1, new byte[0])));
+        ByteBuffer.wrap(data).putInt(1 + Long.BYTES, -5);
+        FrameDecoder decoder = new FrameDecoder(INITIAL_CAPACITY);
+        decoder.fill(new ChunkedChannel(data, () -> data.length));
+        assertThrows(IllegalStateException.class, decoder::next);
+    }
+
+    private static FrameDecoder decodeAll(List<Frame> frames, IntSupplier chunk, String where) throws IOException {
+        FrameDecoder decoder = new FrameDecoder(INITIAL_CAPACITY);
+        ChunkedChannel channel = new ChunkedChannel(encode(frames), chunk);
+        int i = 0;
+        while (true) {
+            while (decoder.next()) {
+                String at = where + " frame " + i;
+                assertTrue(i < frames.size(), at);
+                Frame expected = frames.get(i++);
+                assertEquals(expected.topic, decoder.topic(), at);
+                assertEquals(expected.timestamp, decoder.timestamp(), at);
+                assertEquals(expected.body.length, decoder.bodyLength(), at);
+                assertArrayEquals(expected.body, Arrays.copyOf(decoder.bodyBytes(), decoder.bodyLength()), at);
+                // the in-place view agrees with the copy
+                for (int b = 0; b < expected.body.length; b += 97) {
+                    assertEquals(expected.body[b], decoder.buffer().get(decoder.bodyOffset() + b), at);
+                }
+            }
+            if (decoder.fill(channel) < 0) break;
+        }
+        assertEquals(frames.size(), i, where);
+        assertFalse(decoder.next(), where);
+        return decoder;
+    }
+
+    private static List<Frame> randomFrames(Random rnd, int count) {
+        List<Frame> frames = new ArrayList<Frame>();
+        for (int i = 0; i < count; i++) {
+            int pick = rnd.nextInt(20);
+            int length = (pick == 0 ? 0 : pick == 1 ? 4096 + rnd.nextInt(20_000) : rnd.nextInt(200));
+            frames.add(frame(rnd, length));
+        }
+        return frames;
+    }
+
+    private static Frame frame(Random rnd, int length) {
+        byte[] body = new byte[length];
+        rnd.nextBytes(body);
+        return new Frame((char) (rnd.nextInt(256)), rnd.nextLong(), body);
+    }
+
+    private static byte[] encode(List<Frame> frames) {
+        int total = 0;
+        for (Frame f : frames) total += FrameDecoder.HEADER_LENGTH + f.body.length;
+        ByteBuffer out = ByteBuffer.allocate(total);
+        for (Frame f : frames) {
+            out.put((byte) f.topic).putLong(f.timestamp).putInt(f.body.length).put(f.body);
+        }
+        return out.array();
+    }
+}
@@ -0,0 +1,123 @@
+package it.l_soft.wows.comms;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+
+import it.l_soft.wows.utils.JSONWrapper;
+
+/**
+ * Stand-in for the trading station used by BinaryBarCodecTest.
+ *
+ * Listens on an ephemeral localhost port, accepts a single connection, answers the client HELLO
+ * (binary bars if the client asks for them, JSON otherwise, or JSON when no HELLO arrives) and
+ * streams a seeded random walk of minute bars, then closes the connection.
+ */
+class LoopbackBarServer implements AutoCloseable {
+    private static final Logger log = Logger.getLogger(LoopbackBarServer.class);
+    private static final long HELLO_WAIT_MILLIS = 500;
+    static final long FIRST_TIMESTAMP = 1_700_000_000_000L;
+    static final long BAR_MILLIS = 60_000;
+    static final double FIRST_PRICE = 100.0;
+
+    private final ServerSocketChannel server;
+    private final long bars;
+    private final long seed;
+
+    LoopbackBarServer(long bars, long seed) throws IOException {
+        this.bars = bars;
+        this.seed = seed;
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+    }
+
+    int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /** Serve one client, the bar topic it got. */
+    char serveOnce() throws IOException {
+        try (SocketChannel client = server.accept()) {
+            char topic = negotiate(client);
+            log.debug("Client connected, sending " + bars + " bars as topic '" + topic + "'");
+            stream(client, topic);
+            return topic;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    /** The bars streamed for a seed, as sent. */
+    static MarketBar bar(Random random, long barNumber, long timestamp, double open) {
+        double close = open * (1 + random.nextGaussian() * 0.001);
+        double high = Math.max(open, close) * (1 + random.nextDouble() * 0.0005);
+        double low = Math.min(open, close) * (1 - random.nextDouble() * 0.0005);
+        MarketBar bar = new MarketBar(barNumber, timestamp, open, high, low, close, 1000 + random.nextInt(1000));
+        bar.setTimestamp(timestamp);
+        return bar;
+    }
+
+    // Wait briefly for the client HELLO and pick the first topic it accepts that we can send.
+    private char negotiate(SocketChannel client) throws IOException {
+        char topic = BinaryBarCodec.JSON_TOPIC;
+        FrameDecoder decoder = new FrameDecoder(256);
+        client.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            client.register(selector, SelectionKey.OP_READ);
+            long deadline = System.currentTimeMillis() + HELLO_WAIT_MILLIS;
+            long left;
+            boolean received = false;
+            while (!(received = decoder.next()) && (left = deadline - System.currentTimeMillis()) > 0) {
+                if (selector.select(left) > 0) {
+                    selector.selectedKeys().clear();
+                    if (decoder.fill(client) < 0) throw new IOException("Client closed the connection");
+                }
+            }
+            if (received && decoder.topic() == BinaryBarCodec.HELLO_TOPIC) {
+                String accepted = new String(decoder.bodyBytes(), 0, decoder.bodyLength(), StandardCharsets.US_ASCII);
+                for (char c : accepted.toCharArray()) {
+                    if (c == BinaryBarCodec.TOPIC || c == BinaryBarCodec.JSON_TOPIC) {
+                        topic = c;
+                        break;
+                    }
+                }
+                FrameEncoder.writeFully(client, new FrameEncoder(64).hello(Character.toString(topic),
+                                                                           System.currentTimeMillis()));
+            }
+            client.keyFor(selector).cancel();
+            selector.selectNow();
+        }
+        client.configureBlocking(true);
+        return topic;
+    }
+
+    private void stream(SocketChannel client, char topic) throws IOException {
+        FrameEncoder encoder = new FrameEncoder(256);
+        Random random = new Random(seed);
+        long timestamp = FIRST_TIMESTAMP;
+        double close = FIRST_PRICE;
+
+        for (long b = 0; b < bars; b++) {
+            MarketBar bar = bar(random, b, timestamp, close);
+            close = bar.getClose();
+
+            if (topic == BinaryBarCodec.TOPIC) {
+                FrameEncoder.writeFully(client, encoder.binaryBar(bar, timestamp));
+            } else {
+                byte[] json = JSONWrapper.MAPPER.writeValueAsBytes(bar);
+                FrameEncoder.writeFully(client, encoder.frame(BinaryBarCodec.JSON_TOPIC, timestamp, json, 0, json.length));
+            }
+            timestamp += BAR_MILLIS;
+        }
+    }
+}
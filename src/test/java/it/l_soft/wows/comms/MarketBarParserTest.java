@@ -0,0 +1,75 @@
+package it.l_soft.wows.comms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.utils.JSONWrapper;
+
+/**
+ * MarketBarParser against MAPPER.readValue(json, MarketBar.class), the decoding it replaces.
+ */
+class MarketBarParserTest {
+
+    private final MarketBarParser parser = new MarketBarParser();
+
+    @Test
+    void matchesObjectMapperOnRandomBars() throws Exception {
+        Random rnd = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            double close = 10 + rnd.nextDouble() * 50_000;
+            String json = "{\"topic\":\"B\",\"timestamp\":" + (1_700_000_000_000L + i) +
+                          ",\"open\":" + (close + rnd.nextGaussian()) +
+                          ",\"high\":" + (close + 5) +
+                          ",\"low\":" + (close - 5) +
+                          ",\"close\":" + close +
+                          ",\"volume\":" + rnd.nextInt(1_000_000) +
+                          ",\"barNumber\":" + i + "}";
+            assertSameBar(json);
+        }
+    }
+
+    @Test
+    void matchesObjectMapperOnUnusualInput() throws Exception {
+        assertSameBar("{}");
+        assertSameBar(" { \"close\" : 1.5e3 , \"open\" : -0.0 } ");
+        assertSameBar("{\"close\":\"123.25\",\"volume\":\"42\"}");
+        assertSameBar("{\"close\":null,\"high\":2}");
+        assertSameBar("{\"extra\":{\"nested\":[1,2,{\"x\":\"y\"}]},\"low\":0.1}");
+        assertSameBar("{\"to\\u0070ic\":\"B\",\"close\":0.30000000000000004}");
+        assertSameBar("{\"close\":12345678901234567890.123,\"open\":1e-320}");
+    }
+
+    @Test
+    void honoursOffsetAndLength() throws Exception {
+        byte[] buf = "xx{\"close\":3.5}yy".getBytes(StandardCharsets.UTF_8);
+        MarketBar bar = parser.parse(buf, 2, buf.length - 4, new MarketBar());
+        assertEquals(3.5, bar.getClose());
+    }
+
+    @Test
+    void rejectsNonObject() {
+        byte[] buf = "[1,2]".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> parser.parse(buf, 0, buf.length, new MarketBar()));
+    }
+
+    private void assertSameBar(String json) throws Exception {
+        MarketBar expected = JSONWrapper.MAPPER.readValue(json, MarketBar.class);
+        byte[] buf = json.getBytes(StandardCharsets.UTF_8);
+        MarketBar actual = parser.parse(buf, 0, buf.length, new MarketBar());
+
+        assertEquals(expected.getOpen(), actual.getOpen(), json);
+        assertEquals(expected.getHigh(), actual.getHigh(), json);
+        assertEquals(expected.getLow(), actual.getLow(), json);
+        assertEquals(expected.getClose(), actual.getClose(), json);
+        assertEquals(expected.getVolume(), actual.getVolume(), json);
+        assertEquals(expected.getBarNumber(), actual.getBarNumber(), json);
+        assertEquals(expected.getTimestamp(), actual.getTimestamp(), json);
+        assertEquals(expected.getTopic(), actual.getTopic(), json);
+    }
+}
@@ -0,0 +1,132 @@
+package it.l_soft.wows.comms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.utils.JSONWrapper;
+import it.l_soft.wows.utils.Utilities;
+
+/**
+ * TradingStationInterface.readMessageFromSocket() waiting on its Selector: frames written in
+ * pieces are returned whole once complete, shutdown() wakes a reader blocked in select() and the
+ * end of the stream ends the reading.
+ */
+class TradingStationInterfaceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void readsFramesWrittenInPieces() throws Exception {
+        try (ServerSocketChannel server = server()) {
+            TradingStationInterface station = connect(server);
+            try (SocketChannel peer = server.accept()) {
+                MarketBar binary = bar(3, 100.25);
+                MarketBar json = bar(4, 100.5);
+                ByteBuffer frame = new FrameEncoder(256).binaryBar(binary, binary.getTimestamp());
+                Thread writer = new Thread(() -> {
+                    try {
+                        // header and body split, with pauses the reader has to wait through
+                        writePiece(peer, frame, 5);
+                        writePiece(peer, frame, 20);
+                        writePiece(peer, frame, frame.remaining());
+                        byte[] body = JSONWrapper.MAPPER.writeValueAsBytes(json);
+                        FrameEncoder.writeFully(peer, new FrameEncoder(256).frame(BinaryBarCodec.JSON_TOPIC,
+                                json.getTimestamp(), body, 0, body.length));
+                    }
+                    catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                writer.start();
+
+                assertTimeoutPreemptively(TIMEOUT, () -> {
+                    assertSameBar(binary, (MarketBar) station.readMessageFromSocket());
+                    assertSameBar(json, (MarketBar) station.readMessageFromSocket());
+                });
+                writer.join();
+                assertTrue(station.frameReceivedAt > 0);
+
+                peer.close();
+                assertTimeoutPreemptively(TIMEOUT, () -> assertNull(station.readMessageFromSocket()));
+                assertTrue(station.shutdown);
+            }
+            finally {
+                station.selector.close();
+                station.channel.close();
+            }
+        }
+    }
+
+    @Test
+    void shutdownWakesABlockedReader() throws Exception {
+        try (ServerSocketChannel server = server()) {
+            TradingStationInterface station = connect(server);
+            try (SocketChannel peer = server.accept()) {
+                Thread stopper = new Thread(() -> {
+                    Utilities.pause(100);
+                    station.shutdown();
+                });
+                stopper.start();
+                // nothing is ever sent: only the wakeup gets the reader out of select()
+                assertTimeoutPreemptively(TIMEOUT, () -> assertNull(station.readMessageFromSocket()));
+                stopper.join();
+            }
+            finally {
+                station.selector.close();
+                station.channel.close();
+            }
+        }
+    }
+
+    private static ServerSocketChannel server() throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+        return server;
+    }
+
+    // The connection set up as run() does, without the pipeline
+    private static TradingStationInterface connect(ServerSocketChannel server) throws Exception {
+        TradingStationInterface station = new TradingStationInterface();
+        station.channel = SocketChannel.open(server.getLocalAddress());
+        station.channel.configureBlocking(false);
+        station.selector = Selector.open();
+        station.channel.register(station.selector, SelectionKey.OP_READ);
+        return station;
+    }
+
+    private static void writePiece(SocketChannel peer, ByteBuffer frame, int length) throws Exception {
+        ByteBuffer piece = frame.slice(frame.position(), Math.min(length, frame.remaining()));
+        FrameEncoder.writeFully(peer, piece);
+        frame.position(frame.position() + piece.capacity());
+        Utilities.pause(50);
+    }
+
+    private static MarketBar bar(long barNumber, double close) {
+        long timestamp = 1_600_000_000_000L + barNumber * 60_000L;
+        MarketBar bar = new MarketBar(barNumber, timestamp, close - 0.25, close + 0.5, close - 0.5, close, 1234);
+        bar.setTimestamp(timestamp);
+        return bar;
+    }
+
+    private static void assertSameBar(MarketBar expected, MarketBar actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getOpen(), actual.getOpen());
+        assertEquals(expected.getHigh(), actual.getHigh());
+        assertEquals(expected.getLow(), actual.getLow());
+        assertEquals(expected.getClose(), actual.getClose());
+        assertEquals(expected.getVolume(), actual.getVolume());
+        assertEquals(expected.getBarNumber(), actual.getBarNumber());
+    }
+}
@@ -0,0 +1,192 @@
+package it.l_soft.wows.dataHandlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.MarketBar;
+
+/**
+ * BarArchive: the bars written come back unchanged (also when converted from a CSV file as
+ * BacktestRunner -archive does), the column files have the documented little-endian layout and
+ * open() enforces the MAX_BARS bound and consistent column lengths.
+ */
+class BarArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeThenReadRoundTrip() throws Exception {
+        Random rnd = new Random(1);
+        List<MarketBar> bars = new ArrayList<MarketBar>();
+        for (int i = 0; i < 10_000; i++) {
+            double close = 100 + rnd.nextGaussian();
+            bars.add(bar(1_600_000_000_000L + i * 60_000L, close - 0.5, close + 1,
+                                   close - 1, close, rnd.nextInt(5000)));
+        }
+        bars.add(bar(Long.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY, -0.0, Double.MIN_VALUE, Long.MAX_VALUE));
+
+        // a small buffer, so that the writer flushes many times
+        Path archiveDir = dir.resolve("archive");
+        try (BarArchive.Writer writer = new BarArchive.Writer(archiveDir, 7)) {
+            for (Bar bar : bars) writer.append(bar);
+            assertEquals(bars.size(), writer.getWritten());
+        }
+        assertTrue(BarArchive.isArchive(archiveDir));
+
+        try (BarArchive archive = BarArchive.open(archiveDir)) {
+            assertEquals(bars.size(), archive.size());
+            List<Bar> list = archive.asList();
+            assertEquals(bars.size(), list.size());
+            for (int i = 0; i < bars.size(); i++) {
+                assertSameBar(bars.get(i), archive.get(i), "bar " + i);
+                assertSameBar(bars.get(i), list.get(i), "list bar " + i);
+                assertEquals(i, archive.get(i).getBarNumber());
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> archive.get(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> archive.get(bars.size()));
+        }
+    }
+
+    @Test
+    void convertCsvThenRead() throws Exception {
+        Path csv = dir.resolve("bars.csv");
+        StringBuilder sb = new StringBuilder("timestamp,open,high,low,close,volume\n");
+        Random rnd = new Random(2);
+        for (int i = 0; i < 500; i++) {
+            double close = Math.round((100 + rnd.nextGaussian()) * 100) / 100.0;
+            sb.append(1_600_000_000_000L + i * 60_000L).append(',').append(close - 0.25).append(',')
+              .append(close + 0.5).append(',').append(close - 0.5).append(',').append(close).append(',')
+              .append(rnd.nextInt(1000)).append('\n');
+        }
+        Files.writeString(csv, sb);
+
+        // the same loop as BacktestRunner -archive
+        Path archiveDir = dir.resolve("archive");
+        try (BarArchive.Writer writer = new BarArchive.Writer(archiveDir);
+             BarSource source = BarSource.open(csv)) {
+            Bar bar;
+            while ((bar = source.next()) != null) writer.append(bar);
+        }
+
+        try (BarSource expected = BarSource.open(csv); BarSource actual = BarSource.open(archiveDir)) {
+            assertTrue(actual instanceof ArchiveBarSource);
+            int i = 0;
+            Bar e;
+            while ((e = expected.next()) != null) {
+                Bar a = actual.next();
+                assertSameBar(e, a, "bar " + i);
+                assertEquals(i++, a.getBarNumber());
+            }
+            assertEquals(500, i);
+            assertNull(actual.next());
+        }
+    }
+
+    @Test
+    void columnsAreLittleEndian() throws Exception {
+        Path archiveDir = dir.resolve("archive");
+        try (BarArchive.Writer writer = new BarArchive.Writer(archiveDir)) {
+            writer.append(bar(0x0102030405060708L, 1.5, 2.5, 0.5, -3.25, 0x1122334455667788L));
+            writer.append(bar(1L, 0, 0, 0, 0, 2L));
+        }
+        byte[] timestamp = Files.readAllBytes(archiveDir.resolve("timestamp.i64"));
+        assertEquals(16, timestamp.length);
+        assertEquals(0x08, timestamp[0]);
+        assertEquals(0x01, timestamp[7]);
+        assertEquals(1, timestamp[8]);
+
+        assertEquals(1.5, column(archiveDir, "open.f64").getDouble(0));
+        assertEquals(2.5, column(archiveDir, "high.f64").getDouble(0));
+        assertEquals(0.5, column(archiveDir, "low.f64").getDouble(0));
+        assertEquals(-3.25, column(archiveDir, "close.f64").getDouble(0));
+        assertEquals(0x1122334455667788L, column(archiveDir, "volume.i64").getLong(0));
+        assertEquals(2L, column(archiveDir, "volume.i64").getLong(8));
+        // and the other way around, a column written by hand is read back
+        ByteBuffer close = column(archiveDir, "close.f64").putDouble(8, 42.125);
+        Files.write(archiveDir.resolve("close.f64"), close.array());
+        try (BarArchive archive = BarArchive.open(archiveDir)) {
+            assertEquals(42.125, archive.getClose(1));
+        }
+    }
+
+    @Test
+    void openAcceptsMaxBars() throws Exception {
+        // sparse files: nothing is actually written, only the first page is touched
+        Path archiveDir = sparseArchive("max", (long) BarArchive.MAX_BARS * Long.BYTES);
+        try (BarArchive archive = BarArchive.open(archiveDir)) {
+            assertEquals(BarArchive.MAX_BARS, archive.size());
+            assertEquals(0, archive.getTimestamp(BarArchive.MAX_BARS - 1));
+        }
+    }
+
+    @Test
+    void openRejectsMoreThanMaxBars() throws Exception {
+        Path archiveDir = sparseArchive("over", ((long) BarArchive.MAX_BARS + 1) * Long.BYTES);
+        IOException e = assertThrows(IOException.class, () -> BarArchive.open(archiveDir));
+        assertTrue(e.getMessage().contains("invalid column length"), e.getMessage());
+    }
+
+    @Test
+    void openRejectsBadColumns() throws Exception {
+        Path partial = sparseArchive("partial", 12);
+        assertThrows(IOException.class, () -> BarArchive.open(partial));
+
+        Path mismatched = sparseArchive("mismatched", 16);
+        try (RandomAccessFile f = new RandomAccessFile(mismatched.resolve("close.f64").toFile(), "rw")) {
+            f.setLength(24);
+        }
+        IOException e = assertThrows(IOException.class, () -> BarArchive.open(mismatched));
+        assertTrue(e.getMessage().contains("the other columns"), e.getMessage());
+
+        Files.delete(mismatched.resolve("volume.i64"));
+        assertFalse(BarArchive.isArchive(mismatched));
+    }
+
+    // the constructor ignores its timestamp argument, set it as the bar sources do
+    private static MarketBar bar(long timestamp, double open, double high, double low, double close, long volume) {
+        MarketBar bar = new MarketBar(0, timestamp, open, high, low, close, volume);
+        bar.setTimestamp(timestamp);
+        return bar;
+    }
+
+    private Path sparseArchive(String name, long length) throws IOException {
+        Path archiveDir = Files.createDirectories(dir.resolve(name));
+        for (String column : BarArchive.COLUMNS) {
+            try (RandomAccessFile f = new RandomAccessFile(archiveDir.resolve(column).toFile(), "rw")) {
+                f.setLength(length);
+            }
+        }
+        return archiveDir;
+    }
+
+    private static ByteBuffer column(Path archiveDir, String column) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(archiveDir.resolve(column))).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void assertSameBar(Bar expected, Bar actual, String where) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp(), where);
+        assertEquals(Double.doubleToRawLongBits(expected.getOpen()), Double.doubleToRawLongBits(actual.getOpen()), where);
+        assertEquals(Double.doubleToRawLongBits(expected.getHigh()), Double.doubleToRawLongBits(actual.getHigh()), where);
+        assertEquals(Double.doubleToRawLongBits(expected.getLow()), Double.doubleToRawLongBits(actual.getLow()), where);
+        assertEquals(Double.doubleToRawLongBits(expected.getClose()), Double.doubleToRawLongBits(actual.getClose()), where);
+        assertEquals(expected.getVolume(), actual.getVolume(), where);
+    }
+}
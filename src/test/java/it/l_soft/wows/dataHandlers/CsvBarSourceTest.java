@@ -0,0 +1,90 @@
+package it.l_soft.wows.dataHandlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.comms.Bar;
+
+/**
+ * CsvBarSource on the fixture files of src/test/resources/bars: files without header, headers
+ * naming the columns in any order (MetaStock style included), the timestamp formats, comment and
+ * blank lines, and the errors on malformed lines and incomplete headers.
+ */
+class CsvBarSourceTest {
+
+    @Test
+    void headerlessEpochTimestamps() throws Exception {
+        try (BarSource source = BarSource.open(fixture("headerless.csv"))) {
+            assertTrue(source instanceof CsvBarSource);
+            assertBar(source.next(), 1580463000000L, 100.5, 101.0, 100.0, 100.75, 1200);
+            assertBar(source.next(), 1580463060000L, 100.75, 101.25, 100.5, 101.0, 900);
+            // epoch seconds, no volume
+            assertBar(source.next(), 1580463120000L, 101.0, 101.5, 100.75, 101.25, 0);
+            assertNull(source.next());
+        }
+    }
+
+    @Test
+    void separateDateAndTimeColumns() throws Exception {
+        try (BarSource source = BarSource.open(fixture("metastock.txt"))) {
+            assertBar(source.next(), local(2020, 1, 31, 9, 30, 0, 0), 1.1010, 1.1020, 1.1005, 1.1015, 10);
+            assertBar(source.next(), local(2020, 1, 31, 9, 31, 0, 0), 1.1015, 1.1030, 1.1010, 1.1025, 12);
+            assertNull(source.next());
+        }
+    }
+
+    @Test
+    void namedColumnsInAnyOrder() throws Exception {
+        try (BarSource source = BarSource.open(fixture("named.csv"))) {
+            assertBar(source.next(), local(2020, 1, 31, 9, 30, 0, 250), 250, 251, 249.5, 250.5, 3000);
+            assertBar(source.next(), local(2020, 1, 31, 9, 31, 0, 0), 250.5, 251.5, 250.25, 251.25, 0);
+            assertNull(source.next());
+        }
+    }
+
+    @Test
+    void malformedLineReportsFileAndLine() throws Exception {
+        try (BarSource source = BarSource.open(fixture("malformed.csv"))) {
+            assertBar(source.next(), local(2020, 1, 31, 9, 30, 0, 0), 10, 11, 9, 10.5, 100);
+            IOException e = assertThrows(IOException.class, source::next);
+            assertTrue(e.getMessage().contains("malformed.csv:3:"), e.getMessage());
+        }
+    }
+
+    @Test
+    void headerWithoutCloseIsRejected() {
+        IOException e = assertThrows(IOException.class, () -> new CsvBarSource(fixture("noclose.csv")));
+        assertTrue(e.getMessage().contains("header must name"), e.getMessage());
+    }
+
+    static Path fixture(String name) throws Exception {
+        return Paths.get(CsvBarSourceTest.class.getResource("/bars/" + name).toURI());
+    }
+
+    private static long local(int y, int mo, int d, int h, int mi, int s, int ms) {
+        return LocalDateTime.of(y, mo, d, h, mi, s, ms * 1_000_000).atZone(ZoneId.systemDefault())
+                            .toInstant().toEpochMilli();
+    }
+
+    private static void assertBar(Bar bar, long timestamp, double open, double high, double low,
+                                  double close, long volume) {
+        assertEquals(timestamp, bar.getTimestamp());
+        assertEquals(open, bar.getOpen());
+        assertEquals(high, bar.getHigh());
+        assertEquals(low, bar.getLow());
+        assertEquals(close, bar.getClose());
+        assertEquals(volume, bar.getVolume());
+        // the sources do not number the bars, the pipeline does
+        assertEquals(0, bar.getBarNumber());
+    }
+}
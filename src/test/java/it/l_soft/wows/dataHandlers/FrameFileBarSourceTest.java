@@ -0,0 +1,115 @@
+package it.l_soft.wows.dataHandlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.l_soft.wows.BacktestRunner;
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.BinaryBarCodec;
+import it.l_soft.wows.comms.FrameEncoder;
+import it.l_soft.wows.comms.MarketBar;
+import it.l_soft.wows.utils.JSONWrapper;
+
+/**
+ * FrameFileBarSource: binary and JSON bars in one recording, other topics skipped, a truncated
+ * last frame reported; and the BacktestRunner -convert round trip of the CSV fixtures, whose
+ * frames number the bars 0, 1, 2, ... across all the input files.
+ */
+class FrameFileBarSourceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mixedTopics() throws Exception {
+        MarketBar binary = bar(7, 1_600_000_000_000L, 100.25);
+        MarketBar json = bar(8, 1_600_000_060_000L, 100.5);
+        Path file = dir.resolve("bars.bin");
+        FrameEncoder encoder = new FrameEncoder(256);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FrameEncoder.writeFully(out, encoder.hello("C", 0));
+            FrameEncoder.writeFully(out, encoder.binaryBar(binary, binary.getTimestamp()));
+            byte[] trade = "{\"topic\":\"A\"}".getBytes(StandardCharsets.UTF_8);
+            FrameEncoder.writeFully(out, encoder.frame('A', 0, trade, 0, trade.length));
+            byte[] body = JSONWrapper.MAPPER.writeValueAsBytes(json);
+            FrameEncoder.writeFully(out, encoder.frame(BinaryBarCodec.JSON_TOPIC, json.getTimestamp(), body, 0, body.length));
+        }
+
+        try (BarSource source = BarSource.open(file)) {
+            assertTrue(source instanceof FrameFileBarSource);
+            assertSameBar(binary, source.next());
+            assertSameBar(json, source.next());
+            assertNull(source.next());
+        }
+    }
+
+    @Test
+    void truncatedFrameIsReported() throws Exception {
+        Path file = dir.resolve("truncated.bin");
+        ByteBuffer frame = new FrameEncoder(256).binaryBar(bar(0, 1, 1), 1);
+        byte[] bytes = new byte[frame.remaining() - 5];
+        frame.get(bytes);
+        Files.write(file, bytes);
+        try (BarSource source = BarSource.open(file)) {
+            IOException e = assertThrows(IOException.class, source::next);
+            assertTrue(e.getMessage().contains("truncated"), e.getMessage());
+        }
+    }
+
+    @Test
+    void convertedCsvReplaysNumbered() throws Exception {
+        Path first = CsvBarSourceTest.fixture("headerless.csv");
+        Path second = CsvBarSourceTest.fixture("named.csv");
+        Path converted = dir.resolve("converted.bin");
+        BacktestRunner.main(new String[] { "-convert", converted.toString(), first.toString(), second.toString() });
+
+        long expectedNumber = 0;
+        try (BarSource frames = BarSource.open(converted)) {
+            for (Path csv : new Path[] { first, second }) {
+                try (BarSource source = BarSource.open(csv)) {
+                    Bar expected;
+                    while ((expected = source.next()) != null) {
+                        Bar actual = frames.next();
+                        assertSameValues(expected, actual);
+                        assertEquals(expectedNumber++, actual.getBarNumber());
+                    }
+                }
+            }
+            assertNull(frames.next());
+        }
+        assertEquals(5, expectedNumber);
+    }
+
+    private static MarketBar bar(long barNumber, long timestamp, double close) {
+        MarketBar bar = new MarketBar(barNumber, timestamp, close - 0.25, close + 0.5, close - 0.5, close, 1234);
+        bar.setTimestamp(timestamp);
+        return bar;
+    }
+
+    private static void assertSameBar(Bar expected, Bar actual) {
+        assertSameValues(expected, actual);
+        assertEquals(expected.getBarNumber(), actual.getBarNumber());
+    }
+
+    private static void assertSameValues(Bar expected, Bar actual) {
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getOpen(), actual.getOpen());
+        assertEquals(expected.getHigh(), actual.getHigh());
+        assertEquals(expected.getLow(), actual.getLow());
+        assertEquals(expected.getClose(), actual.getClose());
+        assertEquals(expected.getVolume(), actual.getVolume());
+    }
+}
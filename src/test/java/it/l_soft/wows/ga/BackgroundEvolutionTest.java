@@ -0,0 +1,115 @@
+package it.l_soft.wows.ga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.l_soft.wows.ApplicationProperties;
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.MarketBar;
+import it.l_soft.wows.indicators.Indicator;
+import it.l_soft.wows.indicators.IndicatorGraph;
+import it.l_soft.wows.indicators.volatility.ATR;
+import it.l_soft.wows.utils.Utilities;
+
+/**
+ * GAEngine with evolutionInBackground: every generation the evolution thread builds through
+ * nextGeneration is adopted exactly once, at a bar boundary (evalPopulation), never by
+ * evolveIfDue(); a new evolution is only started once the previous one has been adopted, and
+ * an adopted population is never replaced by an older one.
+ */
+class BackgroundEvolutionTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyGenerationIsAdoptedOnce() throws Exception {
+        ApplicationProperties props = ApplicationProperties.getInstance();
+        boolean background = props.isEvolutionInBackground();
+        String evolutionPath = props.getGeneEvolutionFilePath();
+        String dumpPath = props.getGeneEvalDumpPath();
+        props.setEvolutionInBackground(true);
+        props.setGeneEvolutionFilePath(dir.toString());
+        props.setGeneEvalDumpPath(dir.toString());
+        try {
+            run(props);
+        }
+        finally {
+            props.setEvolutionInBackground(background);
+            props.setGeneEvolutionFilePath(evolutionPath);
+            props.setGeneEvalDumpPath(dumpPath);
+        }
+    }
+
+    private void run(ApplicationProperties props) {
+        IndicatorGraph graph = IndicatorGraph.build("EMA(5,CLOSE); RSI(14,CLOSE); ROC(12,CLOSE); ATR(14)");
+        List<Indicator> indicators = graph.getCatalog();
+        ATR atr = (ATR) indicators.get(indicators.size() - 1);
+        GAEngine ga = new GAEngine(indicators);
+        assertEquals("bar", props.getEvolutionCadence());
+
+        Set<PopulationMatrix> seen = Collections.newSetFromMap(new IdentityHashMap<PopulationMatrix, Boolean>());
+        PopulationMatrix current = ga.getPopulation();
+        seen.add(current);
+        int started = 0, adopted = 0;
+        Random rnd = new Random(4);
+        double close = 100;
+        Bar prev = null;
+        try {
+            for (int b = 0; b < 400; b++) {
+                close *= 1 + 0.002 * rnd.nextGaussian();
+                MarketBar bar = new MarketBar(b, 0, close, close * 1.001, close * 0.999, close, 1000);
+                graph.update(bar);
+                for (Indicator indicator : indicators) indicator.normalizeAndStore(bar, atr, props);
+                if (prev == null) {
+                    prev = bar;
+                    continue;
+                }
+
+                ga.evalPopulation(indicators, bar, prev, 0.01);
+                if (ga.getPopulation() != current) {
+                    current = ga.getPopulation();
+                    assertTrue(seen.add(current), "bar " + b + ": a population came back");
+                    adopted++;
+                }
+                assertTrue(adopted <= started, "bar " + b + ": adopted more generations than were built");
+
+                boolean pending = (started > adopted);
+                if (ga.evolveIfDue()) {
+                    assertFalse(pending, "bar " + b + ": evolution started while one was not adopted yet");
+                    started++;
+                }
+                assertSame(current, ga.getPopulation(), "bar " + b + ": swapped outside evalPopulation");
+
+                // let the evolution thread finish now and then, and sometimes not
+                if (b % 3 != 0) Utilities.pause(2);
+                prev = bar;
+            }
+
+            // the last one is adopted on the next bar once built
+            Utilities.pause(200);
+            ga.evalPopulation(indicators, prev, prev, 0.01);
+            if (ga.getPopulation() != current) {
+                assertTrue(seen.add(ga.getPopulation()));
+                adopted++;
+            }
+            assertEquals(started, adopted);
+            assertTrue(adopted >= 20, "only " + adopted + " generations adopted");
+        }
+        finally {
+            ga.cleanUpOnExit();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package it.l_soft.wows.ga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.ga.EvolutionScheduler.Mode;
+
+/**
+ * EvolutionScheduler: the evolutionCadence syntax (bar | bars:N | millis:T | stagnation:N, case
+ * and blanks tolerated, anything else rejected) and on which bars each cadence is due, also
+ * after evolved() restarts it.
+ */
+class EvolutionSchedulerTest {
+
+    @Test
+    void parsesEverySpec() {
+        assertSpec("bar", Mode.EVERY_BAR, 1, "bar");
+        assertSpec("  BAR ", Mode.EVERY_BAR, 1, "bar");
+        assertSpec("bars:5", Mode.EVERY_N_BARS, 5, "bars:5");
+        assertSpec("Bars : 12", Mode.EVERY_N_BARS, 12, "bars:12");
+        assertSpec("bars:1", Mode.EVERY_BAR, 1, "bar");
+        assertSpec("millis:1500", Mode.INTERVAL, 1500, "millis:1500");
+        assertSpec("stagnation:30", Mode.STAGNATION, 30, "stagnation:30");
+    }
+
+    @Test
+    void rejectsInvalidSpecs() {
+        for (String spec : new String[] { "", "bars", "bars:", "bars:0", "bars:-3", "bars:x", "millis:0",
+                                          "stagnation", "stagnation:0", "every:5", "bar:5", "seconds:1" }) {
+            assertThrows(IllegalArgumentException.class, () -> EvolutionScheduler.parse(spec), spec);
+        }
+    }
+
+    @Test
+    void everyBarIsAlwaysDue() {
+        EvolutionScheduler s = EvolutionScheduler.parse("bar");
+        for (int bar = 0; bar < 10; bar++) {
+            assertTrue(s.isDue(bar, 0));
+            if (bar % 2 == 0) s.evolved(bar);
+        }
+    }
+
+    @Test
+    void everyNBarsCountsFromTheLastEvolution() {
+        EvolutionScheduler s = EvolutionScheduler.parse("bars:3");
+        assertFalse(s.isDue(0, 0));
+        assertFalse(s.isDue(0, 0));
+        assertTrue(s.isDue(0, 0));
+        // not evolved (e.g. a background generation still building): stays due
+        assertTrue(s.isDue(0, 0));
+        s.evolved(0);
+        assertFalse(s.isDue(0, 0));
+        assertFalse(s.isDue(0, 0));
+        assertTrue(s.isDue(0, 0));
+    }
+
+    @Test
+    void intervalUsesTheGivenClock() {
+        EvolutionScheduler s = EvolutionScheduler.parse("millis:1000");
+        s.evolved(10_000);
+        assertFalse(s.isDue(10_000, 0));
+        assertFalse(s.isDue(10_999, 0));
+        assertTrue(s.isDue(11_000, 0));
+        s.evolved(11_500);
+        assertFalse(s.isDue(12_000, 0));
+        assertTrue(s.isDue(12_500, 0));
+    }
+
+    @Test
+    void stagnationWaitsForBarsWithoutImprovement() {
+        EvolutionScheduler s = EvolutionScheduler.parse("stagnation:3");
+        assertFalse(s.isDue(0, 1.0));     // first value is an improvement
+        assertFalse(s.isDue(0, 1.0));     // equal is not an improvement: 1
+        assertFalse(s.isDue(0, 0.5));     // 2
+        assertFalse(s.isDue(0, 2.0));     // improvement, back to 0
+        assertFalse(s.isDue(0, 2.0));     // 1
+        assertFalse(s.isDue(0, 1.5));     // 2
+        assertTrue(s.isDue(0, 1.9));      // 3
+        s.evolved(0);
+        // the best fitness is forgotten: the new population starts over
+        assertFalse(s.isDue(0, -5.0));
+        assertFalse(s.isDue(0, -6.0));
+        assertFalse(s.isDue(0, -6.0));
+        assertTrue(s.isDue(0, -6.0));
+    }
+
+    private static void assertSpec(String spec, Mode mode, long threshold, String canonical) {
+        EvolutionScheduler s = EvolutionScheduler.parse(spec);
+        assertEquals(mode, s.getMode(), spec);
+        assertEquals(threshold, s.getThreshold(), spec);
+        assertEquals(canonical, s.toString(), spec);
+        assertEquals(canonical, EvolutionScheduler.parse(s.toString()).toString(), spec);
+    }
+}
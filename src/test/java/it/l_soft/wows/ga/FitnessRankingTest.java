@@ -0,0 +1,99 @@
+package it.l_soft.wows.ga;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * FitnessRanking against the boxed sort it replaced: Integer rows sorted by key descending
+ * (Double.compare semantics) and, on equal keys, by ascending row. top(k) must give the first k
+ * rows of rank(), followed by a permutation of the others. Keys are drawn from a few
+ * values so that ties are the rule, with NaN and both zeros mixed in.
+ */
+class FitnessRankingTest {
+
+    private static final int[] SIZES = { 0, 1, 2, 3, 24, 25, 100, 1000, 5003 };
+
+    @Test
+    void rankMatchesBoxedSort() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random rnd = new Random(seed);
+            for (int n : SIZES) {
+                for (int distinct : new int[] { 1, 3, 50, Integer.MAX_VALUE }) {
+                    double[] keys = randomKeys(rnd, n, distinct);
+                    String where = "seed " + seed + " n " + n + " distinct " + distinct;
+                    assertArrayEquals(boxedRank(keys, n), FitnessRanking.rank(keys, n, null), where);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rankReusesOutOnlyWhenSized() {
+        double[] keys = randomKeys(new Random(7), 40, 5);
+        int[] out = new int[40];
+        int[] rows = FitnessRanking.rank(keys, 40, out);
+        assertArrayEquals(boxedRank(keys, 40), rows);
+        assertSame(out, rows);
+        rows = FitnessRanking.rank(keys, 40, new int[39]);
+        assertArrayEquals(boxedRank(keys, 40), rows);
+    }
+
+    @Test
+    void topMatchesPrefixOfRank() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random rnd = new Random(seed);
+            for (int n : SIZES) {
+                for (int distinct : new int[] { 1, 2, 7, Integer.MAX_VALUE }) {
+                    double[] keys = randomKeys(rnd, n, distinct);
+                    int[] ranked = FitnessRanking.rank(keys, n, null);
+                    for (int k : new int[] { 0, 1, n / 2, n - 1, n, n + 1 }) {
+                        if (k < 0) continue;
+                        String where = "seed " + seed + " n " + n + " distinct " + distinct + " k " + k;
+                        int[] top = FitnessRanking.top(keys, n, k, null);
+                        int prefix = Math.min(k, n);
+                        assertArrayEquals(Arrays.copyOf(ranked, prefix), Arrays.copyOf(top, prefix), where);
+                        // the rest is just the other rows
+                        int[] all = top.clone();
+                        Arrays.sort(all);
+                        for (int i = 0; i < n; i++) assertEquals(i, all[i], where);
+                    }
+                }
+            }
+        }
+    }
+
+    /** The reference: stable boxed sort on the key, best first. */
+    static int[] boxedRank(double[] keys, int n) {
+        Integer[] rows = new Integer[n];
+        for (int i = 0; i < n; i++) rows[i] = i;
+        Arrays.sort(rows, Comparator.comparingDouble((Integer r) -> keys[r]).reversed()
+                                    .thenComparingInt(r -> r));
+        return Arrays.stream(rows).mapToInt(Integer::intValue).toArray();
+    }
+
+    static double[] randomKeys(Random rnd, int n, int distinct) {
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++) {
+            int pick = rnd.nextInt(100);
+            if (pick == 0) {
+                keys[i] = Double.NaN;
+            } else if (pick == 1) {
+                keys[i] = -0.0;
+            } else if (pick == 2) {
+                keys[i] = 0.0;
+            } else if (distinct == Integer.MAX_VALUE) {
+                keys[i] = rnd.nextGaussian();
+            } else {
+                keys[i] = rnd.nextInt(distinct) - distinct / 2;
+            }
+        }
+        return keys;
+    }
+}
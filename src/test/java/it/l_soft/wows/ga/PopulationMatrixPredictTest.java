@@ -0,0 +1,65 @@
+package it.l_soft.wows.ga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * predictVectorized() against predict(): yhat must be the same bit for bit, for any split of the
+ * rows into chunks, so the ranking does not depend on the kernel or on evalThreads.
+ * Runs the vector kernel with -Pvector, the fallback otherwise.
+ */
+class PopulationMatrixPredictTest {
+
+    private static final double TEMPERATURE = 0.7;
+
+    @Test
+    void vectorizedMatchesScalarBitForBit() {
+        Random rnd = new Random(11);
+        for (int size : new int[] { 1, 7, 64, 1000, 2003 }) {
+            for (int geneSize : new int[] { 1, 3, 10 }) {
+                double[] normalized = new double[50];
+                PopulationMatrix matrix = randomMatrix(rnd, size, geneSize, normalized.length);
+                for (int bar = 0; bar < 5; bar++) {
+                    for (int i = 0; i < normalized.length; i++) {
+                        normalized[i] = rnd.nextDouble() * 2 - 1;
+                    }
+                    double[] expected = new double[size];
+                    matrix.predict(normalized, TEMPERATURE, 0, size);
+                    for (int r = 0; r < size; r++) expected[r] = matrix.getYhat(r);
+
+                    for (int chunks : new int[] { 1, 3, 8 }) {
+                        int chunk = (size + chunks - 1) / chunks;
+                        for (int from = 0; from < size; from += chunk) {
+                            matrix.predictVectorized(normalized, TEMPERATURE, from, Math.min(size, from + chunk));
+                        }
+                        for (int r = 0; r < size; r++) {
+                            assertEquals(Double.doubleToRawLongBits(expected[r]),
+                                         Double.doubleToRawLongBits(matrix.getYhat(r)),
+                                         "size " + size + ", geneSize " + geneSize + ", chunks " + chunks + ", row " + r);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void vectorKernelLoadedWhenModulePresent() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        assertEquals(true, PopulationMatrix.isVectorKernelAvailable());
+    }
+
+    private static PopulationMatrix randomMatrix(Random rnd, int size, int geneSize, int catalog) {
+        PopulationMatrix matrix = new PopulationMatrix(size, geneSize);
+        for (int r = 0; r < size; r++) {
+            for (int l = 0; l < geneSize; l++) {
+                matrix.setLocus(r, l, rnd.nextInt(catalog));
+            }
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,147 @@
+package it.l_soft.wows.ga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ScoreHistory against a naive list of every prediction ever added: random adds and resolves,
+ * many times around the ring. The held range, the resolve order (oldest pending first, skipping
+ * pending entries already overwritten), the columns and the window aggregates recomputed from
+ * scratch on every step must all agree.
+ */
+class ScoreHistoryTest {
+
+    /** One prediction of the naive reference. */
+    private static final class Entry {
+        String name;
+        long timestamp;
+        long barNumber;
+        double predictedPrice;
+        int direction;
+        double score;
+        Boolean successful;   // null while pending
+    }
+
+    @Test
+    void matchesNaiveHistory() {
+        for (int capacity : new int[] { 1, 2, 3, 16, 100 }) {
+            for (long seed = 1; seed <= 5; seed++) {
+                run(capacity, new Random(seed), "capacity " + capacity + " seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void resolveWithNothingPendingThrows() {
+        ScoreHistory history = new ScoreHistory(4);
+        assertThrows(IllegalStateException.class, () -> history.resolveNext(1, true, 0));
+        history.add("g", 0, 0, 1, 1);
+        history.resolveNext(1, true, 0);
+        assertThrows(IllegalStateException.class, () -> history.resolveNext(1, true, 0));
+    }
+
+    @Test
+    void clearStartsOver() {
+        ScoreHistory history = new ScoreHistory(3);
+        for (int i = 0; i < 7; i++) {
+            history.add("g", i, i, 1, 1);
+            history.resolveNext(0.5, true, i);
+        }
+        history.clear();
+        assertEquals(0, history.size());
+        assertEquals(-1, history.last());
+        assertEquals(-1, history.lastResolved());
+        assertEquals(0, history.getWindowResolved());
+        assertEquals(0, history.getWindowScore());
+        assertEquals(0, history.add("g", 0, 0, 1, 1));
+    }
+
+    private static void run(int capacity, Random rnd, String where) {
+        ScoreHistory history = new ScoreHistory(capacity);
+        List<Entry> all = new ArrayList<Entry>();
+        long nextToResolve = 0;
+        long lastResolved = -1;
+
+        for (int step = 0; step < 5_000; step++) {
+            String at = where + " step " + step;
+            // bursts of adds without resolves, so that pending entries get overwritten too
+            boolean add = rnd.nextInt(10) < ((step / 250) % 2 == 0 ? 5 : 8);
+            if (add || nextToResolve >= all.size()) {
+                Entry e = new Entry();
+                e.name = "g" + rnd.nextInt(5);
+                e.timestamp = rnd.nextLong();
+                e.barNumber = step;
+                e.predictedPrice = 100 + rnd.nextGaussian();
+                e.direction = rnd.nextInt(3) - 1;
+                assertEquals(all.size(), history.add(e.name, e.timestamp, e.barNumber,
+                                                     e.predictedPrice, e.direction * 7), at);
+                all.add(e);
+                nextToResolve = Math.max(nextToResolve, first(all, capacity));
+            } else {
+                Entry e = all.get((int) nextToResolve);
+                e.score = rnd.nextGaussian() * 1e3;
+                e.successful = rnd.nextBoolean();
+                e.timestamp = rnd.nextLong();
+                assertEquals(nextToResolve, history.resolveNext(e.score, e.successful, e.timestamp), at);
+                lastResolved = nextToResolve++;
+            }
+            check(history, all, capacity, nextToResolve, lastResolved, at);
+        }
+    }
+
+    private static void check(ScoreHistory history, List<Entry> all, int capacity,
+                              long nextToResolve, long lastResolved, String at) {
+        long first = first(all, capacity);
+        assertEquals(first, history.first(), at);
+        assertEquals(all.size() - 1, history.last(), at);
+        assertEquals(all.size() - first, history.size(), at);
+        assertEquals(nextToResolve < all.size() ? nextToResolve : -1, history.oldestPending(), at);
+        assertEquals(lastResolved >= first ? lastResolved : -1, history.lastResolved(), at);
+
+        double sum = 0;
+        int resolved = 0;
+        int successes = 0;
+        double magnitude = 0;
+        for (long seq = first; seq < all.size(); seq++) {
+            Entry e = all.get((int) seq);
+            assertEquals(e.name, history.getName(seq), at);
+            assertEquals(e.timestamp, history.getTimestamp(seq), at);
+            assertEquals(e.barNumber, history.getBarNumber(seq), at);
+            assertEquals(e.predictedPrice, history.getPredictedPrice(seq), at);
+            assertEquals(e.direction, history.getDirection(seq), at);
+            assertEquals(e.successful != null, history.isResolved(seq), at);
+            if (e.successful != null) {
+                assertEquals(e.score, history.getScore(seq), at);
+                assertEquals(e.successful, history.isSuccessful(seq), at);
+                sum += e.score;
+                magnitude += Math.abs(e.score);
+                resolved++;
+                if (e.successful) successes++;
+            }
+        }
+        assertEquals(resolved, history.getWindowResolved(), at);
+        assertEquals(successes, history.getWindowSuccesses(), at);
+        if (resolved == 0) {
+            assertEquals(0, history.getWindowScore(), at);
+        } else {
+            // the running sum drifts by a few ulps of the scores added and evicted since the last wrap
+            assertEquals(sum, history.getWindowScore(), 1e-12 * Math.max(1e3 * capacity, magnitude), at);
+        }
+        assertEquals(resolved > 0 ? (double) successes / resolved : 0, history.getWindowWinRate(), at);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> history.getScore(all.size()));
+        if (first > 0) {
+            assertThrows(IndexOutOfBoundsException.class, () -> history.getScore(first - 1));
+        }
+    }
+
+    private static long first(List<Entry> all, int capacity) {
+        return Math.max(0, all.size() - capacity);
+    }
+}
@@ -0,0 +1,93 @@
+package it.l_soft.wows.indicators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.ApplicationProperties;
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.MarketBar;
+import it.l_soft.wows.comms.Price;
+import it.l_soft.wows.indicators.momentum.RSI;
+import it.l_soft.wows.indicators.momentum.RSIBank;
+import it.l_soft.wows.indicators.trend.EMA;
+import it.l_soft.wows.indicators.trend.EMABank;
+import it.l_soft.wows.indicators.trend.SMA;
+import it.l_soft.wows.indicators.trend.SMABank;
+import it.l_soft.wows.indicators.volatility.ATR;
+
+/**
+ * EMABank, SMABank and RSIBank against one single EMA, SMA or RSI per period fed the same bars:
+ * every member must have exactly the value and the normalized value of its single indicator on
+ * every bar, warm-up (NOT_DEFINED) and flat runs included.
+ */
+class IndicatorBankTest {
+
+    private static final int BARS = 3_000;
+    private static final int[] PERIODS = IndicatorBank.periods(1, 200, 7);
+
+    @Test
+    void emaBankMatchesSingleEMAs() {
+        check(new EMABank(PERIODS, Price.CLOSE), p -> new EMA(p, Price.CLOSE));
+    }
+
+    @Test
+    void smaBankMatchesSingleSMAs() {
+        check(new SMABank(PERIODS, Price.CLOSE), p -> new SMA(p, Price.CLOSE));
+    }
+
+    @Test
+    void rsiBankMatchesSingleRSIs() {
+        check(new RSIBank(PERIODS, Price.CLOSE), p -> new RSI(p, Price.CLOSE));
+    }
+
+    @Test
+    void resetStartsOver() {
+        EMABank bank = new EMABank(PERIODS, Price.CLOSE);
+        Random rnd = new Random(3);
+        for (int t = 0; t < 300; t++) bank.add(bar(100 + rnd.nextGaussian(), t));
+        bank.reset();
+        for (int i = 0; i < bank.size(); i++) {
+            assertTrue(Double.isNaN(bank.value(i)), "member " + i);
+        }
+        check(bank, p -> new EMA(p, Price.CLOSE));
+    }
+
+    private static void check(IndicatorBank bank, IntFunction<Indicator> single) {
+        ApplicationProperties props = ApplicationProperties.getInstance();
+        Indicator[] reference = new Indicator[bank.size()];
+        for (int i = 0; i < bank.size(); i++) {
+            reference[i] = single.apply(bank.getPeriod(i));
+        }
+        ATR atr = new ATR(14);
+        Random rnd = new Random(11);
+        double price = 100;
+        int warmingUp = 0;
+
+        for (int t = 0; t < BARS; t++) {
+            // flat stretches (RSI with no gains nor losses) between noisy moves
+            if ((t / 150) % 4 != 2) price = Math.max(1, price * (1 + 0.004 * rnd.nextGaussian()));
+            Bar bar = bar(price, t);
+            atr.add(bar);
+            bank.add(bar);
+            for (int i = 0; i < bank.size(); i++) {
+                String where = bank.getName() + " period " + bank.getPeriod(i) + " bar " + t;
+                double expected = reference[i].add(bar);
+                if (Double.isNaN(expected)) warmingUp++;
+                assertEquals(expected, bank.value(i), where);
+                assertEquals(expected, bank.member(i).value(), where);
+                assertEquals(reference[i].normalizeAndStore(bar, atr, props),
+                             bank.member(i).normalizeAndStore(bar, atr, props), where);
+            }
+        }
+        assertTrue(warmingUp > 0);
+    }
+
+    private static Bar bar(double close, long barNumber) {
+        return new MarketBar(barNumber, 0, close, close * 1.001, close * 0.999, close, 1000);
+    }
+}
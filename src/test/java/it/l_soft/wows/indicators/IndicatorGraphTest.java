@@ -0,0 +1,80 @@
+package it.l_soft.wows.indicators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * IndicatorGraph deduplication: one node per canonical key, whatever the spelling of the token
+ * and whether the indicator is asked for directly or as the input of another one.
+ */
+class IndicatorGraphTest {
+
+    @Test
+    void keyDefaultsPriceToClose() {
+        assertEquals("EMA(12,CLOSE)", key("EMA(12)"));
+        assertEquals("EMA(12,CLOSE)", key("ema(12.0, close)"));
+        assertEquals("EMA(12,CLOSE)", key("trend.EMA(12,CLOSE)"));
+        assertEquals("EMA(12,HIGH)", key("EMA(12,HIGH)"));
+        assertEquals("MACD(12,26,9,CLOSE)", key("MACD(12,26,9)"));
+        assertEquals("ATR(14,CLOSE)", key("ATR(14)"));
+        // no price taking constructor for these parameters: left as is
+        assertEquals("AwesomeOscillator(5,34)", key("AwesomeOscillator(5,34)"));
+    }
+
+    @Test
+    void tokenWithoutPriceSharesTheNode() {
+        IndicatorGraph graph = IndicatorGraph.build("EMA(12); EMA(12,CLOSE); ema(12.0,close)");
+        List<Indicator> catalog = graph.getCatalog();
+        assertEquals(3, catalog.size());
+        assertSame(catalog.get(0), catalog.get(1));
+        assertSame(catalog.get(0), catalog.get(2));
+        assertEquals(1, graph.size());
+    }
+
+    @Test
+    void macdReusesTheEmaNodes() {
+        IndicatorGraph graph = IndicatorGraph.build("EMA(12); EMA(26,CLOSE); MACD(12,26,9,CLOSE); MACD(12,26,9)");
+        List<Indicator> catalog = graph.getCatalog();
+        assertSame(catalog.get(2), catalog.get(3));
+        // EMA(12), EMA(26), MACD
+        assertEquals(3, graph.size());
+    }
+
+    @Test
+    void differentPricesStayApart() {
+        IndicatorGraph graph = IndicatorGraph.build("EMA(12); EMA(12,HIGH)");
+        assertNotSame(graph.getCatalog().get(0), graph.getCatalog().get(1));
+        assertEquals(2, graph.size());
+    }
+
+    @Test
+    void keltnerAndStochasticDReuseTheirInputs() {
+        IndicatorGraph graph = IndicatorGraph.build("ATR(14); StochasticK(14); Keltner(20,14,2); StochasticD(14,3)");
+        // ATR(14), StochasticK(14), EMA(20) for the Keltner mid line, Keltner, StochasticD
+        assertEquals(5, graph.size());
+    }
+
+    @Test
+    void onlyWellFormedSweepsAreSweeps() {
+        assertTrue(IndicatorFactory.isSweep("EMA[5:200:5](CLOSE)"));
+        assertTrue(IndicatorFactory.isSweep(" Donchian[10:50]() "));
+        assertFalse(IndicatorFactory.isSweep("EMA(12,CLOSE)"));
+        assertFalse(IndicatorFactory.isSweep("EMA[5:x](CLOSE)"));
+        // a bracketed typo gets the normal parse error, not the sweep one
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                                                  () -> IndicatorGraph.build("EMA(12)[3]"));
+        assertTrue(e.getMessage().startsWith("Invalid indicator spec"), e.getMessage());
+    }
+
+    private static String key(String token) {
+        return IndicatorFactory.key(IndicatorFactory.parse(token));
+    }
+}
@@ -0,0 +1,80 @@
+package it.l_soft.wows.indicators;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * RollingExtrema against a plain scan of the window, on random series with many ties
+ * (values on a coarse grid) and flat runs.
+ */
+class RollingExtremaTest {
+
+    private static final int BARS = 20_000;
+
+    @Test
+    void matchesWindowScan() {
+        for (int period : new int[] { 1, 2, 3, 7, 20, 55, 200 }) {
+            for (long seed = 1; seed <= 5; seed++) {
+                checkAgainstScan(period, seed);
+            }
+        }
+    }
+
+    @Test
+    void resetStartsOver() {
+        RollingExtrema extrema = new RollingExtrema(3);
+        extrema.add(5, 1);
+        extrema.add(9, 0);
+        extrema.reset();
+        assertEquals(-1, extrema.index());
+        assertTrue(Double.isNaN(extrema.max()));
+        extrema.add(2, 1);
+        assertEquals(2, extrema.max());
+        assertEquals(1, extrema.min());
+        assertEquals(0, extrema.maxIndex());
+        assertEquals(1, extrema.count());
+    }
+
+    @Test
+    void rejectsNonPositivePeriod() {
+        assertThrows(IllegalArgumentException.class, () -> new RollingExtrema(0));
+    }
+
+    private static void checkAgainstScan(int period, long seed) {
+        Random rnd = new Random(seed);
+        RollingExtrema extrema = new RollingExtrema(period);
+        double[] highs = new double[BARS];
+        double[] lows = new double[BARS];
+        double price = 100;
+
+        for (int t = 0; t < BARS; t++) {
+            // a flat stretch every so often, otherwise a walk on a 0.25 grid
+            if ((t / 50) % 9 != 4) price = Math.max(1, price + 0.25 * (rnd.nextInt(5) - 2));
+            highs[t] = price + 0.25 * rnd.nextInt(3);
+            lows[t] = price - 0.25 * rnd.nextInt(3);
+            extrema.add(highs[t], lows[t]);
+
+            // chronological scan, >= / <= so that the newest of equal values wins
+            int from = Math.max(0, t - period + 1);
+            int maxAt = from, minAt = from;
+            for (int i = from + 1; i <= t; i++) {
+                if (highs[i] >= highs[maxAt]) maxAt = i;
+                if (lows[i] <= lows[minAt]) minAt = i;
+            }
+
+            String where = "period " + period + " seed " + seed + " bar " + t;
+            assertEquals(highs[maxAt], extrema.max(), where);
+            assertEquals(lows[minAt], extrema.min(), where);
+            assertEquals(maxAt, extrema.maxIndex(), where);
+            assertEquals(minAt, extrema.minIndex(), where);
+            assertEquals(t, extrema.index(), where);
+            assertEquals(t - from + 1, extrema.count(), where);
+            assertEquals(t + 1 >= period, extrema.isFull(), where);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package it.l_soft.wows.indicators.bands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.MarketBar;
+
+/**
+ * Donchian on RollingExtrema against the previous implementation, which rescanned the window
+ * of boxed highs and lows with a stream on every bar. Random walks with ties and flat runs.
+ */
+class DonchianTest {
+
+    private static final int BARS = 50_000;
+
+    @Test
+    void matchesWindowRescan() {
+        for (int period : new int[] { 1, 2, 5, 20, 55, 300 }) {
+            for (long seed = 1; seed <= 5; seed++) {
+                checkAgainstRescan(period, seed);
+            }
+        }
+    }
+
+    @Test
+    void resetMatchesFreshInstance() {
+        Random rnd = new Random(42);
+        Donchian reused = new Donchian(20);
+        for (int t = 0; t < 500; t++) reused.add(randomBar(rnd, 100, t));
+        reused.reset();
+
+        Donchian fresh = new Donchian(20);
+        for (int t = 0; t < 500; t++) {
+            Bar bar = randomBar(rnd, 100, t);
+            assertEquals(fresh.add(bar), reused.add(bar), "bar " + t);
+            assertEquals(fresh.upper(), reused.upper(), "bar " + t);
+            assertEquals(fresh.lower(), reused.lower(), "bar " + t);
+        }
+    }
+
+    private static void checkAgainstRescan(int period, long seed) {
+        Random rnd = new Random(seed);
+        Donchian donchian = new Donchian(period);
+        RescanDonchian reference = new RescanDonchian(period);
+        double price = 100;
+
+        for (int t = 0; t < BARS; t++) {
+            if ((t / 80) % 7 != 3) price = Math.max(1, price * (1 + 0.002 * rnd.nextGaussian()));
+            // round to ticks so that equal highs/lows show up in the window
+            Bar bar = randomBar(rnd, Math.round(price * 4) / 4.0, t);
+
+            String where = "period " + period + " seed " + seed + " bar " + t;
+            assertEquals(reference.add(bar), donchian.add(bar), where);
+            assertEquals(reference.upper, donchian.upper(), where);
+            assertEquals(reference.lower, donchian.lower(), where);
+            assertEquals(reference.mid, donchian.value(), where);
+        }
+    }
+
+    private static Bar randomBar(Random rnd, double price, long barNumber) {
+        double high = price + 0.25 * rnd.nextInt(3);
+        double low = price - 0.25 * rnd.nextInt(3);
+        return new MarketBar(barNumber, 0, price, high, low, price, 1000);
+    }
+
+    /** The Donchian as it was before RollingExtrema: boxed deques and a stream per bar. */
+    private static final class RescanDonchian {
+        private final int period;
+        private final Deque<Double> highs = new ArrayDeque<>();
+        private final Deque<Double> lows = new ArrayDeque<>();
+        private int barsSeen = 0;
+        double upper = Double.NaN, lower = Double.NaN, mid = Double.NaN;
+
+        RescanDonchian(int period) {
+            this.period = period;
+        }
+
+        double add(Bar bar) {
+            if (highs.size() == period) highs.removeFirst();
+            if (lows.size() == period) lows.removeFirst();
+            highs.addLast(bar.getHigh());
+            lows.addLast(bar.getLow());
+
+            barsSeen++;
+            if (barsSeen < period) {
+                upper = lower = mid = Double.NaN;
+                return mid;
+            }
+            upper = highs.stream().mapToDouble(Double::doubleValue).max().orElse(Double.NaN);
+            lower = lows.stream().mapToDouble(Double::doubleValue).min().orElse(Double.NaN);
+            mid = (upper + lower) / 2.0;
+            return mid;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package it.l_soft.wows.indicators.momentum;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.MarketBar;
+
+/**
+ * Rolling high/low as StochasticK and WilliamsR kept them before RollingExtrema: monotonic
+ * deques of boxed (value, index) nodes. Reference for their tests, with the bar series they use.
+ */
+final class DequeExtrema {
+    private static final class Node { final double v; final int i; Node(double v, int i) { this.v = v; this.i = i; } }
+    private final int period;
+    private final ArrayDeque<Node> maxQ = new ArrayDeque<>();
+    private final ArrayDeque<Node> minQ = new ArrayDeque<>();
+    private int index = -1;
+    private int count = 0;
+
+    DequeExtrema(int period) {
+        this.period = period;
+    }
+
+    /** @return true once 'period' bars are in */
+    boolean add(Bar bar) {
+        index++;
+        while (!maxQ.isEmpty() && maxQ.getLast().v <= bar.getHigh()) maxQ.removeLast();
+        maxQ.addLast(new Node(bar.getHigh(), index));
+        while (!minQ.isEmpty() && minQ.getLast().v >= bar.getLow()) minQ.removeLast();
+        minQ.addLast(new Node(bar.getLow(), index));
+        final int windowStart = index - period + 1;
+        while (!maxQ.isEmpty() && maxQ.getFirst().i < windowStart) maxQ.removeFirst();
+        while (!minQ.isEmpty() && minQ.getFirst().i < windowStart) minQ.removeFirst();
+        if (count < period) count++;
+        return count >= period;
+    }
+
+    double hh() { return maxQ.getFirst().v; }
+    double ll() { return minQ.getFirst().v; }
+
+    // a walk on a 0.25 grid with a flat stretch every so often
+    static double nextPrice(Random rnd, double price, int t) {
+        return ((t / 60) % 8 == 5 ? price : Math.max(1, price + 0.25 * (rnd.nextInt(5) - 2)));
+    }
+
+    static Bar randomBar(Random rnd, double price, long barNumber) {
+        boolean flat = ((barNumber / 60) % 8 == 5);
+        double high = price + (flat ? 0 : 0.25 * rnd.nextInt(3));
+        double low = price - (flat ? 0 : 0.25 * rnd.nextInt(3));
+        return new MarketBar(barNumber, 0, price, high, low, price, 1000);
+    }
+}
@@ -0,0 +1,41 @@
+package it.l_soft.wows.indicators.momentum;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.comms.Bar;
+
+/**
+ * WilliamsR on RollingExtrema against its previous implementation (DequeExtrema). %R only reads
+ * the extreme values, not where they are, so the two must agree exactly on every bar, ties and
+ * flat windows (the neutral -50) included.
+ */
+class WilliamsRTest {
+
+    private static final int BARS = 30_000;
+
+    @Test
+    void matchesDequeImplementation() {
+        for (int period : new int[] { 1, 2, 5, 14, 50, 200 }) {
+            for (long seed = 1; seed <= 5; seed++) {
+                Random rnd = new Random(seed);
+                WilliamsR r = new WilliamsR(period);
+                DequeExtrema reference = new DequeExtrema(period);
+                double price = 100;
+                for (int t = 0; t < BARS; t++) {
+                    price = DequeExtrema.nextPrice(rnd, price, t);
+                    Bar bar = DequeExtrema.randomBar(rnd, price, t);
+                    double expected = Double.NaN;
+                    if (reference.add(bar)) {
+                        double range = reference.hh() - reference.ll();
+                        expected = (range == 0.0 ? -50.0 : -100.0 * (reference.hh() - bar.getClose()) / range);
+                    }
+                    assertEquals(expected, r.add(bar), "period " + period + " seed " + seed + " bar " + t);
+                }
+            }
+        }
+    }
+}
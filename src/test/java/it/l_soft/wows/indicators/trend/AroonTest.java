@@ -0,0 +1,155 @@
+package it.l_soft.wows.indicators.trend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.MarketBar;
+
+/**
+ * Aroon on RollingExtrema against the previous implementation, which scanned its circular
+ * buffers in slot order on every bar. Highs and lows are on a coarse grid, so equal extremes
+ * are frequent.
+ *
+ * - With a unique highest high and lowest low in the window the two must agree exactly.
+ * - On ties the documented rule is that the most recent bar wins; the previous scan picked
+ *   whichever equal value came last in slot order. Against the same scan run in bar order
+ *   (that rule) the values must agree exactly on every bar.
+ */
+class AroonTest {
+
+    private static final int BARS = 30_000;
+
+    @Test
+    void matchesSlotScanAndNewestWinsOnTies() {
+        for (int period : new int[] { 1, 2, 5, 14, 25, 100 }) {
+            for (long seed = 1; seed <= 5; seed++) {
+                checkAgainstScan(period, seed);
+            }
+        }
+    }
+
+    @Test
+    void resetMatchesFreshInstance() {
+        Random rnd = new Random(42);
+        Aroon reused = new Aroon(14);
+        for (int t = 0; t < 500; t++) reused.add(randomBar(rnd, 100, t));
+        reused.reset();
+
+        Aroon fresh = new Aroon(14);
+        for (int t = 0; t < 500; t++) {
+            Bar bar = randomBar(rnd, 100, t);
+            assertEquals(fresh.add(bar), reused.add(bar), "bar " + t);
+        }
+    }
+
+    private static void checkAgainstScan(int period, long seed) {
+        Random rnd = new Random(seed);
+        Aroon aroon = new Aroon(period);
+        ScanAroon slotOrder = new ScanAroon(period, false);
+        ScanAroon barOrder = new ScanAroon(period, true);
+        double price = 100;
+        int unique = 0, ties = 0;
+
+        for (int t = 0; t < BARS; t++) {
+            if ((t / 80) % 7 != 3) price = Math.max(1, price + 0.25 * (rnd.nextInt(5) - 2));
+            Bar bar = randomBar(rnd, price, t);
+
+            double actual = aroon.add(bar);
+            double previous = slotOrder.add(bar);
+            double newestWins = barOrder.add(bar);
+
+            String where = "period " + period + " seed " + seed + " bar " + t;
+            assertEquals(newestWins, actual, where);
+            assertEquals(barOrder.up, aroon.up(), where);
+            assertEquals(barOrder.down, aroon.down(), where);
+            if (t + 1 >= period) {
+                if (barOrder.uniqueExtremes()) {
+                    assertEquals(previous, actual, where);
+                    unique++;
+                } else {
+                    ties++;
+                }
+            }
+        }
+        if (period > 1) {
+            assertTrue(unique > 0 && ties > 0, "period " + period + ": unique " + unique + ", ties " + ties);
+        }
+    }
+
+    private static Bar randomBar(Random rnd, double price, long barNumber) {
+        double high = price + 0.25 * rnd.nextInt(3);
+        double low = price - 0.25 * rnd.nextInt(3);
+        return new MarketBar(barNumber, 0, price, high, low, price, 1000);
+    }
+
+    /**
+     * The Aroon as it was before RollingExtrema: circular buffers scanned with >= / <= on every
+     * bar, in slot order (the previous code) or in bar order (most recent wins on ties).
+     */
+    private static final class ScanAroon {
+        private final int period;
+        private final boolean chronological;
+        private final double[] highs;
+        private final double[] lows;
+        private final int[] idxs;
+        private int barIndex = -1;
+        private int count = 0;
+        private int hhCount, llCount;       // bars in the window equal to the extremes
+        double up = Double.NaN, down = Double.NaN;
+
+        ScanAroon(int period, boolean chronological) {
+            this.period = period;
+            this.chronological = chronological;
+            this.highs = new double[period];
+            this.lows = new double[period];
+            this.idxs = new int[period];
+            java.util.Arrays.fill(idxs, -1);
+        }
+
+        boolean uniqueExtremes() {
+            return hhCount == 1 && llCount == 1;
+        }
+
+        double add(Bar bar) {
+            barIndex++;
+            final int slot = barIndex % period;
+            highs[slot] = bar.getHigh();
+            lows[slot] = bar.getLow();
+            idxs[slot] = barIndex;
+
+            if (count < period) {
+                count++;
+                if (count < period) {
+                    up = down = Double.NaN;
+                    return Double.NaN;
+                }
+            }
+
+            final int windowStart = barIndex - period + 1;
+            double hh = Double.NEGATIVE_INFINITY, ll = Double.POSITIVE_INFINITY;
+            int hhIndex = -1, llIndex = -1;
+            for (int k = 0; k < period; k++) {
+                // slot order as before, or the slots from the oldest bar to the newest
+                int i = (chronological ? (windowStart + k) % period : k);
+                int idx = idxs[i];
+                if (idx < windowStart) continue;
+                if (highs[i] >= hh) { hh = highs[i]; hhIndex = idx; }
+                if (lows[i] <= ll) { ll = lows[i]; llIndex = idx; }
+            }
+            hhCount = llCount = 0;
+            for (int i = 0; i < period; i++) {
+                if (highs[i] == hh) hhCount++;
+                if (lows[i] == ll) llCount++;
+            }
+
+            up = 100.0 * (period - (barIndex - hhIndex)) / period;
+            down = 100.0 * (period - (barIndex - llIndex)) / period;
+            return up - down;
+        }
+    }
+}
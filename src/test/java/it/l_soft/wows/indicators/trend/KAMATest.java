@@ -0,0 +1,128 @@
+package it.l_soft.wows.indicators.trend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.MarketBar;
+
+/**
+ * KAMA on primitive rings against the previous implementation, which kept the prices in a boxed
+ * Deque and summed the deltas again on every bar. Random walks with flat runs (ER denominator 0),
+ * long enough to wrap the delta ring many times; the values must agree within 1e-12.
+ */
+class KAMATest {
+
+    private static final int BARS = 20_000;
+    private static final double TOLERANCE = 1e-12;
+
+    @Test
+    void matchesDequeImplementation() {
+        int[][] periods = { { 1, 2, 30 }, { 2, 2, 30 }, { 10, 2, 30 }, { 14, 3, 50 }, { 50, 5, 100 }, { 200, 2, 30 } };
+        for (int[] p : periods) {
+            for (long seed = 1; seed <= 5; seed++) {
+                checkAgainstDeque(p[0], p[1], p[2], seed);
+            }
+        }
+    }
+
+    @Test
+    void resetMatchesFreshInstance() {
+        Random rnd = new Random(42);
+        KAMA reused = new KAMA(10, 2, 30);
+        for (int t = 0; t < 500; t++) reused.add(bar(100 + rnd.nextGaussian(), t));
+        reused.reset();
+
+        KAMA fresh = new KAMA(10, 2, 30);
+        for (int t = 0; t < 500; t++) {
+            Bar bar = bar(100 + rnd.nextGaussian(), t);
+            assertEquals(fresh.add(bar), reused.add(bar), "bar " + t);
+        }
+    }
+
+    private static void checkAgainstDeque(int erPeriod, int fast, int slow, long seed) {
+        Random rnd = new Random(seed);
+        KAMA kama = new KAMA(erPeriod, fast, slow);
+        DequeKAMA reference = new DequeKAMA(erPeriod, fast, slow);
+        double price = 100;
+        int flatBars = 0;
+
+        for (int t = 0; t < BARS; t++) {
+            // flat runs longer than the ER window every so often, otherwise a noisy walk
+            if ((t / 300) % 5 == 2) {
+                flatBars++;
+            } else {
+                price = Math.max(1, price * (1 + 0.003 * rnd.nextGaussian()));
+            }
+            Bar bar = bar(price, t);
+            double expected = reference.add(bar);
+            double actual = kama.add(bar);
+
+            String where = "erPeriod " + erPeriod + " fast " + fast + " slow " + slow +
+                           " seed " + seed + " bar " + t;
+            if (Double.isNaN(expected)) {
+                assertTrue(Double.isNaN(actual), where + ": " + actual);
+            } else {
+                assertTrue(Math.abs(actual - expected) <= TOLERANCE,
+                           where + ": expected " + expected + " got " + actual);
+            }
+        }
+        assertTrue(flatBars > erPeriod);
+    }
+
+    private static Bar bar(double close, long barNumber) {
+        return new MarketBar(barNumber, 0, close, close, close, close, 1000);
+    }
+
+    /** The KAMA as it was before the rings: boxed Deque, denominator summed on every bar. */
+    private static final class DequeKAMA {
+        private final int erPeriod;
+        private final double fastSC;
+        private final double slowSC;
+        private final Deque<Double> prices;
+        private double kama = Double.NaN;
+        private boolean seeded = false;
+
+        DequeKAMA(int erPeriod, int fastPeriod, int slowPeriod) {
+            this.erPeriod = erPeriod;
+            this.prices = new ArrayDeque<>(erPeriod + 1);
+            this.fastSC = 2.0 / (fastPeriod + 1.0);
+            this.slowSC = 2.0 / (slowPeriod + 1.0);
+        }
+
+        double add(Bar bar) {
+            final double p = bar.getClose();
+            prices.addLast(p);
+            if (prices.size() > erPeriod + 1) {
+                prices.removeFirst();
+            }
+            if (prices.size() < erPeriod + 1) {
+                kama = Double.NaN;
+                return kama;
+            }
+            double numerator = Math.abs(prices.peekLast() - prices.peekFirst());
+            double denom = 0.0;
+            Double prev = null;
+            for (double x : prices) {
+                if (prev != null) denom += Math.abs(x - prev);
+                prev = x;
+            }
+            double er = (denom == 0.0) ? 0.0 : (numerator / denom);
+            double sc = er * (fastSC - slowSC) + slowSC;
+            sc = sc * sc;
+            if (!seeded) {
+                kama = p;
+                seeded = true;
+            } else {
+                kama = kama + sc * (p - kama);
+            }
+            return kama;
+        }
+    }
+}
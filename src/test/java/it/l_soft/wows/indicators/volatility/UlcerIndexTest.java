@@ -0,0 +1,109 @@
+package it.l_soft.wows.indicators.volatility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.comms.Bar;
+import it.l_soft.wows.comms.MarketBar;
+
+/**
+ * UlcerIndex on running sums against the previous implementation, which scanned the window for
+ * Cmax and summed the squared drawdowns directly on every bar. The expansion around a recent
+ * close cancels terms, so the check is a tolerance (1e-9 relative, absolute below 1) over random
+ * walks at several price levels, flat runs (UI exactly 0 in the reference) and enough bars to
+ * resync the sums many times.
+ */
+class UlcerIndexTest {
+
+    private static final int BARS = 20_000;
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void matchesDirectSum() {
+        for (int period : new int[] { 1, 2, 14, 50, 250 }) {
+            for (double level : new double[] { 0.5, 100, 25_000 }) {
+                for (long seed = 1; seed <= 3; seed++) {
+                    checkAgainstDirectSum(period, level, seed);
+                }
+            }
+        }
+    }
+
+    @Test
+    void resetMatchesFreshInstance() {
+        Random rnd = new Random(42);
+        UlcerIndex reused = new UlcerIndex(14);
+        for (int t = 0; t < 500; t++) reused.add(bar(100 + rnd.nextGaussian(), t));
+        reused.reset();
+
+        UlcerIndex fresh = new UlcerIndex(14);
+        for (int t = 0; t < 500; t++) {
+            Bar bar = bar(100 + rnd.nextGaussian(), t);
+            assertEquals(fresh.add(bar), reused.add(bar), "bar " + t);
+        }
+    }
+
+    private static void checkAgainstDirectSum(int period, double level, long seed) {
+        Random rnd = new Random(seed);
+        UlcerIndex ulcer = new UlcerIndex(period);
+        DirectUlcerIndex reference = new DirectUlcerIndex(period);
+        double price = level;
+
+        for (int t = 0; t < BARS; t++) {
+            if ((t / 400) % 6 != 1) price = Math.max(level * 0.01, price * (1 + 0.004 * rnd.nextGaussian()));
+            Bar bar = bar(price, t);
+            double expected = reference.add(bar);
+            double actual = ulcer.add(bar);
+
+            String where = "period " + period + " level " + level + " seed " + seed + " bar " + t;
+            if (Double.isNaN(expected)) {
+                assertTrue(Double.isNaN(actual), where + ": " + actual);
+            } else {
+                assertTrue(Math.abs(actual - expected) <= TOLERANCE * Math.max(1.0, expected),
+                           where + ": expected " + expected + " got " + actual);
+            }
+        }
+    }
+
+    private static Bar bar(double close, long barNumber) {
+        return new MarketBar(barNumber, 0, close, close, close, close, 1000);
+    }
+
+    /** The UlcerIndex as it was before the running sums: window scan and direct sum per bar. */
+    private static final class DirectUlcerIndex {
+        private final int period;
+        private final double[] closes;
+        private int idx = 0;
+        private int count = 0;
+
+        DirectUlcerIndex(int period) {
+            this.period = period;
+            this.closes = new double[period];
+        }
+
+        double add(Bar bar) {
+            closes[idx] = bar.getClose();
+            idx++;
+            if (idx == period) idx = 0;
+            if (count < period) count++;
+            if (count < period) return Double.NaN;
+
+            double cmax = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < period; i++) {
+                if (closes[i] > cmax) cmax = closes[i];
+            }
+            if (cmax <= 0.0 || !Double.isFinite(cmax)) return 0.0;
+
+            double sumSq = 0.0;
+            for (int i = 0; i < period; i++) {
+                double dd = 100.0 * (cmax - closes[i]) / cmax;
+                sumSq += dd * dd;
+            }
+            return Math.sqrt(sumSq / period);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package it.l_soft.wows.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.l_soft.wows.utils.AsyncLineWriter.OverflowPolicy;
+
+/**
+ * AsyncLineWriter: every line offer() accepts is in the file, every refused one is counted,
+ * also when close() races the producers; a BLOCK offer() does not hang on a dead writer thread.
+ */
+class AsyncLineWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void closeRacingProducersLosesNothingSilently() throws Exception {
+        for (OverflowPolicy overflow : OverflowPolicy.values()) {
+            for (int round = 0; round < 20; round++) {
+                checkCloseRace(overflow, round);
+            }
+        }
+    }
+
+    @Test
+    void blockingOfferGivesUpOnDeadWriter() throws Exception {
+        TextFileHandler file = new TextFileHandler(dir.toString(), "dead", "txt", false);
+        String name = "testDeadWriter";
+        AsyncLineWriter out = new AsyncLineWriter(file, name, 1, 1, 0, OverflowPolicy.BLOCK);
+        Thread writer = findThread(name);
+        writer.interrupt();
+        writer.join();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            int refused = 0;
+            for (int i = 0; i < 4; i++) {
+                if (!out.offer("line " + i)) refused++;
+            }
+            assertTrue(refused > 0);
+            assertEquals(refused, out.getDropped());
+            out.close();
+        });
+        assertFalse(out.offer("after close"));
+    }
+
+    private void checkCloseRace(OverflowPolicy overflow, int round) throws Exception {
+        String pre = overflow + "_" + round;
+        TextFileHandler file = new TextFileHandler(dir.toString(), pre, "txt", false);
+        AsyncLineWriter out = new AsyncLineWriter(file, "test" + pre, 64, 16, 0, overflow);
+
+        int producers = 4;
+        Set<String> accepted = ConcurrentHashMap.newKeySet();
+        CountDownLatch started = new CountDownLatch(producers);
+        Thread[] threads = new Thread[producers];
+        long[] offered = new long[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 5_000; i++) {
+                    String line = id + ":" + i;
+                    offered[id]++;
+                    if (out.offer(line)) accepted.add(line);
+                }
+            });
+            threads[p].start();
+        }
+        started.await();
+        out.close();
+        for (Thread t : threads) t.join();
+
+        List<String> written = Files.readAllLines(dir.resolve(pre + ".txt"));
+        assertEquals(accepted, new HashSet<>(written), "accepted lines must be the written ones");
+        assertEquals(written.size(), accepted.size());
+
+        long total = 0;
+        for (long n : offered) total += n;
+        assertEquals(total, accepted.size() + out.getDropped());
+    }
+
+    private static Thread findThread(String name) {
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (name.equals(t.getName())) return t;
+        }
+        throw new IllegalStateException("no thread " + name);
+    }
+}
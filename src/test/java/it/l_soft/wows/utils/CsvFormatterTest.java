@@ -0,0 +1,91 @@
+package it.l_soft.wows.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CsvFormatter against the formatting it replaces: appendFixed() must give the text of
+ * String.format(Locale.US, "%.Nf", v) for every value, including the ties of the shortest
+ * decimal form that the binary value or its scaled product put on either side of the half, appendTime() that of SimpleDateFormat("HH:mm:ss.SSS").
+ */
+class CsvFormatterTest {
+
+    @Test
+    void fixedMatchesStringFormatOnRandomValues() {
+        Random rnd = new Random(1);
+        for (int i = 0; i < 50_000; i++) {
+            int decimals = rnd.nextInt(10);
+            double v = rnd.nextGaussian() * Math.pow(10, rnd.nextInt(24) - 8);
+            check(v, decimals);
+        }
+    }
+
+    @Test
+    void fixedMatchesStringFormatOnTies() {
+        Random rnd = new Random(2);
+        for (int i = 0; i < 50_000; i++) {
+            int decimals = rnd.nextInt(8);
+            // k.5 units of the last digit: a tie in decimal, usually not quite one in binary
+            double units = rnd.nextInt(10_000_000) + 0.5;
+            double v = units / Math.pow(10, decimals);
+            check(v, decimals);
+            check(-v, decimals);
+            check(Math.nextUp(v), decimals);
+            check(Math.nextDown(v), decimals);
+        }
+        // the classic ones
+        check(1.00005, 4);
+        check(0.125, 2);
+        check(2.5, 0);
+        check(1.0005, 3);
+        check(0.00005, 4);
+        check(-0.00005, 4);
+        check(1234567.00005, 4);
+    }
+
+    @Test
+    void fixedMatchesStringFormatOnEdges() {
+        double[] edges = { 0.0, -0.0, 1e-12, -1e-12, Double.MIN_VALUE, 0.99995, 9.99995, 899_999_999_999.99995,
+                           9.0e11, 1e15, -1e15, 1e300, Double.MAX_VALUE, -Double.MAX_VALUE,
+                           Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        for (double v : edges) {
+            for (int decimals = 0; decimals < 10; decimals++) {
+                check(v, decimals);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> CsvFormatter.appendFixed(new StringBuilder(), 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> CsvFormatter.appendFixed(new StringBuilder(), 1, -1));
+    }
+
+    @Test
+    void timeMatchesSimpleDateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS");
+        Random rnd = new Random(3);
+        for (int i = 0; i < 50_000; i++) {
+            long millis = 1_500_000_000_000L + (long) (rnd.nextDouble() * 400_000_000_000L);
+            assertEquals(format.format(new Date(millis)),
+                         CsvFormatter.appendTime(new StringBuilder(), millis).toString(), "millis " + millis);
+        }
+    }
+
+    @Test
+    void rowBufferIsClearedAndReused() {
+        StringBuilder sb = CsvFormatter.rowBuffer().append("x");
+        StringBuilder again = CsvFormatter.rowBuffer();
+        assertEquals(sb, again);
+        assertEquals(0, again.length());
+    }
+
+    private static void check(double v, int decimals) {
+        String expected = String.format(Locale.US, "%." + decimals + "f", v);
+        String actual = CsvFormatter.appendFixed(new StringBuilder(), v, decimals).toString();
+        assertEquals(expected, actual, "v " + v + " decimals " + decimals);
+    }
+}
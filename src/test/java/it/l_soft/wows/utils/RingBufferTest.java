@@ -0,0 +1,178 @@
+package it.l_soft.wows.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import it.l_soft.wows.utils.RingBuffer.MissedItemsException;
+
+/**
+ * RingBuffer consumers: a consumer that is lapped by the producer gets a MissedItemsException
+ * telling how many items it lost, one created mid-stream starts at the next sequence, and under
+ * a concurrent producer a consumer never returns an item other than the one of its sequence.
+ * The indexed view and getContentAsList() hold the last 'capacity' items, oldest first, also
+ * once the ring has wrapped.
+ */
+class RingBufferTest {
+
+    @Test
+    void consumerStartsAtNextSequence() throws Exception {
+        RingBuffer<Long> ring = new RingBuffer<Long>(8);
+        for (long i = 0; i < 13; i++) ring.publish(i);
+
+        RingBuffer<Long>.ConsumerHandle consumer = ring.createConsumer();
+        assertEquals(13, consumer.getNextSequence());
+        assertNull(consumer.pollValue());
+        assertNull(consumer.poll());
+        assertEquals(-1, consumer.getLastSequence());
+
+        ring.publish(13L);
+        ring.publish(14L);
+        assertEquals(13L, consumer.pollValue());
+        assertEquals(13, consumer.getLastSequence());
+        RingBuffer.ValueWithSequence<Long> next = consumer.poll();
+        assertEquals(14, next.getSequence());
+        assertEquals(14L, next.getValue());
+        assertNull(consumer.pollValue());
+    }
+
+    @Test
+    void lappedConsumerMissesItems() throws Exception {
+        RingBuffer<Long> ring = new RingBuffer<Long>(8);
+        RingBuffer<Long>.ConsumerHandle consumer = ring.createConsumer();
+        for (long i = 0; i < 3; i++) ring.publish(i);
+        assertEquals(0L, consumer.pollValue());
+
+        // exactly one lap behind is still readable
+        for (long i = 3; i < 9; i++) ring.publish(i);
+        assertEquals(1L, consumer.pollValue());
+
+        // one more overwrites sequence 2, the next one this consumer expects
+        for (long i = 9; i < 11; i++) ring.publish(i);
+        MissedItemsException e = assertThrows(MissedItemsException.class, consumer::pollValue);
+        assertEquals(2, e.getExpectedSequence());
+        assertEquals(10, e.getLastAvailableSequence());
+        assertEquals(1, e.getMissedCount());
+        assertEquals(2, consumer.getNextSequence(), "a failed read does not move the consumer");
+
+        for (long i = 11; i < 20; i++) ring.publish(i);
+        e = assertThrows(MissedItemsException.class, consumer::pollValue);
+        assertEquals(10, e.getMissedCount());
+        assertThrows(MissedItemsException.class, consumer::takeValue);
+    }
+
+    @Test
+    void indexedViewAndContentAfterWrap() throws Exception {
+        RingBuffer<Long> ring = new RingBuffer<Long>(5);
+        RingBuffer<Long>.ConsumerHandle consumer = ring.createConsumer();
+        assertEquals(0, ring.size());
+        assertNull(ring.last());
+        assertTrue(consumer.getContentAsList().isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> ring.get(0));
+
+        for (long n = 1; n <= 23; n++) {
+            ring.publish(n - 1);
+            int held = (int) Math.min(n, 5);
+            long oldest = n - held;
+            assertEquals(held, ring.size());
+            assertEquals(held, ring.getLength());
+            assertEquals(n - 1, ring.last());
+
+            List<Long> expected = new ArrayList<Long>();
+            for (long seq = oldest; seq < n; seq++) expected.add(seq);
+            assertEquals(expected, consumer.getContentAsList(), "after " + n);
+            for (int i = 0; i < held; i++) {
+                assertEquals(oldest + i, ring.get(i), "after " + n + " index " + i);
+                assertEquals(oldest + i, consumer.getValue(oldest + i));
+                assertEquals(oldest + i, consumer.get(oldest + i).getValue());
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> ring.get(held));
+            assertThrows(IndexOutOfBoundsException.class, () -> ring.get(-1));
+        }
+    }
+
+    @Test
+    void takeWaitsForTheProducer() {
+        for (RingBuffer.WaitStrategy strategy : RingBuffer.WaitStrategy.values()) {
+            RingBuffer<Long> ring = new RingBuffer<Long>(4, strategy);
+            RingBuffer<Long>.ConsumerHandle consumer = ring.createConsumer();
+            Thread producer = new Thread(() -> {
+                Utilities.pause(20);
+                ring.publish(7L);
+            });
+            producer.start();
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(7L, consumer.takeValue()));
+        }
+    }
+
+    @Test
+    void concurrentReadsNeverReturnAnotherSequence() throws Exception {
+        final long items = 1_000_000;
+        RingBuffer<Long> ring = new RingBuffer<Long>(64, RingBuffer.WaitStrategy.SPIN);
+        AtomicLong read = new AtomicLong();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread[] consumers = new Thread[2];
+        Throwable[] failure = new Throwable[consumers.length];
+        CountDownLatch started = new CountDownLatch(consumers.length);
+
+        for (int c = 0; c < consumers.length; c++) {
+            final int id = c;
+            consumers[c] = new Thread(() -> {
+                RingBuffer<Long>.ConsumerHandle consumer = ring.createConsumer();
+                started.countDown();
+                try {
+                    long last = -1;
+                    while (!done.get() || last < items - 1) {
+                        Long value;
+                        try {
+                            value = consumer.pollValue();
+                        }
+                        catch (MissedItemsException e) {
+                            // lapped: start over from the producer position
+                            assertTrue(e.getMissedCount() > 0);
+                            consumer = ring.createConsumer();
+                            if (done.get()) break;
+                            continue;
+                        }
+                        if (value == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        assertEquals(consumer.getLastSequence(), value.longValue());
+                        assertTrue(value > last, "out of order");
+                        last = value;
+                        read.incrementAndGet();
+                    }
+                }
+                catch (Throwable t) {
+                    failure[id] = t;
+                }
+            });
+            consumers[c].start();
+        }
+        started.await();
+        for (long i = 0; i < items; i++) {
+            ring.publish(i);
+            // let the consumers in within a lap every now and then (a single core machine too), so
+            // that both reads and laps occur
+            if ((i & 31) == 0 && (i & (1 << 16)) == 0) Thread.yield();
+        }
+        done.set(true);
+        for (Thread consumer : consumers) consumer.join(30_000);
+        for (Throwable t : failure) {
+            if (t != null) throw new AssertionError(t);
+        }
+        assertTrue(read.get() > 0);
+    }
+}
@@ -0,0 +1,78 @@
+package it.l_soft.wows.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * TextFileHandler flush policies, the millis:T timer in particular: lines written once and then
+ * left alone must reach the file when the interval expires, without another write or close.
+ */
+class TextFileHandlerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void intervalFlushesWithoutFurtherWrites() throws Exception {
+        TextFileHandler file = new TextFileHandler(dir.toString(), "interval", "txt", false);
+        file.setFlushPolicy(FlushPolicy.parse("millis:200"));
+        try {
+            file.write("first", true);
+            file.write("second", true);
+
+            assertTrue(waitForLines("interval", 2, 5_000), "not flushed after the interval");
+            assertEquals(List.of("first", "second"), lines("interval"));
+
+            // and again for the next round of lines
+            file.write("third", true);
+            assertTrue(waitForLines("interval", 3, 5_000), "second interval not flushed");
+        }
+        finally {
+            file.close();
+        }
+    }
+
+    @Test
+    void everyNLines() throws Exception {
+        TextFileHandler file = new TextFileHandler(dir.toString(), "lines", "txt", false);
+        file.setFlushPolicy(FlushPolicy.parse("lines:3"));
+        file.write("a", true);
+        file.write("b", true);
+        assertEquals(List.of(), lines("lines"));
+        file.write("c", true);
+        assertEquals(List.of("a", "b", "c"), lines("lines"));
+        file.write("d", true);
+        file.close();
+        assertEquals(List.of("a", "b", "c", "d"), lines("lines"));
+    }
+
+    @Test
+    void closeCancelsTheTimer() throws Exception {
+        TextFileHandler file = new TextFileHandler(dir.toString(), "closed", "txt", false);
+        file.setFlushPolicy(FlushPolicy.everyMillis(100));
+        file.write("only", true);
+        file.close();
+        Thread.sleep(300);      // the timer must not touch the closed writer
+        assertEquals(List.of("only"), lines("closed"));
+    }
+
+    private boolean waitForLines(String name, int count, long timeoutMillis) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            if (lines(name).size() >= count) return true;
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    private List<String> lines(String name) throws Exception {
+        return Files.readAllLines(dir.resolve(name + ".txt"));
+    }
+}